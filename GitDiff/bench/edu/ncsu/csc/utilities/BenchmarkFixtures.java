@@ -0,0 +1,210 @@
+package edu.ncsu.csc.utilities;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.PersonIdent;
+
+/**
+ * Builds the inputs measured by the benchmarks: Java sources of a chosen
+ * size, and small repositories in which such a source is changed.
+ *
+ * Every input is generated deterministically from its parameters, so
+ * measurements taken on different machines or revisions of the code are
+ * made against identical inputs.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public final class BenchmarkFixtures
+{
+
+    /** The package of every generated class */
+    public static final String       PACKAGE_NAME = "edu.ncsu.csc.bench";
+
+    /** The path of the generated class within fixture repositories */
+    public static final String       CLASS_PATH   = "src/edu/ncsu/csc/bench/Fixture.java";
+
+    /** The character set of every generated file */
+    private static final Charset     UTF_8        = Charset.forName("UTF-8");
+
+    /** The parameter types cycled through by the generated methods */
+    private static final String[]    PARAM_TYPES  = { "int", "String", "List<String>", "Map<String, Integer>", "long[]", "Object" };
+
+    /** The author and committer of every fixture commit */
+    private static final PersonIdent AUTHOR       = new PersonIdent("Benchmark", "bench@example.com", 1380000000000L, 0);
+
+    /**
+     * Not instantiable
+     */
+    private BenchmarkFixtures()
+    {
+    }
+
+    /**
+     * Generates the source of a class declaring the given number of methods.
+     * Each revision after the first rewrites the body of every fourth method
+     * and appends a new method, so that consecutive revisions differ in
+     * several hunks spread through the class.
+     *
+     * @param className
+     *            The simple name of the class
+     * @param methodCount
+     *            The number of methods declared at the first revision
+     * @param revision
+     *            The revision of the class, starting at 0
+     *
+     * @return The source of the class
+     */
+    public static String javaSource(String className, int methodCount, int revision)
+    {
+        return javaSource(PACKAGE_NAME, className, methodCount, revision);
+    }
+
+    /**
+     * Generates the source of a class of the given package, as described by
+     * {@link #javaSource(String, int, int)}
+     *
+     * @param packageName
+     *            The package of the class
+     * @param className
+     *            The simple name of the class
+     * @param methodCount
+     *            The number of methods declared at the first revision
+     * @param revision
+     *            The revision of the class, starting at 0
+     *
+     * @return The source of the class
+     */
+    public static String javaSource(String packageName, String className, int methodCount, int revision)
+    {
+        StringBuilder source = new StringBuilder(methodCount * 256);
+
+        source.append("package ").append(packageName).append(";\n\n");
+        source.append("import java.util.List;\n");
+        source.append("import java.util.Map;\n\n");
+        source.append("/**\n * Generated benchmark fixture\n */\n");
+        source.append("public class ").append(className).append("\n{\n\n");
+        source.append("    private int counter = 0;\n\n");
+
+        for (int idx = 0; idx < methodCount + revision; idx++) {
+
+            String paramType = PARAM_TYPES[idx % PARAM_TYPES.length];
+            boolean rewritten = (revision > 0 && idx % 4 == revision % 4);
+
+            source.append("    /**\n");
+            source.append("     * Generated method ").append(idx).append("\n");
+            source.append("     *\n");
+            source.append("     * @param value\n");
+            source.append("     *            The value\n");
+            source.append("     * @return The result\n");
+            source.append("     */\n");
+            source.append("    public int method").append(idx).append("(").append(paramType).append(" value, int offset)\n");
+            source.append("    {\n");
+            source.append("        int result = offset + ").append(idx).append(";\n");
+            source.append("        for (char aChar : String.valueOf(value).toCharArray()) {\n");
+            source.append("            result = result * 31 + aChar;\n");
+            source.append("        }\n");
+
+            if (rewritten) {
+                source.append("        result ^= ").append(revision).append(";\n");
+                source.append("        this.counter += result;\n");
+            } else {
+                source.append("        this.counter++;\n");
+            }
+
+            source.append("        return result;\n");
+            source.append("    }\n\n");
+        }
+
+        source.append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * Creates a repository in the given directory holding a class of the
+     * given size, with one commit adding the class and a second commit
+     * changing it, along with a JSP and a SQL file
+     *
+     * @param directory
+     *            The directory in which the repository is created
+     * @param methodCount
+     *            The number of methods of the class
+     *
+     * @return The repository, which the caller must close
+     *
+     * @throws IOException
+     *             if the repository could not be written
+     * @throws GitAPIException
+     *             if a commit could not be made
+     */
+    public static Git createRepository(File directory, int methodCount) throws IOException, GitAPIException
+    {
+        Git git = Git.init().setDirectory(directory).call();
+
+        writeFile(directory, CLASS_PATH, javaSource("Fixture", methodCount, 0));
+        writeFile(directory, "web/index.jsp", "<html><body>Fixture</body></html>\n");
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("Add the fixture class").setAuthor(AUTHOR).setCommitter(AUTHOR).call();
+
+        writeFile(directory, CLASS_PATH, javaSource("Fixture", methodCount, 1));
+        writeFile(directory, "web/index.jsp", "<html><body>Fixture, revised</body></html>\n");
+        writeFile(directory, "db/schema.sql", "CREATE TABLE fixture (id INT);\n");
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("Revise the fixture class").setAuthor(AUTHOR).setCommitter(AUTHOR).call();
+
+        return git;
+    }
+
+    /**
+     * Writes a file within a working tree, creating its directories
+     *
+     * @param root
+     *            The root of the working tree
+     * @param path
+     *            The path of the file within the working tree
+     * @param content
+     *            The content of the file
+     *
+     * @throws IOException
+     *             if the file could not be written
+     */
+    public static void writeFile(File root, String path, String content) throws IOException
+    {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), UTF_8);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Deletes the given file, and everything beneath it if it is a directory
+     *
+     * @param file
+     *            The file or directory
+     */
+    public static void delete(File file)
+    {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+
+        if (!file.delete() && file.exists()) {
+            System.out.println("Failed to delete " + file.getPath());
+        }
+    }
+}
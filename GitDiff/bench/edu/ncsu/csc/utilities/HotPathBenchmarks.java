@@ -0,0 +1,407 @@
+package edu.ncsu.csc.utilities;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffAlgorithm.SupportedAlgorithm;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+
+import com.thoughtworks.qdox.JavaProjectBuilder;
+import com.thoughtworks.qdox.model.JavaMethod;
+
+/**
+ * Microbenchmarks of the hot paths of a diff: reading blobs, indexing
+ * Java sources, building method signatures, mapping lines to methods,
+ * extracting hunks, processing a changed Java file, and rendering the
+ * report.
+ *
+ * Each benchmark is run against classes of several sizes, generated by
+ * {@link BenchmarkFixtures}, and reports its throughput alongside the
+ * bytes it allocates per operation.
+ *
+ * Usage: HotPathBenchmarks [-w warmups] [-i iterations] [-t millis] [--sizes n,n,...] [filter]
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class HotPathBenchmarks
+{
+
+    /** The number of methods of the classes benchmarked by default */
+    private static final int[]                DEFAULT_SIZES  = { 10, 100, 1000 };
+
+    /** The length of the commit messages of the benchmarked reports */
+    private static final int                  MESSAGE_LENGTH = 600;
+
+    /** The harness used to measure each benchmark */
+    private final MicroBenchmark              harness        = new MicroBenchmark();
+
+    /** The measurements taken so far */
+    private final List<MicroBenchmark.Result> results        = new ArrayList<MicroBenchmark.Result>();
+
+    /** Only benchmarks whose names contain this are run, or null for every benchmark */
+    private String                            filter         = null;
+
+    /**
+     * Runs the benchmarks and prints their results
+     *
+     * @param args
+     *            The command line arguments
+     *
+     * @throws Exception
+     *             if a fixture could not be built or a benchmark fails
+     */
+    public static void main(String[] args) throws Exception
+    {
+        HotPathBenchmarks benchmarks = new HotPathBenchmarks();
+        int[] sizes = DEFAULT_SIZES;
+
+        for (int idx = 0; idx < args.length; idx++) {
+
+            if ("-w".equals(args[idx]) && idx + 1 < args.length) {
+                benchmarks.harness.setWarmupIterations(Integer.parseInt(args[++idx]));
+            } else if ("-i".equals(args[idx]) && idx + 1 < args.length) {
+                benchmarks.harness.setMeasureIterations(Integer.parseInt(args[++idx]));
+            } else if ("-t".equals(args[idx]) && idx + 1 < args.length) {
+                benchmarks.harness.setIterationMillis(Long.parseLong(args[++idx]));
+            } else if ("--sizes".equals(args[idx]) && idx + 1 < args.length) {
+                String[] values = args[++idx].split(",");
+                sizes = new int[values.length];
+                for (int size = 0; size < values.length; size++) {
+                    sizes[size] = Integer.parseInt(values[size].trim());
+                }
+            } else {
+                benchmarks.filter = args[idx];
+            }
+        }
+
+        for (int size : sizes) {
+            benchmarks.runSourceBenchmarks(size);
+            benchmarks.runRepositoryBenchmarks(size);
+            benchmarks.runReportBenchmarks(size);
+        }
+
+        System.out.println();
+        MicroBenchmark.printResults(benchmarks.results);
+    }
+
+    /**
+     * Runs the benchmarks which need nothing but a Java source
+     *
+     * @param size
+     *            The number of methods of the class
+     *
+     * @throws Exception
+     *             if a benchmark fails
+     */
+    private void runSourceBenchmarks(int size) throws Exception
+    {
+        final String source = BenchmarkFixtures.javaSource("Fixture", size, 0);
+        final String revised = BenchmarkFixtures.javaSource("Fixture", size, 1);
+        String param = "methods=" + size;
+
+        measure("JavaClassModel.<init>", param, new MicroBenchmark.Workload() {
+
+            @Override
+            public Object run()
+            {
+                return new JavaClassModel(source);
+            }
+        });
+
+        measure("ScanningSourceIndexer.index", param, new MicroBenchmark.Workload() {
+
+            private final ScanningSourceIndexer indexer = new ScanningSourceIndexer();
+
+            @Override
+            public Object run()
+            {
+                return this.indexer.index(source);
+            }
+        });
+
+        JavaProjectBuilder builder = new JavaProjectBuilder();
+        builder.addSource(new StringReader(source));
+        final List<JavaMethod> methods = builder.getClasses().iterator().next().getMethods();
+
+        measure("JavaMethodModel.<init>", param, new MicroBenchmark.Workload() {
+
+            @Override
+            public Object run()
+            {
+                int retVal = 0;
+                for (JavaMethod method : methods) {
+                    retVal += new JavaMethodModel(method).getMethodSignature().length();
+                }
+                return Integer.valueOf(retVal);
+            }
+        });
+
+        final JavaClassModel model = new JavaClassModel(source);
+        final int lineCount = new RawText(source.getBytes("UTF-8")).size();
+
+        measure("methodSignatureForLine", param, new MicroBenchmark.Workload() {
+
+            @Override
+            public Object run()
+            {
+                int retVal = 0;
+                for (int line = 1; line <= lineCount; line++) {
+                    String signature = model.methodSignatureForLine(line);
+                    retVal += (signature != null) ? 1 : 0;
+                }
+                return Integer.valueOf(retVal);
+            }
+        });
+
+        final EditList edits = DiffAlgorithm.getAlgorithm(SupportedAlgorithm.HISTOGRAM).diff(RawTextComparator.DEFAULT,
+                new RawText(source.getBytes("UTF-8")), new RawText(revised.getBytes("UTF-8")));
+
+        measure("HunkExtractor.oldLineRanges", param, new MicroBenchmark.Workload() {
+
+            @Override
+            public Object run()
+            {
+                return HunkExtractor.oldLineRanges(edits);
+            }
+        });
+
+        measure("HunkExtractor.newLineRanges", param, new MicroBenchmark.Workload() {
+
+            @Override
+            public Object run()
+            {
+                return HunkExtractor.newLineRanges(edits);
+            }
+        });
+
+        final List<LineRange> ranges = HunkExtractor.oldLineRanges(edits);
+
+        measure("methodsOverlapping", param, new MicroBenchmark.Workload() {
+
+            @Override
+            public Object run()
+            {
+                int retVal = 0;
+                for (LineRange range : ranges) {
+                    retVal += model.methodsOverlapping(range).size();
+                }
+                return Integer.valueOf(retVal);
+            }
+        });
+    }
+
+    /**
+     * Runs the benchmarks which read from a fixture repository
+     *
+     * @param size
+     *            The number of methods of the fixture class
+     *
+     * @throws Exception
+     *             if the fixture could not be built or a benchmark fails
+     */
+    private void runRepositoryBenchmarks(int size) throws Exception
+    {
+        File directory = File.createTempFile("JGitDiffBench", "");
+        directory.delete();
+
+        Git git = BenchmarkFixtures.createRepository(directory, size);
+        final Repository repo = git.getRepository();
+        final BlobReader blobs = new BlobReader(repo);
+        final DiffFormatter df = new DiffFormatter(DisabledOutputStream.INSTANCE);
+
+        try {
+
+            String param = "methods=" + size;
+
+            RevWalk walk = new RevWalk(repo);
+            RevCommit newCommit = walk.parseCommit(repo.resolve("HEAD"));
+            RevCommit oldCommit = walk.parseCommit(newCommit.getParent(0));
+            walk.release();
+
+            df.setContext(0);
+            df.setRepository(repo);
+            df.setPathFilter(FileTypeFilter.createDefault());
+
+            final List<DiffEntry> entries = df.scan(oldCommit.getTree(), newCommit.getTree());
+            final ObjectId blobId = findJavaEntry(entries).getNewId().toObjectId();
+
+            measure("fetchBlob", param, new MicroBenchmark.Workload() {
+
+                @Override
+                public Object run() throws Exception
+                {
+                    return BlobReader.decode(blobs.getBytes(blobId));
+                }
+            });
+
+            measure("processJavaFile", param, new MicroBenchmark.Workload() {
+
+                private final FileTypeRegistry  fileTypes = FileTypeRegistry.createDefault();
+
+                private final QDoxSourceIndexer indexer   = new QDoxSourceIndexer();
+
+                @Override
+                public Object run() throws Exception
+                {
+                    DiffSession diffSession = new DiffSession(this.fileTypes.getCategories());
+
+                    for (DiffEntry entry : entries) {
+
+                        FileTypeAnalyzer analyzer = this.fileTypes.analyzerFor(entry.getNewPath());
+                        if (analyzer == null) {
+                            continue;
+                        }
+                        if (!analyzer.isMemberLevel()) {
+                            diffSession.addListedFile(analyzer.getCategory(), entry.getNewPath());
+                            continue;
+                        }
+
+                        EditList fileEdits = df.toFileHeader(entry).toEditList();
+                        recordMethods(diffSession, this.indexer.index(blobs.getString(entry.getOldId())), HunkExtractor.oldLineRanges(fileEdits));
+                        recordMethods(diffSession, this.indexer.index(blobs.getString(entry.getNewId())), HunkExtractor.newLineRanges(fileEdits));
+                    }
+
+                    return Integer.valueOf(diffSession.getChangedClasses().size());
+                }
+            });
+
+        } finally {
+            df.release();
+            blobs.release();
+            repo.close();
+            BenchmarkFixtures.delete(directory);
+        }
+    }
+
+    /**
+     * Runs the benchmarks which render reports
+     *
+     * @param size
+     *            The number of changed methods of the report
+     *
+     * @throws Exception
+     *             if a benchmark fails
+     */
+    private void runReportBenchmarks(int size) throws Exception
+    {
+        String param = "methods=" + size;
+
+        StringBuilder words = new StringBuilder();
+        for (int idx = 0; words.length() < MESSAGE_LENGTH; idx++) {
+            words.append((idx % 7 == 6) ? "AnUnusuallyLongIdentifierThatMustBeHyphenated " : "commit message ");
+        }
+        final String message = words.toString();
+
+        final DiffSession diffSession = new DiffSession();
+        diffSession.setRepositoryName("Fixture");
+        diffSession.setUserName("Benchmark");
+        diffSession.setUserEmail("bench@example.com");
+        diffSession.setDeltaCount(Integer.toString(size));
+        diffSession.setBaseCommitMetadata("0000000000000000000000000000000000000000", "01/01/2013", message);
+        diffSession.setNewCommitMetadata("1111111111111111111111111111111111111111", "02/01/2013", message);
+
+        for (int idx = 0; idx < size; idx++) {
+            diffSession.addChangedMethod(BenchmarkFixtures.PACKAGE_NAME + ".Class" + (idx / 10), "method" + idx + "(int, String)");
+            if (idx % 10 == 0) {
+                diffSession.addJspFile("web/page" + idx + ".jsp");
+                diffSession.addSqlFile("db/table" + idx + ".sql");
+            }
+        }
+
+        measure("DiffSession.getOutputString", param, new MicroBenchmark.Workload() {
+
+            @Override
+            public Object run()
+            {
+                return diffSession.getOutputString();
+            }
+        });
+
+        measure("wrapWordsInString", "chars=" + message.length(), new MicroBenchmark.Workload() {
+
+            @Override
+            public Object run()
+            {
+                return TextReportRenderer.wrapWordsInString(message, 35);
+            }
+        });
+    }
+
+    /**
+     * Measures the given operation, unless it is excluded by the filter,
+     * and prints its result as soon as it is known
+     *
+     * @param name
+     *            The name of the benchmark
+     * @param param
+     *            The input the operation is run against
+     * @param workload
+     *            The operation
+     *
+     * @throws Exception
+     *             if the operation fails
+     */
+    private void measure(String name, String param, MicroBenchmark.Workload workload) throws Exception
+    {
+        if (this.filter != null && !name.contains(this.filter)) {
+            return;
+        }
+
+        MicroBenchmark.Result result = this.harness.measure(name, param, workload);
+        this.results.add(result);
+
+        System.out.println(result);
+    }
+
+    /**
+     * Records the methods of the given class which overlap the given ranges
+     *
+     * @param diffSession
+     *            The session in which the methods are recorded
+     * @param model
+     *            The class
+     * @param ranges
+     *            The ranges of changed lines
+     */
+    private static void recordMethods(DiffSession diffSession, JavaClassModel model, List<LineRange> ranges)
+    {
+        for (LineRange range : ranges) {
+            for (JavaMethodModel method : model.methodsOverlapping(range)) {
+                diffSession.addChangedMethod(model.getPackageName(), method.getMethodSignature());
+            }
+        }
+    }
+
+    /**
+     * Finds the entry of the first Java file among the given entries
+     *
+     * @param entries
+     *            The entries of a diff
+     *
+     * @return The entry
+     */
+    private static DiffEntry findJavaEntry(List<DiffEntry> entries)
+    {
+        for (DiffEntry entry : entries) {
+            if (entry.getNewPath().endsWith(".java")) {
+                return entry;
+            }
+        }
+
+        throw new IllegalStateException("The fixture holds no Java file");
+    }
+}
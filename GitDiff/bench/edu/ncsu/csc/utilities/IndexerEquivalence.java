@@ -0,0 +1,241 @@
+package edu.ncsu.csc.utilities;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.thoughtworks.qdox.JavaProjectBuilder;
+
+/**
+ * Checks that the scanning indexer indexes Java sources exactly as the QDox
+ * indexer does.
+ *
+ * Every source is indexed with both indexers, and their methods are
+ * compared in order by signature, first line and span. A source which QDox
+ * cannot parse at all is skipped, since the QDox indexer reports no methods
+ * for it. Each difference is printed, and the exit status is non-zero if
+ * there are any.
+ *
+ * The sources are read from the files, directories and zip archives given
+ * (such as the JDK's src.zip), or from the corpus under corpus/indexer by
+ * default. That corpus is a small set of sources covering the constructs
+ * the scanner has to skip over or measure: multi-line annotations, nested,
+ * local and anonymous classes, comments and literals holding braces, enums,
+ * annotation types and generic signatures.
+ *
+ * Usage: IndexerEquivalence [file|directory|zip]...
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class IndexerEquivalence
+{
+
+    /** The corpus checked when no sources are given */
+    private static final String     DEFAULT_CORPUS = "corpus/indexer";
+
+    /** The character set sources are read in */
+    private static final Charset    UTF_8          = Charset.forName("UTF-8");
+
+    /** The indexer whose results are taken as correct */
+    private final JavaSourceIndexer expected       = new QDoxSourceIndexer();
+
+    /** The indexer being checked */
+    private final JavaSourceIndexer actual         = new ScanningSourceIndexer();
+
+    /** The number of sources compared */
+    private int                     compared       = 0;
+
+    /** The number of sources QDox could not parse */
+    private int                     skipped        = 0;
+
+    /** The number of sources indexed differently */
+    private int                     differing      = 0;
+
+    /**
+     * Compares the indexers over the given sources, or over the default corpus
+     *
+     * @param args
+     *            The files, directories and zip archives holding the sources
+     *
+     * @throws IOException
+     *             if a source could not be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        IndexerEquivalence check = new IndexerEquivalence();
+
+        String[] paths = (args.length > 0) ? args : new String[] { DEFAULT_CORPUS };
+
+        for (String path : paths) {
+
+            File file = new File(path);
+            if (!file.exists()) {
+                System.out.println("No such file: " + path);
+                System.exit(CommandLine.EXIT_USAGE);
+            }
+
+            check.checkPath(file);
+        }
+
+        System.out.println(String.format("%d sources compared, %d differ, %d skipped as QDox could not parse them", check.compared, check.differing,
+                check.skipped));
+
+        if (check.differing > 0 || check.compared == 0) {
+            System.exit(CommandLine.EXIT_ERROR);
+        }
+    }
+
+    /**
+     * Compares the indexers over the sources held by the given file
+     *
+     * @param file
+     *            A Java source, a directory searched for sources, or a zip archive of sources
+     *
+     * @throws IOException
+     *             if a source could not be read
+     */
+    private void checkPath(File file) throws IOException
+    {
+        if (file.isDirectory()) {
+
+            File[] children = file.listFiles();
+            if (children == null) {
+                return;
+            }
+
+            Arrays.sort(children);
+            for (File child : children) {
+                checkPath(child);
+            }
+
+        } else if (file.getName().endsWith(".zip") || file.getName().endsWith(".jar")) {
+
+            ZipFile zip = new ZipFile(file);
+            try {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (!entry.isDirectory() && entry.getName().endsWith(".java")) {
+                        InputStream inputStream = zip.getInputStream(entry);
+                        try {
+                            checkSource(file.getPath() + "!/" + entry.getName(), read(inputStream));
+                        } finally {
+                            inputStream.close();
+                        }
+                    }
+                }
+            } finally {
+                zip.close();
+            }
+
+        } else if (file.getName().endsWith(".java")) {
+
+            InputStream inputStream = new FileInputStream(file);
+            try {
+                checkSource(file.getPath(), read(inputStream));
+            } finally {
+                inputStream.close();
+            }
+        }
+    }
+
+    /**
+     * Indexes a source with both indexers and prints any difference
+     *
+     * @param name
+     *            The name the source is reported under
+     * @param source
+     *            The source
+     */
+    private void checkSource(String name, String source)
+    {
+        // Sources QDox cannot parse are indexed without methods by QDox, so there is nothing to compare
+        try {
+            JavaProjectBuilder builder = new JavaProjectBuilder();
+            builder.addSource(new StringReader(source));
+            if (builder.getClasses().isEmpty()) {
+                this.skipped++;
+                return;
+            }
+        } catch (Exception e) {
+            this.skipped++;
+            return;
+        } catch (Error e) {
+            this.skipped++;
+            return;
+        }
+
+        this.compared++;
+
+        List<JavaMethodModel> expectedMethods = this.expected.index(source).getMethodList();
+        List<JavaMethodModel> actualMethods = this.actual.index(source).getMethodList();
+
+        StringBuilder differences = new StringBuilder();
+
+        int count = Math.max(expectedMethods.size(), actualMethods.size());
+        for (int idx = 0; idx < count; idx++) {
+
+            String expectedMethod = (idx < expectedMethods.size()) ? describe(expectedMethods.get(idx)) : "(none)";
+            String actualMethod = (idx < actualMethods.size()) ? describe(actualMethods.get(idx)) : "(none)";
+
+            if (!expectedMethod.equals(actualMethod)) {
+                differences.append("  qdox: ").append(expectedMethod).append('\n');
+                differences.append("  scan: ").append(actualMethod).append('\n');
+            }
+        }
+
+        if (differences.length() > 0) {
+            this.differing++;
+            System.out.println("DIFFERS " + name);
+            System.out.print(differences);
+        }
+    }
+
+    /**
+     * Describes a method by its signature, first line and span
+     *
+     * @param method
+     *            The method
+     *
+     * @return The description
+     */
+    private static String describe(JavaMethodModel method)
+    {
+        LineRange range = method.getLineRange();
+        return method.getMethodSignature() + " @" + range.getIndex() + "+" + range.getLength();
+    }
+
+    /**
+     * Reads a source in full
+     *
+     * @param inputStream
+     *            The stream holding the source
+     *
+     * @return The source
+     *
+     * @throws IOException
+     *             if the source could not be read
+     */
+    private static String read(InputStream inputStream) throws IOException
+    {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+
+        int read;
+        while ((read = inputStream.read(chunk)) >= 0) {
+            buffer.write(chunk, 0, read);
+        }
+
+        return new String(buffer.toByteArray(), UTF_8);
+    }
+}
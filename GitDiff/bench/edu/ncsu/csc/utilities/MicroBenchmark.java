@@ -0,0 +1,468 @@
+package edu.ncsu.csc.utilities;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Measures the throughput and allocation rate of a single operation.
+ *
+ * The operation is run in timed iterations, first to warm up the JIT and
+ * then to measure. Each measured iteration records the number of times
+ * the operation completed, the bytes allocated by the measuring thread,
+ * as reported by the JVM's thread allocation counters, and the number
+ * and duration of garbage collections. These are the same figures
+ * reported by JMH's gc profiler, so results can be compared against it.
+ *
+ * The result of every run of the operation is folded into a sink, so the
+ * JIT is unable to eliminate the work as dead code.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class MicroBenchmark
+{
+
+    /** The number of warmup iterations run by default */
+    public static final int           DEFAULT_WARMUP_ITERATIONS  = 5;
+
+    /** The number of measured iterations run by default */
+    public static final int           DEFAULT_MEASURE_ITERATIONS = 5;
+
+    /** The length of each iteration by default, in milliseconds */
+    public static final long          DEFAULT_ITERATION_MILLIS   = 1000;
+
+    /** The thread bean, if it is able to report allocations, otherwise null */
+    private static final ThreadMXBean THREADS                    = allocationCounter();
+
+    /** Holds the results of the operation so that it cannot be eliminated */
+    private static volatile int       sink                       = 0;
+
+    /** The number of warmup iterations */
+    private int                       warmupIterations           = DEFAULT_WARMUP_ITERATIONS;
+
+    /** The number of measured iterations */
+    private int                       measureIterations          = DEFAULT_MEASURE_ITERATIONS;
+
+    /** The length of each iteration, in milliseconds */
+    private long                      iterationMillis            = DEFAULT_ITERATION_MILLIS;
+
+    /**
+     * Measures the given operation
+     *
+     * @param name
+     *            The name of the benchmark
+     * @param param
+     *            The input the operation is run against, reported alongside the name
+     * @param workload
+     *            The operation
+     *
+     * @return The measurements
+     *
+     * @throws Exception
+     *             if the operation fails
+     */
+    public Result measure(String name, String param, Workload workload) throws Exception
+    {
+        for (int idx = 0; idx < this.warmupIterations; idx++) {
+            runIteration(workload);
+        }
+
+        double[] opsPerSecond = new double[this.measureIterations];
+        long totalOps = 0;
+        long totalBytes = 0;
+        long totalNanos = 0;
+        long gcCount = 0;
+        long gcMillis = 0;
+
+        for (int idx = 0; idx < this.measureIterations; idx++) {
+
+            long gcCountStart = collectionCount();
+            long gcMillisStart = collectionMillis();
+
+            long[] iteration = runIteration(workload);
+
+            gcCount += collectionCount() - gcCountStart;
+            gcMillis += collectionMillis() - gcMillisStart;
+
+            opsPerSecond[idx] = iteration[0] * 1e9 / iteration[1];
+            totalOps += iteration[0];
+            totalNanos += iteration[1];
+            totalBytes += iteration[2];
+        }
+
+        return new Result(name, param, opsPerSecond, totalOps, totalNanos, (THREADS != null) ? totalBytes : -1, gcCount, gcMillis);
+    }
+
+    /**
+     * Runs the operation repeatedly for the length of one iteration
+     *
+     * @param workload
+     *            The operation
+     *
+     * @return The number of operations, the elapsed nanoseconds, and the bytes allocated
+     *
+     * @throws Exception
+     *             if the operation fails
+     */
+    private long[] runIteration(Workload workload) throws Exception
+    {
+        long threadId = Thread.currentThread().getId();
+        long deadline = this.iterationMillis * 1000000L;
+        int folded = 0;
+        long ops = 0;
+
+        long bytesStart = (THREADS != null) ? THREADS.getThreadAllocatedBytes(threadId) : 0;
+        long start = System.nanoTime();
+        long elapsed;
+
+        do {
+            Object result = workload.run();
+            folded += (result != null) ? result.hashCode() : 0;
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < deadline);
+
+        long bytes = (THREADS != null) ? THREADS.getThreadAllocatedBytes(threadId) - bytesStart : 0;
+
+        sink += folded;
+        return new long[] { ops, elapsed, bytes };
+    }
+
+    /**
+     * Returns the JVM's thread bean, if it is able to report allocations
+     *
+     * @return The thread bean, or null
+     */
+    private static ThreadMXBean allocationCounter()
+    {
+        try {
+            ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        } catch (ClassCastException e) {
+            System.out.println("Allocation counters are unavailable on this JVM");
+        } catch (UnsupportedOperationException e) {
+            System.out.println("Allocation counters are unavailable on this JVM");
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the number of collections run so far by every collector
+     *
+     * @return The collection count
+     */
+    private static long collectionCount()
+    {
+        long retVal = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            retVal += Math.max(collector.getCollectionCount(), 0);
+        }
+        return retVal;
+    }
+
+    /**
+     * Returns the time spent so far in collections by every collector
+     *
+     * @return The collection time, in milliseconds
+     */
+    private static long collectionMillis()
+    {
+        long retVal = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            retVal += Math.max(collector.getCollectionTime(), 0);
+        }
+        return retVal;
+    }
+
+    /**
+     * Prints the header of the table of results written by {@link Result#toString()}
+     */
+    public static void printHeader()
+    {
+        System.out.println(String.format(Locale.ROOT, "%-34s %-14s %14s %10s %12s %12s %10s %8s", "Benchmark", "Param", "ops/s", "error",
+                "ns/op", "B/op", "MB/s", "gc"));
+    }
+
+    /**
+     * Prints each of the given results as a row of the table
+     *
+     * @param results
+     *            The results
+     */
+    public static void printResults(List<Result> results)
+    {
+        printHeader();
+        for (Result result : results) {
+            System.out.println(result);
+        }
+    }
+
+    /**
+     * Gets the number of warmup iterations
+     *
+     * @return the warmupIterations
+     */
+    public int getWarmupIterations()
+    {
+        return this.warmupIterations;
+    }
+
+    /**
+     * Sets the number of warmup iterations
+     *
+     * @param warmupIterations
+     *            the warmupIterations to set
+     */
+    public void setWarmupIterations(int warmupIterations)
+    {
+        this.warmupIterations = Math.max(warmupIterations, 0);
+    }
+
+    /**
+     * Gets the number of measured iterations
+     *
+     * @return the measureIterations
+     */
+    public int getMeasureIterations()
+    {
+        return this.measureIterations;
+    }
+
+    /**
+     * Sets the number of measured iterations
+     *
+     * @param measureIterations
+     *            the measureIterations to set
+     */
+    public void setMeasureIterations(int measureIterations)
+    {
+        this.measureIterations = Math.max(measureIterations, 1);
+    }
+
+    /**
+     * Gets the length of each iteration
+     *
+     * @return the iterationMillis
+     */
+    public long getIterationMillis()
+    {
+        return this.iterationMillis;
+    }
+
+    /**
+     * Sets the length of each iteration
+     *
+     * @param iterationMillis
+     *            the iterationMillis to set
+     */
+    public void setIterationMillis(long iterationMillis)
+    {
+        this.iterationMillis = Math.max(iterationMillis, 1);
+    }
+
+    /**
+     * An operation to be measured
+     *
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    public interface Workload
+    {
+
+        /**
+         * Runs the operation once
+         *
+         * @return The result of the operation, which is consumed so that it is not eliminated
+         *
+         * @throws Exception
+         *             if the operation fails
+         */
+        Object run() throws Exception;
+    }
+
+    /**
+     * The measurements of a single benchmark
+     *
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    public static class Result
+    {
+        /** The name of the benchmark */
+        private final String   name;
+
+        /** The input the operation was run against */
+        private final String   param;
+
+        /** The throughput of each measured iteration */
+        private final double[] opsPerSecond;
+
+        /** The number of operations over every measured iteration */
+        private final long     totalOps;
+
+        /** The elapsed time of every measured iteration */
+        private final long     totalNanos;
+
+        /** The bytes allocated over every measured iteration, or -1 if unknown */
+        private final long     totalBytes;
+
+        /** The number of collections over every measured iteration */
+        private final long     gcCount;
+
+        /** The time spent in collections over every measured iteration */
+        private final long     gcMillis;
+
+        /**
+         * Constructs a new set of measurements
+         *
+         * @param name
+         *            The name of the benchmark
+         * @param param
+         *            The input the operation was run against
+         * @param opsPerSecond
+         *            The throughput of each measured iteration
+         * @param totalOps
+         *            The number of operations over every measured iteration
+         * @param totalNanos
+         *            The elapsed time of every measured iteration
+         * @param totalBytes
+         *            The bytes allocated over every measured iteration, or -1 if unknown
+         * @param gcCount
+         *            The number of collections over every measured iteration
+         * @param gcMillis
+         *            The time spent in collections over every measured iteration
+         */
+        Result(String name, String param, double[] opsPerSecond, long totalOps, long totalNanos, long totalBytes, long gcCount, long gcMillis)
+        {
+            this.name = name;
+            this.param = param;
+            this.opsPerSecond = opsPerSecond;
+            this.totalOps = totalOps;
+            this.totalNanos = totalNanos;
+            this.totalBytes = totalBytes;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+
+        /**
+         * Returns the mean throughput of the measured iterations
+         *
+         * @return The operations per second
+         */
+        public double getOpsPerSecond()
+        {
+            double sum = 0;
+            for (double value : this.opsPerSecond) {
+                sum += value;
+            }
+            return sum / this.opsPerSecond.length;
+        }
+
+        /**
+         * Returns the half-width of the 99.9% confidence interval of the
+         * throughput, assuming its iterations are normally distributed
+         *
+         * @return The error, in operations per second
+         */
+        public double getOpsPerSecondError()
+        {
+            int count = this.opsPerSecond.length;
+            if (count < 2) {
+                return Double.NaN;
+            }
+
+            double mean = getOpsPerSecond();
+            double squares = 0;
+            for (double value : this.opsPerSecond) {
+                squares += (value - mean) * (value - mean);
+            }
+
+            return 3.291 * Math.sqrt(squares / (count - 1)) / Math.sqrt(count);
+        }
+
+        /**
+         * Returns the mean time taken by each operation
+         *
+         * @return The nanoseconds per operation
+         */
+        public double getNanosPerOp()
+        {
+            return (double) this.totalNanos / this.totalOps;
+        }
+
+        /**
+         * Returns the bytes allocated by each operation
+         *
+         * @return The bytes per operation, or -1 if unknown
+         */
+        public double getBytesPerOp()
+        {
+            return (this.totalBytes < 0) ? -1 : (double) this.totalBytes / this.totalOps;
+        }
+
+        /**
+         * Returns the rate at which the operation allocated memory
+         *
+         * @return The megabytes allocated per second, or -1 if unknown
+         */
+        public double getAllocationRate()
+        {
+            return (this.totalBytes < 0) ? -1 : (this.totalBytes / (1024.0 * 1024.0)) / (this.totalNanos / 1e9);
+        }
+
+        /**
+         * Gets the name of the benchmark
+         *
+         * @return the name
+         */
+        public String getName()
+        {
+            return this.name;
+        }
+
+        /**
+         * Gets the input the operation was run against
+         *
+         * @return the param
+         */
+        public String getParam()
+        {
+            return this.param;
+        }
+
+        /**
+         * Gets the number of collections over every measured iteration
+         *
+         * @return the gcCount
+         */
+        public long getGcCount()
+        {
+            return this.gcCount;
+        }
+
+        /**
+         * Gets the time spent in collections over every measured iteration
+         *
+         * @return the gcMillis
+         */
+        public long getGcMillis()
+        {
+            return this.gcMillis;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format(Locale.ROOT, "%-34s %-14s %14.1f %10.1f %12.1f %12.1f %10.1f %4d/%dms", this.name, this.param, getOpsPerSecond(),
+                    getOpsPerSecondError(), getNanosPerOp(), getBytesPerOp(), getAllocationRate(), this.gcCount, this.gcMillis);
+        }
+    }
+}
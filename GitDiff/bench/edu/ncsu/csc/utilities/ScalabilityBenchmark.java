@@ -0,0 +1,246 @@
+package edu.ncsu.csc.utilities;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures how a complete diff scales with the shape of the repository.
+ *
+ * For each requested size a {@link SyntheticRepository} is generated with
+ * the given number of commits and files, and the range from its first
+ * commit to the tip of its mainline is diffed as the command line would
+ * diff it. Each diff starts with an empty class cache, and its wall time,
+ * peak heap and throughput in commits and files per second are reported.
+ * When a size is run more than once, the fastest run is reported.
+ *
+ * Peak heap is the sum of the peak usage of each heap memory pool since
+ * the diff started, so it may overstate the true peak slightly when the
+ * pools peaked at different times.
+ *
+ * Usage: ScalabilityBenchmark [--sizes commits:files,...] [--methods n]
+ * [--changes n] [--branch-rate r] [--merge-rate r] [--mix java:jsp:sql:other]
+ * [--indexer qdox|scan] [-j parallelism] [--repeat n] [--seed n]
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class ScalabilityBenchmark
+{
+
+    /** The commits and files of the repositories measured by default */
+    private static final String DEFAULT_SIZES = "50:50,200:200,800:800";
+
+    /** The number of times each size is diffed */
+    private int                 repeat        = 1;
+
+    /** The number of commit pairs diffed concurrently */
+    private int                 parallelism   = 1;
+
+    /** Locates the methods within each Java file, or null for the default */
+    private JavaSourceIndexer   indexer       = null;
+
+    /**
+     * Generates and diffs repositories of each size, then prints the results
+     *
+     * @param args
+     *            The command line arguments
+     *
+     * @throws Exception
+     *             if a repository could not be generated
+     */
+    public static void main(String[] args) throws Exception
+    {
+        ScalabilityBenchmark benchmark = new ScalabilityBenchmark();
+        SyntheticRepository shape = new SyntheticRepository();
+        String sizes = DEFAULT_SIZES;
+
+        for (int idx = 0; idx < args.length; idx++) {
+
+            String arg = args[idx];
+            String value = (idx + 1 < args.length) ? args[idx + 1] : null;
+
+            if (value == null) {
+                System.out.println("Missing value for " + arg);
+                return;
+            }
+
+            if (arg.equals("--sizes")) {
+                sizes = value;
+            } else if (arg.equals("--methods")) {
+                shape.setMethodsPerClass(Integer.parseInt(value));
+            } else if (arg.equals("--changes")) {
+                shape.setChangesPerCommit(Integer.parseInt(value));
+            } else if (arg.equals("--branch-rate")) {
+                shape.setBranchRate(Double.parseDouble(value));
+            } else if (arg.equals("--merge-rate")) {
+                shape.setMergeRate(Double.parseDouble(value));
+            } else if (arg.equals("--mix")) {
+                String[] weights = value.split(":");
+                if (weights.length != 4) {
+                    System.out.println("Invalid file mix: " + value);
+                    return;
+                }
+                shape.setFileMix(Integer.parseInt(weights[0]), Integer.parseInt(weights[1]), Integer.parseInt(weights[2]),
+                        Integer.parseInt(weights[3]));
+            } else if (arg.equals("--indexer")) {
+                if (value.equals("qdox")) {
+                    benchmark.indexer = new QDoxSourceIndexer();
+                } else if (value.equals("scan")) {
+                    benchmark.indexer = new ScanningSourceIndexer();
+                } else {
+                    System.out.println("Unknown indexer: " + value);
+                    return;
+                }
+            } else if (arg.equals("-j")) {
+                benchmark.parallelism = Math.max(Integer.parseInt(value), 1);
+            } else if (arg.equals("--repeat")) {
+                benchmark.repeat = Math.max(Integer.parseInt(value), 1);
+            } else if (arg.equals("--seed")) {
+                shape.setSeed(Long.parseLong(value));
+            } else {
+                System.out.println("Unknown option: " + arg);
+                return;
+            }
+
+            idx++;
+        }
+
+        List<String> rows = new ArrayList<String>();
+
+        for (String size : sizes.split(",")) {
+
+            String[] parts = size.trim().split(":");
+            shape.setCommitCount(Integer.parseInt(parts[0]));
+            shape.setFileCount(Integer.parseInt((parts.length > 1) ? parts[1] : parts[0]));
+
+            String row = benchmark.run(shape);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+
+        System.out.println();
+        System.out.println(String.format(Locale.ROOT, "%8s %8s %8s %9s %9s %9s %10s %9s %10s %10s", "commits", "files", "pairs", "entries",
+                "parsed", "gen ms", "diff ms", "heap MB", "commits/s", "files/s"));
+        for (String row : rows) {
+            System.out.println(row);
+        }
+    }
+
+    /**
+     * Generates a repository of the given shape and diffs it
+     *
+     * @param shape
+     *            The shape of the repository
+     *
+     * @return The row of results, or null if the repository could not be diffed
+     *
+     * @throws Exception
+     *             if the repository could not be generated
+     */
+    private String run(SyntheticRepository shape) throws Exception
+    {
+        File directory = File.createTempFile("JGitDiffScale", "");
+        directory.delete();
+
+        try {
+
+            long generateStart = System.nanoTime();
+            shape.generate(directory);
+            long generateMillis = (System.nanoTime() - generateStart) / 1000000L;
+
+            System.out.println("Generated " + shape.getCommitCount() + " commits, " + shape.getHeadFileCount() + " files at head in " + generateMillis
+                    + " ms");
+
+            GitDiffController controller = new GitDiffController();
+            controller.setParallelism(this.parallelism);
+            if (this.indexer != null) {
+                controller.setSourceIndexer(this.indexer);
+            }
+
+            controller.setRepositoryFilePath(directory.getPath());
+            if (!controller.isRepositoryLoaded()) {
+                return null;
+            }
+
+            String row = null;
+            long bestNanos = Long.MAX_VALUE;
+
+            try {
+
+                for (int attempt = 0; attempt < this.repeat; attempt++) {
+
+                    controller.setClassCache(new ParsedClassCache());
+
+                    System.gc();
+                    resetPeakHeap();
+
+                    long start = System.nanoTime();
+                    DiffSession diffSession = controller.buildDiffSession(shape.getBaseCommit().name(), shape.getHeadCommit().name());
+                    long elapsed = System.nanoTime() - start;
+
+                    long peakHeap = getPeakHeap();
+
+                    if (diffSession == null) {
+                        return null;
+                    }
+
+                    if (elapsed < bestNanos) {
+                        bestNanos = elapsed;
+
+                        DiffMetrics metrics = diffSession.getMetrics();
+                        double seconds = elapsed / 1e9;
+
+                        row = String.format(Locale.ROOT, "%8d %8d %8d %9d %9d %9d %10d %9.1f %10.1f %10.1f", shape.getCommitCount(),
+                                shape.getHeadFileCount(), metrics.getPairsDiffed(), metrics.getEntriesSeen(), metrics.getFilesParsed(), generateMillis,
+                                elapsed / 1000000L, peakHeap / (1024.0 * 1024.0), (metrics.getPairsDiffed() + 1) / seconds, metrics.getEntriesSeen()
+                                        / seconds);
+                    }
+                }
+
+            } finally {
+                // Close the repository outright, as its directory is about to be deleted
+                controller.closeRepository();
+                controller.getRepositoryPool().clear();
+            }
+
+            return row;
+
+        } finally {
+            BenchmarkFixtures.delete(directory);
+        }
+    }
+
+    /**
+     * Resets the peak usage of every heap memory pool to its current usage
+     */
+    private static void resetPeakHeap()
+    {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Returns the sum of the peak usage of every heap memory pool
+     *
+     * @return The peak heap usage, in bytes
+     */
+    private static long getPeakHeap()
+    {
+        long retVal = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                retVal += pool.getPeakUsage().getUsed();
+            }
+        }
+        return retVal;
+    }
+}
@@ -0,0 +1,715 @@
+package edu.ncsu.csc.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+
+/**
+ * Generates a repository of a chosen shape, in which to measure how a
+ * diff scales.
+ *
+ * The history is made of a mainline and of side branches which fork from
+ * it and are later merged back into it. Each commit which is not a merge
+ * changes a fixed number of files of its branch, occasionally adding or
+ * deleting one. Files are Java classes, JSP pages, SQL scripts and other
+ * files in a chosen mix, and every change to a Java class rewrites some of
+ * its methods and appends another. A merge takes the most revised version
+ * of each file from either side, so merges never conflict.
+ *
+ * Objects are written straight into the object database, without a
+ * working tree, and the repository is packed once the history is written
+ * so that it is read as a cloned repository would be. The same shape and
+ * seed always produce the same history.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class SyntheticRepository
+{
+
+    /** The character set of every generated file */
+    private static final Charset UTF_8            = Charset.forName("UTF-8");
+
+    /** The number of files of each directory */
+    private static final int     FILES_PER_DIR    = 20;
+
+    /** The probability that a commit which is not a merge adds a file */
+    private static final double  ADD_RATE         = 0.1;
+
+    /** The probability that a commit which is not a merge deletes a file */
+    private static final double  DELETE_RATE      = 0.05;
+
+    /** The time of the first commit, in seconds since the epoch */
+    private static final long    START_TIME       = 1380000000L;
+
+    /** The number of commits, including merges */
+    private int                  commitCount      = 100;
+
+    /** The number of files of the first commit */
+    private int                  fileCount        = 100;
+
+    /** The number of files changed by each commit which is not a merge */
+    private int                  changesPerCommit = 5;
+
+    /** The number of methods of each Java class when it is added */
+    private int                  methodsPerClass  = 20;
+
+    /** The probability that a commit forks a new side branch */
+    private double               branchRate       = 0.1;
+
+    /** The probability that a commit merges a side branch back into the mainline */
+    private double               mergeRate        = 0.1;
+
+    /** The relative number of Java, JSP, SQL and other files */
+    private int[]                fileMix          = { 6, 1, 1, 2 };
+
+    /** Whether the repository is packed once generated */
+    private boolean              pack             = true;
+
+    /** The seed of the random choices made while generating */
+    private long                 seed             = 1;
+
+    /** The first commit of the generated history */
+    private ObjectId             baseCommit       = null;
+
+    /** The last commit of the generated mainline */
+    private ObjectId             headCommit       = null;
+
+    /** The number of files in the last commit of the mainline */
+    private int                  headFileCount    = 0;
+
+    /**
+     * Generates the repository in the given directory, which must not
+     * already hold one
+     *
+     * @param directory
+     *            The directory of the repository's working tree
+     *
+     * @throws IOException
+     *             if the repository could not be written
+     * @throws GitAPIException
+     *             if the repository could not be created or packed
+     */
+    public void generate(File directory) throws IOException, GitAPIException
+    {
+        Random random = new Random(this.seed);
+
+        Git git = Git.init().setDirectory(directory).call();
+        Repository repo = git.getRepository();
+        ObjectInserter inserter = repo.newObjectInserter();
+
+        try {
+
+            Generation generation = new Generation(random, inserter);
+
+            Branch mainline = new Branch("master");
+            for (int idx = 0; idx < this.fileCount; idx++) {
+                mainline.files.put(generation.newPath(), Integer.valueOf(0));
+            }
+
+            mainline.head = generation.commit(mainline.files, "Initial commit", new ObjectId[0]);
+            this.baseCommit = mainline.head;
+
+            List<Branch> sideBranches = new ArrayList<Branch>();
+            int branchesForked = 0;
+
+            for (int idx = 1; idx < this.commitCount; idx++) {
+
+                if (!sideBranches.isEmpty() && random.nextDouble() < this.mergeRate) {
+
+                    Branch side = sideBranches.remove(random.nextInt(sideBranches.size()));
+                    mainline.mergeFrom(side);
+                    mainline.head = generation.commit(mainline.files, "Merge branch '" + side.name + "'", new ObjectId[] { mainline.head, side.head });
+                    continue;
+                }
+
+                if (random.nextDouble() < this.branchRate) {
+                    sideBranches.add(mainline.fork("side-" + (++branchesForked)));
+                }
+
+                // Side branches receive an equal share of the commits with the mainline
+                int choice = random.nextInt(sideBranches.size() + 1);
+                Branch branch = (choice == 0) ? mainline : sideBranches.get(choice - 1);
+
+                generation.change(branch.files);
+                branch.head = generation.commit(branch.files, "Change " + idx + " on " + branch.name, new ObjectId[] { branch.head });
+            }
+
+            inserter.flush();
+
+            updateRef(repo, Constants.R_HEADS + mainline.name, mainline.head);
+            for (Branch side : sideBranches) {
+                updateRef(repo, Constants.R_HEADS + side.name, side.head);
+            }
+
+            this.headCommit = mainline.head;
+            this.headFileCount = mainline.files.size();
+
+        } finally {
+            inserter.release();
+        }
+
+        try {
+            if (this.pack) {
+                // Bitmap indexes need a library which is not on the classpath
+                StoredConfig config = repo.getConfig();
+                config.setBoolean(ConfigConstants.CONFIG_PACK_SECTION, null, "buildbitmaps", false);
+                config.save();
+
+                git.gc().call();
+            }
+        } finally {
+            repo.close();
+        }
+    }
+
+    /**
+     * Points the given ref at the given commit
+     *
+     * @param repo
+     *            The repository
+     * @param refName
+     *            The full name of the ref
+     * @param commitId
+     *            The commit
+     *
+     * @throws IOException
+     *             if the ref could not be updated
+     */
+    private static void updateRef(Repository repo, String refName, ObjectId commitId) throws IOException
+    {
+        RefUpdate update = repo.updateRef(refName);
+        update.setNewObjectId(commitId);
+        update.setForceUpdate(true);
+
+        RefUpdate.Result result = update.update();
+        if (result != RefUpdate.Result.NEW && result != RefUpdate.Result.FORCED && result != RefUpdate.Result.NO_CHANGE) {
+            throw new IOException("Failed to update " + refName + ": " + result);
+        }
+    }
+
+    /**
+     * Gets the first commit of the generated history
+     *
+     * @return the baseCommit, or null if nothing has been generated
+     */
+    public ObjectId getBaseCommit()
+    {
+        return this.baseCommit;
+    }
+
+    /**
+     * Gets the last commit of the generated mainline
+     *
+     * @return the headCommit, or null if nothing has been generated
+     */
+    public ObjectId getHeadCommit()
+    {
+        return this.headCommit;
+    }
+
+    /**
+     * Gets the number of files in the last commit of the mainline
+     *
+     * @return the headFileCount
+     */
+    public int getHeadFileCount()
+    {
+        return this.headFileCount;
+    }
+
+    /**
+     * Gets the number of commits, including merges
+     *
+     * @return the commitCount
+     */
+    public int getCommitCount()
+    {
+        return this.commitCount;
+    }
+
+    /**
+     * Sets the number of commits, including merges
+     *
+     * @param commitCount
+     *            the commitCount to set
+     */
+    public void setCommitCount(int commitCount)
+    {
+        this.commitCount = Math.max(commitCount, 1);
+    }
+
+    /**
+     * Gets the number of files of the first commit
+     *
+     * @return the fileCount
+     */
+    public int getFileCount()
+    {
+        return this.fileCount;
+    }
+
+    /**
+     * Sets the number of files of the first commit
+     *
+     * @param fileCount
+     *            the fileCount to set
+     */
+    public void setFileCount(int fileCount)
+    {
+        this.fileCount = Math.max(fileCount, 1);
+    }
+
+    /**
+     * Gets the number of files changed by each commit which is not a merge
+     *
+     * @return the changesPerCommit
+     */
+    public int getChangesPerCommit()
+    {
+        return this.changesPerCommit;
+    }
+
+    /**
+     * Sets the number of files changed by each commit which is not a merge
+     *
+     * @param changesPerCommit
+     *            the changesPerCommit to set
+     */
+    public void setChangesPerCommit(int changesPerCommit)
+    {
+        this.changesPerCommit = Math.max(changesPerCommit, 1);
+    }
+
+    /**
+     * Gets the number of methods of each Java class when it is added
+     *
+     * @return the methodsPerClass
+     */
+    public int getMethodsPerClass()
+    {
+        return this.methodsPerClass;
+    }
+
+    /**
+     * Sets the number of methods of each Java class when it is added
+     *
+     * @param methodsPerClass
+     *            the methodsPerClass to set
+     */
+    public void setMethodsPerClass(int methodsPerClass)
+    {
+        this.methodsPerClass = Math.max(methodsPerClass, 0);
+    }
+
+    /**
+     * Gets the probability that a commit forks a new side branch
+     *
+     * @return the branchRate
+     */
+    public double getBranchRate()
+    {
+        return this.branchRate;
+    }
+
+    /**
+     * Sets the probability that a commit forks a new side branch
+     *
+     * @param branchRate
+     *            the branchRate to set, from 0 to 1
+     */
+    public void setBranchRate(double branchRate)
+    {
+        this.branchRate = branchRate;
+    }
+
+    /**
+     * Gets the probability that a commit merges a side branch back into the mainline
+     *
+     * @return the mergeRate
+     */
+    public double getMergeRate()
+    {
+        return this.mergeRate;
+    }
+
+    /**
+     * Sets the probability that a commit merges a side branch back into the mainline
+     *
+     * @param mergeRate
+     *            the mergeRate to set, from 0 to 1
+     */
+    public void setMergeRate(double mergeRate)
+    {
+        this.mergeRate = mergeRate;
+    }
+
+    /**
+     * Gets the relative number of Java, JSP, SQL and other files
+     *
+     * @return the fileMix
+     */
+    public int[] getFileMix()
+    {
+        return this.fileMix.clone();
+    }
+
+    /**
+     * Sets the relative number of Java, JSP, SQL and other files
+     *
+     * @param java
+     *            The weight of Java files
+     * @param jsp
+     *            The weight of JSP files
+     * @param sql
+     *            The weight of SQL files
+     * @param other
+     *            The weight of other files
+     */
+    public void setFileMix(int java, int jsp, int sql, int other)
+    {
+        if (java < 0 || jsp < 0 || sql < 0 || other < 0 || java + jsp + sql + other == 0) {
+            throw new IllegalArgumentException("Invalid file mix: " + java + ":" + jsp + ":" + sql + ":" + other);
+        }
+
+        this.fileMix = new int[] { java, jsp, sql, other };
+    }
+
+    /**
+     * Gets whether the repository is packed once generated
+     *
+     * @return the pack
+     */
+    public boolean isPack()
+    {
+        return this.pack;
+    }
+
+    /**
+     * Sets whether the repository is packed once generated
+     *
+     * @param pack
+     *            the pack to set
+     */
+    public void setPack(boolean pack)
+    {
+        this.pack = pack;
+    }
+
+    /**
+     * Gets the seed of the random choices made while generating
+     *
+     * @return the seed
+     */
+    public long getSeed()
+    {
+        return this.seed;
+    }
+
+    /**
+     * Sets the seed of the random choices made while generating
+     *
+     * @param seed
+     *            the seed to set
+     */
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * The files of a branch and the commit at its tip
+     *
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    private static class Branch
+    {
+        /** The name of the branch */
+        private final String                   name;
+
+        /** The revision of each file of the branch, by path */
+        private final TreeMap<String, Integer> files = new TreeMap<String, Integer>();
+
+        /** The commit at the tip of the branch */
+        private ObjectId                       head  = null;
+
+        /**
+         * Constructs a new branch without any files
+         *
+         * @param name
+         *            The name of the branch
+         */
+        Branch(String name)
+        {
+            this.name = name;
+        }
+
+        /**
+         * Forks a new branch from the tip of this one
+         *
+         * @param forkName
+         *            The name of the new branch
+         *
+         * @return The new branch
+         */
+        Branch fork(String forkName)
+        {
+            Branch retVal = new Branch(forkName);
+            retVal.files.putAll(this.files);
+            retVal.head = this.head;
+            return retVal;
+        }
+
+        /**
+         * Takes the most revised version of each file of the given branch.
+         * A file missing from this branch is taken from the other, so a file
+         * deleted on only one of the branches is kept.
+         *
+         * @param other
+         *            The branch being merged
+         */
+        void mergeFrom(Branch other)
+        {
+            for (Map.Entry<String, Integer> file : other.files.entrySet()) {
+                Integer revision = this.files.get(file.getKey());
+                if (revision == null || revision.intValue() < file.getValue().intValue()) {
+                    this.files.put(file.getKey(), file.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * The state of a single generation: the random source, the objects
+     * written so far and the number of files and commits made
+     *
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    private class Generation
+    {
+        /** The source of every random choice */
+        private final Random                random;
+
+        /** Writes objects into the repository */
+        private final ObjectInserter        inserter;
+
+        /** The blob of each revision of each file already written, keyed by path and revision */
+        private final Map<String, ObjectId> blobs       = new HashMap<String, ObjectId>();
+
+        /** The number of files created so far */
+        private int                         pathsMade   = 0;
+
+        /** The number of commits made so far */
+        private int                         commitsMade = 0;
+
+        /**
+         * Constructs a new generation
+         *
+         * @param random
+         *            The source of every random choice
+         * @param inserter
+         *            Writes objects into the repository
+         */
+        Generation(Random random, ObjectInserter inserter)
+        {
+            this.random = random;
+            this.inserter = inserter;
+        }
+
+        /**
+         * Chooses the type of a new file from the file mix and names it
+         *
+         * @return The path of the new file
+         */
+        String newPath()
+        {
+            int fileId = this.pathsMade++;
+            int dir = fileId / FILES_PER_DIR;
+
+            int total = 0;
+            for (int weight : SyntheticRepository.this.fileMix) {
+                total += weight;
+            }
+
+            int pick = this.random.nextInt(total);
+            int[] mix = SyntheticRepository.this.fileMix;
+
+            if (pick < mix[0]) {
+                return "src/edu/ncsu/csc/synth/pkg" + dir + "/Class" + fileId + ".java";
+            } else if (pick < mix[0] + mix[1]) {
+                return "web/pkg" + dir + "/page" + fileId + ".jsp";
+            } else if (pick < mix[0] + mix[1] + mix[2]) {
+                return "db/pkg" + dir + "/script" + fileId + ".sql";
+            } else {
+                return "docs/pkg" + dir + "/note" + fileId + ".txt";
+            }
+        }
+
+        /**
+         * Changes the given files as a single commit would
+         *
+         * @param files
+         *            The revision of each file of the branch, by path
+         */
+        void change(TreeMap<String, Integer> files)
+        {
+            if (files.size() > 1 && this.random.nextDouble() < DELETE_RATE) {
+                files.remove(pickPath(files));
+            }
+
+            if (files.isEmpty() || this.random.nextDouble() < ADD_RATE) {
+                files.put(newPath(), Integer.valueOf(0));
+            }
+
+            int changes = Math.min(SyntheticRepository.this.changesPerCommit, files.size());
+            for (int idx = 0; idx < changes; idx++) {
+                String path = pickPath(files);
+                files.put(path, Integer.valueOf(files.get(path).intValue() + 1));
+            }
+        }
+
+        /**
+         * Chooses one of the given files at random
+         *
+         * @param files
+         *            The revision of each file of the branch, by path
+         *
+         * @return The path of the chosen file
+         */
+        private String pickPath(TreeMap<String, Integer> files)
+        {
+            int skip = this.random.nextInt(files.size());
+            for (String path : files.keySet()) {
+                if (skip-- == 0) {
+                    return path;
+                }
+            }
+            return files.lastKey();
+        }
+
+        /**
+         * Writes a commit of the given files
+         *
+         * @param files
+         *            The revision of each file, by path
+         * @param message
+         *            The commit message
+         * @param parents
+         *            The parents of the commit
+         *
+         * @return The id of the commit
+         *
+         * @throws IOException
+         *             if the commit could not be written
+         */
+        ObjectId commit(TreeMap<String, Integer> files, String message, ObjectId[] parents) throws IOException
+        {
+            DirCache index = DirCache.newInCore();
+            DirCacheBuilder builder = index.builder();
+
+            for (Map.Entry<String, Integer> file : files.entrySet()) {
+                DirCacheEntry entry = new DirCacheEntry(file.getKey());
+                entry.setFileMode(FileMode.REGULAR_FILE);
+                entry.setObjectId(blobFor(file.getKey(), file.getValue().intValue()));
+                builder.add(entry);
+            }
+
+            builder.finish();
+
+            long time = (START_TIME + 60L * this.commitsMade++) * 1000L;
+            PersonIdent ident = new PersonIdent("Synthetic", "synthetic@example.com", time, 0);
+
+            CommitBuilder commit = new CommitBuilder();
+            commit.setTreeId(index.writeTree(this.inserter));
+            commit.setParentIds(parents);
+            commit.setAuthor(ident);
+            commit.setCommitter(ident);
+            commit.setMessage(message);
+
+            return this.inserter.insert(commit);
+        }
+
+        /**
+         * Returns the blob of the given revision of a file, writing it if it
+         * has not been written already
+         *
+         * @param path
+         *            The path of the file
+         * @param revision
+         *            The revision of the file
+         *
+         * @return The id of the blob
+         *
+         * @throws IOException
+         *             if the blob could not be written
+         */
+        private ObjectId blobFor(String path, int revision) throws IOException
+        {
+            String key = path + "@" + revision;
+            ObjectId retVal = this.blobs.get(key);
+
+            if (retVal == null) {
+                retVal = this.inserter.insert(Constants.OBJ_BLOB, contentOf(path, revision).getBytes(UTF_8));
+                this.blobs.put(key, retVal);
+            }
+
+            return retVal;
+        }
+
+        /**
+         * Generates the content of the given revision of a file
+         *
+         * @param path
+         *            The path of the file
+         * @param revision
+         *            The revision of the file
+         *
+         * @return The content of the file
+         */
+        private String contentOf(String path, int revision)
+        {
+            String name = path.substring(path.lastIndexOf('/') + 1, path.lastIndexOf('.'));
+
+            if (path.endsWith(".java")) {
+                String dir = path.substring(0, path.lastIndexOf('/'));
+                String packageName = dir.substring("src/".length()).replace('/', '.');
+                return BenchmarkFixtures.javaSource(packageName, name, SyntheticRepository.this.methodsPerClass, revision);
+            }
+
+            StringBuilder content = new StringBuilder();
+            for (int line = 0; line < 10; line++) {
+                content.append(name).append(" line ").append(line);
+                if (line == revision % 10) {
+                    content.append(" revision ").append(revision);
+                }
+                content.append('\n');
+            }
+
+            return content.toString();
+        }
+    }
+}
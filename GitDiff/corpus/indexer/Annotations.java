@@ -0,0 +1,127 @@
+package edu.ncsu.csc.corpus;
+
+import java.beans.BeanProperty;
+import java.util.List;
+
+/**
+ * Methods carrying annotations written over one or more lines
+ */
+public class Annotations
+{
+
+    /**
+     * A marker annotation
+     *
+     * @return The result
+     */
+    @Override
+    public String toString()
+    {
+        return "Annotations";
+    }
+
+    /**
+     * An array-valued annotation spread over several lines
+     */
+    @SuppressWarnings({
+        "unchecked",
+        "rawtypes"
+    })
+    public void arrayValue(List list)
+    {
+        list.add("value");
+    }
+
+    @BeanProperty(bound = false, expert = true,
+            description = "The UI class id")
+    public String getUIClassID()
+    {
+        return "AnnotationsUI";
+    }
+
+    @Deprecated @SuppressWarnings("deprecation") public void sameLine() { }
+
+    private String uiClassId = "AnnotationsUI";
+
+    /**
+     * A string value broken across lines right after a field initializer
+     *
+     * @return The UI class id
+     */
+    @BeanProperty(expert = true, description
+            = "The UI class id, as set by the field")
+    public String getFieldUIClassID()
+    {
+        return this.uiClassId;
+    }
+
+    @BeanProperty(description =
+            "Broken across lines again, once a method body has been passed")
+    public void setFieldUIClassID(String uiClassId)
+    {
+        this.uiClassId = uiClassId;
+    }
+
+    @BeanProperty(
+            bound = true,
+            preferred = true,
+            visualUpdate = true,
+            enumerationValues = {
+                    "Annotations.FIRST",
+                    "Annotations.SECOND" },
+            description = "How the value is committed")
+    public void setBehavior(int behavior)
+    {
+        if (behavior < 0) {
+            throw new IllegalArgumentException("negative");
+        }
+    }
+
+    @Outer(inner = @Inner(first = 1, second = 2), other = { @Inner(first = 3, second = 4),
+            @Inner(first = 5, second = 6) })
+    void nestedAnnotations()
+    {
+    }
+
+    @Outer()
+    void emptyParentheses()
+    {
+    }
+
+    void parameterAnnotations(@Deprecated int first, @Inner(first = 1,
+            second = 2) final String second, @SuppressWarnings("unused") Object... rest)
+    {
+        return;
+    }
+
+    @java.lang.SuppressWarnings(value = "unchecked")
+    <T extends Comparable<T>> T qualifiedAnnotation(@Inner(first = 1, second = 2) T value)
+    {
+        return value;
+    }
+
+    /**
+     * An annotation whose values hold parentheses, braces and commas
+     */
+    @Outer(inner = @Inner(first = (1 + 2), second = 3), name = "a, b, (c)", other = {})
+    int trickyValues()
+    {
+        return 0;
+    }
+
+    @interface Outer
+    {
+        Inner inner() default @Inner(first = 0, second = 0);
+
+        Inner[] other() default {};
+
+        String name() default "";
+    }
+
+    @interface Inner
+    {
+        int first();
+
+        int second();
+    }
+}
@@ -0,0 +1,85 @@
+package edu.ncsu.csc.corpus;
+
+/* A block comment before the class { with a brace */
+// A line comment with a brace }
+public class CommentsAndLiterals
+{
+
+    /** A string holding braces and comment markers */
+    private static final String TRICKY = "{ } /* not a comment */ // nor this \" }";
+
+    /** A character literal holding a brace */
+    private static final char BRACE = '}';
+
+    /*
+     * A block comment which is not Javadoc, describing braces { and }.
+     */
+    public String braces()
+    {
+        // A closing brace in a comment: }
+        String open = "{";
+        char close = '}';
+        /* Another: { */
+        return open + close + '\'' + "\\" + TRICKY + BRACE;
+    }
+
+    /**
+     * Javadoc with a description over several lines,
+     *
+     * blank lines within it, and a {@code {brace}} in a tag.
+     *
+     *
+     * @param value
+     *            The value, described
+     *            over several lines
+     * @return The result
+     * @throws IllegalStateException
+     *             if something { goes } wrong
+     */
+    public int documented(int value) throws IllegalStateException
+    {
+        return value * 2;
+    }
+
+    /**
+     * @return Only a tag
+     */
+    public int onlyTag()
+    {
+        return 0x1F + 017 + 1_000 + (int) 1.5e3 + (int) 2L;
+    }
+
+    /**
+     * Only a description
+     */
+    public void onlyDescription()
+    {
+        String unicode = "{";
+        String empty = "";
+    }
+
+    /** A single line Javadoc */
+    public void singleLine() { System.out.println("}"); }
+
+    /**
+     * A method whose body is empty
+     */
+    public void empty()
+    {
+    }
+
+    public abstract static class Base
+    {
+        /**
+         * An abstract method, which has no body
+         *
+         * @return The value
+         */
+        public abstract int value();
+    }
+
+    public void trailing() {
+        int x = 1; // }
+        /* } */ x++;
+    }
+}
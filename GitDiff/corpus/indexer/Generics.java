@@ -0,0 +1,58 @@
+package edu.ncsu.csc.corpus;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Methods with generic, array and variable arity signatures
+ */
+public abstract class Generics<K extends Comparable<K>, V>
+{
+
+    /** A field whose initializer calls a method */
+    private final Map<K, List<V>> index = create();
+
+    protected abstract Map<K, List<V>> create();
+
+    public <T> T identity(T value)
+    {
+        return value;
+    }
+
+    public static <A, B extends List<? super A>>
+            B fill(B target, A... values)
+    {
+        for (A value : values) {
+            target.add(value);
+        }
+        return target;
+    }
+
+    public int[] arrays(int[][] grid, String names[], Map<String, int[]> lookup)[]
+    {
+        return new int[0][];
+    }
+
+    public final synchronized void modifiers(final java.util.Map.Entry<K, V> entry) throws IOException, IllegalStateException
+    {
+        if (entry == null) {
+            throw new IOException("missing");
+        }
+    }
+
+    public Map<K, List<V>>
+            multiLineSignature(
+                    K key,
+                    V value)
+    {
+        return this.index;
+    }
+
+    native void nativeMethod(long handle);
+
+    List<? extends Map<String, ? super Integer>> wildcards(Class<?> type)
+    {
+        return null;
+    }
+}
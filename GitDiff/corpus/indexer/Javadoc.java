@@ -0,0 +1,93 @@
+package edu.ncsu.csc.corpus;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Javadoc comments which are not claimed by the declaration following them
+ */
+public class Javadoc
+{
+
+    /** The table filled in by the static initializer */
+    private static final Map<String, Integer> TABLE = new HashMap<String, Integer>();
+
+    /**
+     * Fills in the table. The comment is claimed by the method after the
+     * initializer instead.
+     */
+    static {
+        /** Not a comment of any declaration */
+        TABLE.put("first", 1);
+        TABLE.put("second", 2);
+    }
+
+    public static int lookup(String key)
+    {
+        Integer value = TABLE.get(key);
+        return (value != null) ? value : -1;
+    }
+
+    /**
+     * Counts the instances. This comment is claimed by the method after the
+     * initializer too.
+     */
+    {
+        this.instance = TABLE.size();
+    }
+
+    private final int instance;
+
+    /**
+     * The instance number
+     *
+     * @return The instance number
+     */
+    public int getInstance()
+    {
+        return this.instance;
+    }
+
+    /**
+     * A method which has been commented out, leaving its comment behind
+     *
+     * @param key
+     *            The key
+     * @return The old value
+     */
+    // public Integer remove(String key) {
+    //     return TABLE.remove(key);
+    // }
+
+    /**
+     * Replaces a value in the table. The tags of the comment above are kept
+     * as well.
+     *
+     * @param key
+     *            The key
+     * @param value
+     *            The new value
+     */
+    public static void replace(String key, int value)
+    {
+        TABLE.put(key, value);
+    }
+
+    /** */
+    public void emptyComment()
+    {
+    }
+
+    /**
+     */
+    public void emptyCommentOverTwoLines()
+    {
+    }
+
+    /** First comment, with a tag to carry over
+     * @see #lookup(String) */
+    /** Second comment */
+    public void twoComments()
+    {
+    }
+}
@@ -0,0 +1,139 @@
+package edu.ncsu.csc.corpus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Methods interleaved with nested, local and anonymous classes
+ */
+public class NestedTypes implements Iterable<String>
+{
+
+    /** Values held by the class */
+    private final List<String> values = new ArrayList<String>();
+
+    /** Compares values by length, declared with an anonymous class */
+    private final Comparator<String> byLength = new Comparator<String>() {
+
+        @Override
+        public int compare(String first, String second)
+        {
+            return first.length() - second.length();
+        }
+    };
+
+    static {
+        System.setProperty("nested", "true");
+    }
+
+    {
+        this.values.add("initial");
+    }
+
+    /**
+     * Constructs a new instance, which is not indexed
+     */
+    public NestedTypes()
+    {
+        super();
+    }
+
+    @Override
+    public Iterator<String> iterator()
+    {
+        return new Iterator<String>() {
+
+            private int index = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return this.index < NestedTypes.this.values.size();
+            }
+
+            @Override
+            public String next()
+            {
+                return NestedTypes.this.values.get(this.index++);
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * A static nested class, whose methods belong to it rather than the outer class
+     */
+    static class Helper
+    {
+        int help()
+        {
+            return 1;
+        }
+    }
+
+    /**
+     * Sorts the values using a local class
+     *
+     * @param reverse
+     *            Whether to sort in reverse
+     */
+    public void sort(final boolean reverse)
+    {
+        class Reverser implements Comparator<String>
+        {
+            @Override
+            public int compare(String first, String second)
+            {
+                return reverse ? second.compareTo(first) : first.compareTo(second);
+            }
+        }
+
+        java.util.Collections.sort(this.values, new Reverser());
+    }
+
+    interface Callback
+    {
+        void call(String value);
+    }
+
+    enum Kind
+    {
+        FIRST {
+            @Override
+            int weight()
+            {
+                return 1;
+            }
+        },
+        SECOND(2);
+
+        private final int defaultWeight;
+
+        Kind()
+        {
+            this(0);
+        }
+
+        Kind(int defaultWeight)
+        {
+            this.defaultWeight = defaultWeight;
+        }
+
+        int weight()
+        {
+            return this.defaultWeight;
+        }
+    }
+
+    public Comparator<String> getComparator()
+    {
+        return this.byLength;
+    }
+}
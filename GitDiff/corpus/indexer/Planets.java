@@ -0,0 +1,44 @@
+package edu.ncsu.csc.corpus;
+
+/**
+ * An enum whose constants have arguments and bodies
+ */
+public enum Planets
+{
+    MERCURY(3.303e+23, 2.4397e6),
+    EARTH(5.976e+24, 6.37814e6) {
+        @Override
+        public String describe()
+        {
+            return "home";
+        }
+    },
+    JUPITER(1.9e+27, 7.1492e7);
+
+    /** The mass in kilograms */
+    private final double mass;
+
+    /** The radius in metres */
+    private final double radius;
+
+    Planets(double mass, double radius)
+    {
+        this.mass = mass;
+        this.radius = radius;
+    }
+
+    /**
+     * Returns the surface gravity of the planet
+     *
+     * @return The surface gravity
+     */
+    public double surfaceGravity()
+    {
+        return 6.67300E-11 * this.mass / (this.radius * this.radius);
+    }
+
+    public String describe()
+    {
+        return name().toLowerCase();
+    }
+}
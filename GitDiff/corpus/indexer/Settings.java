@@ -0,0 +1,30 @@
+package edu.ncsu.csc.corpus;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation type, whose elements are indexed as methods
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE,
+        ElementType.METHOD })
+public @interface Settings
+{
+
+    /**
+     * The name of the setting
+     *
+     * @return The name
+     */
+    String name();
+
+    int priority() default 0;
+
+    String[] aliases() default { "first", "second" };
+
+    @Deprecated
+    Class<?> type() default Object.class;
+}
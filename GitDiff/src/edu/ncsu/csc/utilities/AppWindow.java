@@ -11,6 +11,8 @@ import java.awt.event.ActionListener;
 import java.io.File;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
@@ -20,10 +22,13 @@ import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTextPane;
 import javax.swing.ListSelectionModel;
 import javax.swing.ScrollPaneConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.border.LineBorder;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
@@ -69,6 +74,18 @@ public class AppWindow
     /** UI element for displaying the message for the selected "base" commit */
     JTextPane                     baseMsgTextPane;
 
+    /** UI element for opening a repository, disabled while a diff runs */
+    JMenuItem                     openRepoMenuItem;
+
+    /** UI element for starting a diff, or cancelling the diff in progress */
+    JButton                       diffButton;
+
+    /** UI element for displaying the progress of the diff in progress */
+    JProgressBar                  progressBar;
+
+    /** The background worker performing the diff in progress, if any */
+    DiffWorker                    diffWorker    = null;
+
     /**
      * Creates the application instance.
      */
@@ -95,9 +112,9 @@ public class AppWindow
         // Open menu
         JMenu openRepoMenu = new JMenu("Open");
         openRepoMenu.setFont(new Font("Helvetica", Font.PLAIN, 14));
-        JMenuItem openRepoMenuItem = new JMenuItem("Open Local Repository");
-        openRepoMenuItem.setFont(new Font("Helvetica", Font.PLAIN, 14));
-        openRepoMenuItem.addActionListener(new ActionListener()
+        this.openRepoMenuItem = new JMenuItem("Open Local Repository");
+        this.openRepoMenuItem.setFont(new Font("Helvetica", Font.PLAIN, 14));
+        this.openRepoMenuItem.addActionListener(new ActionListener()
         {
 
             @Override
@@ -109,7 +126,7 @@ public class AppWindow
             }
         });
 
-        openRepoMenu.add(openRepoMenuItem);
+        openRepoMenu.add(this.openRepoMenuItem);
         menuBar.add(openRepoMenu);
         getFrame().getContentPane().add(menuBar, BorderLayout.NORTH);
 
@@ -210,21 +227,44 @@ public class AppWindow
         windowPanel.add(txtpnNewCommit, "cell 3 0 2 1,alignx center,growy");
 
         // Diff button
-        JButton diffButton = new JButton("Perform Diff");
-        diffButton.addActionListener(new ActionListener()
+        this.diffButton = new JButton("Perform Diff");
+        this.diffButton.addActionListener(new ActionListener()
         {
 
             @Override
             public void actionPerformed(ActionEvent arg0)
             {
 
+                // The button doubles as the cancel button while a diff runs. It
+                // stays disabled until the diff has actually stopped, so that a
+                // second diff never runs on the controller alongside the first
+                if (AppWindow.this.diffWorker != null) {
+                    AppWindow.this.diffWorker.cancel(false);
+                    AppWindow.this.diffButton.setEnabled(false);
+                    AppWindow.this.diffButton.setText("Cancelling...");
+                    return;
+                }
+
                 String baseObjId = AppWindow.this.baseListModel.keySet().toArray()[AppWindow.this.baseList.getSelectedIndex()].toString();
                 String newObjId = AppWindow.this.baseListModel.keySet().toArray()[AppWindow.this.newList.getSelectedIndex()].toString();
 
-                AppWindow.this.controller.performDiff(baseObjId, newObjId);
+                // The worker reads the controller's repository throughout, so it
+                // may not be replaced, nor the range changed, until the diff returns
+                AppWindow.this.diffWorker = new DiffWorker(baseObjId, newObjId);
+                setRepositoryControlsEnabled(false);
+                AppWindow.this.diffButton.setText("Cancel");
+                AppWindow.this.progressBar.setValue(0);
+                AppWindow.this.progressBar.setString("Walking commits...");
+                AppWindow.this.diffWorker.execute();
             }
         });
-        windowPanel.add(diffButton, "cell 0 4 5 1,alignx center");
+        windowPanel.add(this.diffButton, "cell 0 4 2 1,alignx center");
+
+        // Progress bar
+        this.progressBar = new JProgressBar(0, 100);
+        this.progressBar.setStringPainted(true);
+        this.progressBar.setString("");
+        windowPanel.add(this.progressBar, "cell 3 4 2 1,growx");
     }
 
     /**
@@ -335,6 +375,20 @@ public class AppWindow
         this.baseList.setListData(outputKeys);
     }
 
+    /**
+     * Enables or disables the controls which change the repository or the
+     * selected range
+     * 
+     * @param enabled
+     *            Whether the controls should be enabled
+     */
+    void setRepositoryControlsEnabled(boolean enabled)
+    {
+        this.openRepoMenuItem.setEnabled(enabled);
+        this.baseList.setEnabled(enabled);
+        this.newList.setEnabled(enabled);
+    }
+
     /**
      * Callback for when the "File -> Open" menu is selected.
      * 
@@ -343,6 +397,9 @@ public class AppWindow
      */
     void openRepositoryDirectorySelected() throws HeadlessException
     {
+        if (this.diffWorker != null) {
+            return;
+        }
 
         // Make the file chooser directories-only and
         // hide hidden files for clarity. If the user
@@ -415,4 +472,135 @@ public class AppWindow
     {
         this.frame = frame;
     }
+
+    /**
+     * Performs a diff on a background thread so that the window stays
+     * responsive, publishing the diff's progress to the progress bar.
+     * Cancelling the worker cancels the diff at its next check. The window
+     * is only told the worker has finished once the diff has returned, as
+     * {@link #done()} runs as soon as the worker is cancelled.
+     * 
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    class DiffWorker extends SwingWorker<Void, String> implements DiffProgressListener
+    {
+
+        /** The base commit hash */
+        private final String        baseObjId;
+
+        /** The new commit hash */
+        private final String        newObjId;
+
+        /** The number of Java files parsed so far */
+        private final AtomicInteger filesParsed = new AtomicInteger();
+
+        /** The number of commit pairs diffed so far */
+        private volatile int        pairsDone   = 0;
+
+        /** The number of commit pairs in the range */
+        private volatile int        pairCount   = 0;
+
+        /**
+         * Constructs a new worker diffing the given commits
+         * 
+         * @param baseObjId
+         *            The base commit hash
+         * @param newObjId
+         *            The new commit hash
+         */
+        DiffWorker(String baseObjId, String newObjId)
+        {
+            this.baseObjId = baseObjId;
+            this.newObjId = newObjId;
+        }
+
+        @Override
+        protected Void doInBackground()
+        {
+            try {
+
+                DiffSession diffSession = AppWindow.this.controller.buildDiffSession(this.baseObjId, this.newObjId, this);
+
+                if (diffSession != null && !isCancelled()) {
+                    AppWindow.this.controller.openReport(diffSession);
+                }
+
+            } finally {
+                SwingUtilities.invokeLater(new Runnable()
+                {
+
+                    @Override
+                    public void run()
+                    {
+                        finished();
+                    }
+                });
+            }
+
+            return null;
+        }
+
+        @Override
+        public void diffStarted(int pairCount)
+        {
+            this.pairCount = pairCount;
+            publishProgress();
+        }
+
+        @Override
+        public void pairDiffed(int pairsDone, int pairCount)
+        {
+            this.pairsDone = pairsDone;
+            publishProgress();
+        }
+
+        @Override
+        public void fileParsed()
+        {
+            this.filesParsed.incrementAndGet();
+            publishProgress();
+        }
+
+        /**
+         * Publishes the current progress, to be shown on the event dispatch thread
+         */
+        private void publishProgress()
+        {
+            int done = this.pairsDone;
+            int total = this.pairCount;
+
+            setProgress((total > 0) ? (100 * done / total) : 0);
+            publish(done + " / " + total + " pairs, " + this.filesParsed.get() + " files parsed");
+        }
+
+        @Override
+        protected void process(List<String> chunks)
+        {
+            if (isCancelled()) {
+                return;
+            }
+
+            AppWindow.this.progressBar.setValue(getProgress());
+            AppWindow.this.progressBar.setString(chunks.get(chunks.size() - 1));
+        }
+
+        /**
+         * Resets the window once the diff has returned, on the event dispatch thread
+         */
+        private void finished()
+        {
+            AppWindow.this.diffWorker = null;
+            setRepositoryControlsEnabled(true);
+            AppWindow.this.diffButton.setText("Perform Diff");
+            AppWindow.this.diffButton.setEnabled(true);
+
+            if (isCancelled()) {
+                AppWindow.this.progressBar.setString("Cancelled");
+            } else {
+                AppWindow.this.progressBar.setValue(100);
+                AppWindow.this.progressBar.setString("Done - " + this.pairsDone + " pairs, " + this.filesParsed.get() + " files parsed");
+            }
+        }
+    }
 }
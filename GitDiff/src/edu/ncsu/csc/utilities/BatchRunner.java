@@ -0,0 +1,756 @@
+package edu.ncsu.csc.utilities;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates the reports for many repositories within a single JVM.
+ *
+ * Jobs are read from a manifest and run on a fixed pool of workers, each
+ * job with a controller of its own. Every controller shares the runner's
+ * cache of parsed classes. Because the cache is keyed by blob id, a file
+ * with the same contents in several repositories (common starter code, for
+ * instance) is read and parsed only once for the whole batch. Repositories
+ * are acquired from a shared {@link RepositoryPool}, so jobs against the
+ * same repository share a single open copy of it and its commit index.
+ *
+ * The manifest holds one job per line: the repository path, the base
+ * revision, the new revision and, optionally, the file the report is
+ * written to. Fields are separated by tabs if the line contains any, and
+ * by whitespace otherwise. Blank lines and lines starting with '#' are
+ * ignored. Without an output file, the report is written to the output
+ * directory, named after the repository, a hash of its canonical path (so
+ * that same-named clones do not collide) and the two revisions. If an
+ * archive directory is set, each session is also written there as a
+ * {@link SessionArchive} of the same name, ready to be merged with others.
+ * A job whose report or archive would overwrite that of an earlier job in
+ * the batch fails without being run.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class BatchRunner
+{
+
+    /** The character set manifests are read in */
+    private static final Charset UTF_8            = Charset.forName("UTF-8");
+
+    /** The number of jobs run concurrently */
+    private final int            workers;
+
+    /** The number of commit pairs diffed concurrently within each job */
+    private int                  parallelism      = 1;
+
+    /** Cache of parsed classes shared by every job */
+    private ParsedClassCache     classCache       = new ParsedClassCache();
+
+    /** Pool of open repositories shared by every job */
+    private RepositoryPool       repositoryPool   = RepositoryPool.getDefault();
+
+    /** Locates the methods within each Java file, shared by every job */
+    private JavaSourceIndexer    sourceIndexer    = new QDoxSourceIndexer();
+
+    /** The registry of file types reported upon, shared by every job */
+    private FileTypeRegistry     fileTypes        = FileTypeRegistry.createDefault();
+
+    /** Whether renamed and copied files are paired with their sources */
+    private boolean              detectRenames    = false;
+
+    /** The most files considered for inexact rename detection, or -1 for the default */
+    private int                  renameLimit      = -1;
+
+    /** The similarity at which a file is considered renamed, or -1 for the default */
+    private int                  renameScore      = -1;
+
+    /** Whether only the base and new commits of each job are diffed */
+    private boolean              endpointsOnly    = false;
+
+    /** Writes each job's report */
+    private ReportRenderer       reportRenderer   = new TextReportRenderer();
+
+    /** The directory reports without an output file of their own are written to */
+    private File                 outputDirectory  = new File(".");
+
+    /** The directory session archives are written to, or null to write none */
+    private File                 archiveDirectory = null;
+
+    /**
+     * Constructs a new runner with the given number of workers
+     *
+     * @param workers
+     *            The number of jobs run concurrently
+     */
+    public BatchRunner(int workers)
+    {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be at least 1");
+        }
+
+        this.workers = workers;
+    }
+
+    /**
+     * Reads the jobs listed in the given manifest
+     *
+     * @param manifest
+     *            The manifest file
+     *
+     * @return The jobs, in the order listed
+     *
+     * @throws IOException
+     *             if the manifest could not be read or is malformed
+     */
+    public static List<Job> readManifest(File manifest) throws IOException
+    {
+        ArrayList<Job> retVal = new ArrayList<Job>();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifest), UTF_8));
+        try {
+
+            String line;
+            int lineNumber = 0;
+
+            while ((line = reader.readLine()) != null) {
+
+                lineNumber++;
+                line = line.trim();
+
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] fields = line.split((line.indexOf('\t') != -1) ? "\\s*\\t\\s*" : "\\s+");
+                if (fields.length < 3 || fields.length > 4) {
+                    throw new IOException(manifest.getPath() + ":" + lineNumber + ": expected <repository> <base> <new> [output]");
+                }
+
+                retVal.add(new Job(fields[0], fields[1], fields[2], (fields.length == 4) ? fields[3] : null));
+            }
+
+        } finally {
+            reader.close();
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Runs the given jobs, writing the report of each as it completes
+     *
+     * @param jobs
+     *            The jobs to run
+     *
+     * @return The number of jobs which failed
+     */
+    public int run(List<Job> jobs)
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(this.workers, Math.max(jobs.size(), 1)));
+        List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+
+        long start = System.currentTimeMillis();
+
+        // The files each job writes, claimed in manifest order
+        HashMap<File, Job> claims = new HashMap<File, Job>();
+
+        try {
+
+            for (Job job : jobs) {
+                Job owner = claimOutputFiles(job, claims);
+                if (owner != null) {
+                    System.out.println("FAILED " + job + ": Its output would overwrite that of " + owner);
+                    results.add(null);
+                } else {
+                    results.add(pool.submit(new JobTask(job)));
+                }
+            }
+
+        } finally {
+            pool.shutdown();
+        }
+
+        int failures = 0;
+
+        for (int idx = 0; idx < jobs.size(); idx++) {
+            try {
+                if (results.get(idx) == null || !results.get(idx).get().booleanValue()) {
+                    failures++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failures += jobs.size() - idx;
+                break;
+            } catch (ExecutionException e) {
+                System.out.println("FAILED " + jobs.get(idx) + ": " + e.getCause());
+                failures++;
+            }
+        }
+
+        System.out.println(String.format("Batch complete: %d of %d jobs succeeded in %d ms (%d classes parsed, %d reused; %d repositories opened, %d reused)",
+                jobs.size() - failures, jobs.size(), System.currentTimeMillis() - start, this.classCache.getMissCount(), this.classCache.getHitCount(),
+                this.repositoryPool.getMissCount(), this.repositoryPool.getHitCount()));
+
+        return failures;
+    }
+
+    /**
+     * Runs a single job on the calling thread
+     *
+     * @param job
+     *            The job to run
+     *
+     * @return Whether the job's report was written
+     */
+    boolean runJob(Job job)
+    {
+        long start = System.currentTimeMillis();
+
+        GitDiffController controller = new GitDiffController();
+        controller.setSourceIndexer(this.sourceIndexer);
+        controller.setFileTypes(this.fileTypes);
+        controller.setDetectRenames(this.detectRenames);
+        controller.setRenameLimit(this.renameLimit);
+        controller.setRenameScore(this.renameScore);
+        controller.setEndpointsOnly(this.endpointsOnly);
+        controller.setClassCache(this.classCache);
+        controller.setRepositoryPool(this.repositoryPool);
+        controller.setParallelism(this.parallelism);
+
+        controller.setRepositoryFilePath(job.getRepository());
+        if (!controller.isRepositoryLoaded()) {
+            System.out.println("FAILED " + job);
+            return false;
+        }
+
+        try {
+
+            DiffSession diffSession = controller.buildDiffSession(job.getBase(), job.getNew());
+            if (diffSession == null) {
+                System.out.println("FAILED " + job);
+                return false;
+            }
+
+            File outputFile = getOutputFile(job);
+            OutputStream outputStream = new FileOutputStream(outputFile);
+            try {
+                CommandLine.writeReport(diffSession, this.reportRenderer, outputStream);
+            } finally {
+                outputStream.close();
+            }
+
+            if (this.archiveDirectory != null) {
+                outputStream = new FileOutputStream(getArchiveFile(job));
+                try {
+                    SessionArchive.write(diffSession, outputStream);
+                } finally {
+                    outputStream.close();
+                }
+            }
+
+            System.out.println("OK " + job + " -> " + outputFile.getPath() + " (" + (System.currentTimeMillis() - start) + " ms)");
+            return true;
+
+        } catch (IOException e) {
+            System.out.println("FAILED " + job + ": Failed to write output file: " + e.getMessage());
+            return false;
+        } finally {
+            controller.closeRepository();
+        }
+    }
+
+    /**
+     * Determines the file the given job's report is written to
+     *
+     * @param job
+     *            The job
+     *
+     * @return The output file
+     */
+    File getOutputFile(Job job)
+    {
+        if (job.getOutput() != null) {
+            return new File(job.getOutput());
+        }
+
+        return new File(this.outputDirectory, getJobName(job) + this.reportRenderer.getFileExtension());
+    }
+
+    /**
+     * Determines the file the given job's session is archived to
+     *
+     * @param job
+     *            The job
+     *
+     * @return The archive file, or null if sessions are not archived
+     */
+    File getArchiveFile(Job job)
+    {
+        if (this.archiveDirectory == null) {
+            return null;
+        }
+
+        return new File(this.archiveDirectory, getJobName(job) + SessionArchive.FILE_EXTENSION);
+    }
+
+    /**
+     * Claims the files the given job writes, unless an earlier job has
+     * already claimed any of them
+     *
+     * @param job
+     *            The job
+     * @param claims
+     *            The job claiming each file so far
+     *
+     * @return The earlier job writing one of the same files, or null if the
+     *         files were claimed for the given job
+     */
+    private Job claimOutputFiles(Job job, HashMap<File, Job> claims)
+    {
+        File[] files = { canonicalFile(getOutputFile(job)), canonicalFile(getArchiveFile(job)) };
+
+        for (File file : files) {
+            if (file != null && claims.containsKey(file)) {
+                return claims.get(file);
+            }
+        }
+
+        for (File file : files) {
+            if (file != null) {
+                claims.put(file, job);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Names the given job after its repository and revisions, for naming the
+     * files it writes. The repository is named by both its directory and a
+     * hash of its canonical path, as many repositories share a directory name.
+     *
+     * @param job
+     *            The job
+     *
+     * @return The name, safe for use within a file name
+     */
+    private static String getJobName(Job job)
+    {
+        File repository = canonicalFile(new File(job.getRepository()));
+        String pathHash = String.format("%08x", repository.getPath().hashCode());
+
+        String name = repository.getName() + "-" + pathHash + "-" + job.getBase() + "-" + job.getNew();
+        return name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * Resolves the given file to its canonical form, or to its absolute form
+     * if it cannot be resolved
+     *
+     * @param file
+     *            The file, or null
+     *
+     * @return The resolved file, or null if none was given
+     */
+    private static File canonicalFile(File file)
+    {
+        if (file == null) {
+            return null;
+        }
+
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            return file.getAbsoluteFile();
+        }
+    }
+
+    /**
+     * Returns the number of jobs run concurrently
+     *
+     * @return the number of workers
+     */
+    public int getWorkers()
+    {
+        return this.workers;
+    }
+
+    /**
+     * Returns the number of commit pairs diffed concurrently within each job
+     *
+     * @return the parallelism
+     */
+    public int getParallelism()
+    {
+        return this.parallelism;
+    }
+
+    /**
+     * Sets the number of commit pairs diffed concurrently within each job
+     *
+     * @param parallelism
+     *            the parallelism to use, at least 1
+     */
+    public void setParallelism(int parallelism)
+    {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the cache of parsed classes shared by every job
+     *
+     * @return the class cache
+     */
+    public ParsedClassCache getClassCache()
+    {
+        return this.classCache;
+    }
+
+    /**
+     * Sets the cache of parsed classes shared by every job
+     *
+     * @param classCache
+     *            the class cache to use
+     */
+    public void setClassCache(ParsedClassCache classCache)
+    {
+        this.classCache = classCache;
+    }
+
+    /**
+     * Returns the pool of open repositories shared by every job
+     *
+     * @return the repository pool
+     */
+    public RepositoryPool getRepositoryPool()
+    {
+        return this.repositoryPool;
+    }
+
+    /**
+     * Sets the pool of open repositories shared by every job
+     *
+     * @param repositoryPool
+     *            the repository pool to use
+     */
+    public void setRepositoryPool(RepositoryPool repositoryPool)
+    {
+        this.repositoryPool = repositoryPool;
+    }
+
+    /**
+     * Returns the indexer locating the methods within each Java file
+     *
+     * @return the source indexer
+     */
+    public JavaSourceIndexer getSourceIndexer()
+    {
+        return this.sourceIndexer;
+    }
+
+    /**
+     * Sets the indexer locating the methods within each Java file. The class
+     * cache is cleared, as the classes it holds were indexed by the previous one.
+     *
+     * @param sourceIndexer
+     *            the source indexer to use
+     */
+    public void setSourceIndexer(JavaSourceIndexer sourceIndexer)
+    {
+        this.sourceIndexer = sourceIndexer;
+        this.classCache.clear();
+    }
+
+    /**
+     * Returns the registry of file types reported upon
+     *
+     * @return the file type registry
+     */
+    public FileTypeRegistry getFileTypes()
+    {
+        return this.fileTypes;
+    }
+
+    /**
+     * Sets the registry of file types reported upon
+     *
+     * @param fileTypes
+     *            the file type registry to use
+     */
+    public void setFileTypes(FileTypeRegistry fileTypes)
+    {
+        this.fileTypes = fileTypes;
+    }
+
+    /**
+     * Determines whether renamed and copied files are paired with their sources
+     *
+     * @return whether renames are detected
+     */
+    public boolean isDetectRenames()
+    {
+        return this.detectRenames;
+    }
+
+    /**
+     * Sets whether renamed and copied files are paired with their sources
+     *
+     * @param detectRenames
+     *            whether renames should be detected
+     */
+    public void setDetectRenames(boolean detectRenames)
+    {
+        this.detectRenames = detectRenames;
+    }
+
+    /**
+     * Returns the most files considered for inexact rename detection
+     *
+     * @return the rename limit, 0 for no limit, or -1 for the repository's limit
+     */
+    public int getRenameLimit()
+    {
+        return this.renameLimit;
+    }
+
+    /**
+     * Sets the most files considered for inexact rename detection
+     *
+     * @param renameLimit
+     *            the rename limit, 0 for no limit, or -1 for the repository's limit
+     */
+    public void setRenameLimit(int renameLimit)
+    {
+        this.renameLimit = renameLimit;
+    }
+
+    /**
+     * Returns the similarity at which a file is considered renamed
+     *
+     * @return the rename score as a percentage, or -1 for the default
+     */
+    public int getRenameScore()
+    {
+        return this.renameScore;
+    }
+
+    /**
+     * Sets the similarity at which a file is considered renamed
+     *
+     * @param renameScore
+     *            the rename score as a percentage, or -1 for the default
+     */
+    public void setRenameScore(int renameScore)
+    {
+        this.renameScore = renameScore;
+    }
+
+    /**
+     * Returns whether only the base and new commits of each job are diffed
+     *
+     * @return whether only the endpoints of each range are diffed
+     */
+    public boolean isEndpointsOnly()
+    {
+        return this.endpointsOnly;
+    }
+
+    /**
+     * Sets whether only the base and new commits of each job are diffed
+     *
+     * @param endpointsOnly
+     *            whether only the endpoints of each range should be diffed
+     */
+    public void setEndpointsOnly(boolean endpointsOnly)
+    {
+        this.endpointsOnly = endpointsOnly;
+    }
+
+    /**
+     * Returns the renderer each job's report is written with
+     *
+     * @return the report renderer
+     */
+    public ReportRenderer getReportRenderer()
+    {
+        return this.reportRenderer;
+    }
+
+    /**
+     * Sets the renderer each job's report is written with
+     *
+     * @param reportRenderer
+     *            the report renderer to use
+     */
+    public void setReportRenderer(ReportRenderer reportRenderer)
+    {
+        this.reportRenderer = reportRenderer;
+    }
+
+    /**
+     * Returns the directory reports without an output file of their own are written to
+     *
+     * @return the output directory
+     */
+    public File getOutputDirectory()
+    {
+        return this.outputDirectory;
+    }
+
+    /**
+     * Sets the directory reports without an output file of their own are written to
+     *
+     * @param outputDirectory
+     *            the output directory to use
+     */
+    public void setOutputDirectory(File outputDirectory)
+    {
+        this.outputDirectory = outputDirectory;
+    }
+
+    /**
+     * Returns the directory session archives are written to
+     *
+     * @return the archive directory, or null if no archives are written
+     */
+    public File getArchiveDirectory()
+    {
+        return this.archiveDirectory;
+    }
+
+    /**
+     * Sets the directory session archives are written to
+     *
+     * @param archiveDirectory
+     *            the archive directory to use, or null to write no archives
+     */
+    public void setArchiveDirectory(File archiveDirectory)
+    {
+        this.archiveDirectory = archiveDirectory;
+    }
+
+    /**
+     * A single job of the batch: the range of a repository to report upon
+     *
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    public static class Job
+    {
+
+        /** The path of the repository */
+        private final String repository;
+
+        /** The base revision */
+        private final String base;
+
+        /** The new revision */
+        private final String newRevision;
+
+        /** The file the report is written to, or null to name it automatically */
+        private final String output;
+
+        /**
+         * Constructs a new job
+         *
+         * @param repository
+         *            The path of the repository
+         * @param base
+         *            The base revision
+         * @param newRevision
+         *            The new revision
+         * @param output
+         *            The file the report is written to, or null to name it automatically
+         */
+        public Job(String repository, String base, String newRevision, String output)
+        {
+            this.repository = repository;
+            this.base = base;
+            this.newRevision = newRevision;
+            this.output = output;
+        }
+
+        /**
+         * @return the path of the repository
+         */
+        public String getRepository()
+        {
+            return this.repository;
+        }
+
+        /**
+         * @return the base revision
+         */
+        public String getBase()
+        {
+            return this.base;
+        }
+
+        /**
+         * @return the new revision
+         */
+        public String getNew()
+        {
+            return this.newRevision;
+        }
+
+        /**
+         * @return the file the report is written to, or null to name it automatically
+         */
+        public String getOutput()
+        {
+            return this.output;
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.repository + " " + this.base + ".." + this.newRevision;
+        }
+    }
+
+    /**
+     * Runs a single job on one of the pool's workers
+     *
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    private class JobTask implements Callable<Boolean>
+    {
+        /** The job to run */
+        private final Job job;
+
+        /**
+         * Constructs a new task for the given job
+         *
+         * @param job
+         *            The job to run
+         */
+        JobTask(Job job)
+        {
+            this.job = job;
+        }
+
+        @Override
+        public Boolean call()
+        {
+            return Boolean.valueOf(runJob(this.job));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package edu.ncsu.csc.utilities;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collection;
+
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.errors.AmbiguousObjectException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Reads file contents straight from the object database by blob id.
+ *
+ * The blob ids carried by each DiffEntry already identify the exact file
+ * contents, so there is no need to parse the commit and walk its tree down
+ * to the file's path. A single reader is held for the lifetime of the
+ * instance and shared by every read, which must all happen on one thread.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class BlobReader
+{
+
+    /** The character set used to decode blobs into Strings */
+    private static final Charset UTF_8  = Charset.forName("UTF-8");
+
+    /** The reader used to access the object database */
+    private final ObjectReader   reader;
+
+    /**
+     * Constructs a new blob reader for the given repository
+     *
+     * @param repository
+     *            The repository housing the blobs
+     */
+    public BlobReader(Repository repository)
+    {
+        this.reader = repository.newObjectReader();
+    }
+
+    /**
+     * Returns the raw contents of the blob with the given id
+     *
+     * @param id
+     *            The object id of the blob
+     *
+     * @return The contents of the blob
+     *
+     * @throws IOException
+     *             if the blob could not be read
+     */
+    public byte[] getBytes(AnyObjectId id) throws IOException
+    {
+        return this.reader.open(id, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the raw contents of the blob with the given, possibly abbreviated, id
+     *
+     * @param id
+     *            The object id of the blob
+     *
+     * @return The contents of the blob
+     *
+     * @throws IOException
+     *             if the blob could not be read, or the abbreviation is ambiguous
+     */
+    public byte[] getBytes(AbbreviatedObjectId id) throws IOException
+    {
+        return getBytes(resolve(id));
+    }
+
+    /**
+     * Returns the contents of the blob with the given id as lines of text
+     *
+     * @param id
+     *            The object id of the blob
+     *
+     * @return The contents of the blob
+     *
+     * @throws IOException
+     *             if the blob could not be read
+     */
+    public RawText getRawText(AnyObjectId id) throws IOException
+    {
+        return new RawText(getBytes(id));
+    }
+
+    /**
+     * Returns the contents of the blob with the given, possibly abbreviated, id
+     * decoded as a UTF-8 String
+     *
+     * @param id
+     *            The object id of the blob
+     *
+     * @return The contents of the blob
+     *
+     * @throws IOException
+     *             if the blob could not be read, or the abbreviation is ambiguous
+     */
+    public String getString(AbbreviatedObjectId id) throws IOException
+    {
+        return decode(getBytes(id));
+    }
+
+    /**
+     * Decodes the given blob contents as a UTF-8 String
+     *
+     * @param content
+     *            The contents of a blob
+     *
+     * @return The decoded contents
+     */
+    public static String decode(byte[] content)
+    {
+        return new String(content, UTF_8);
+    }
+
+    /**
+     * Releases the resources held by the underlying reader
+     */
+    public void release()
+    {
+        this.reader.release();
+    }
+
+    /**
+     * Expands a possibly abbreviated id into the full id of the object it names
+     *
+     * @param id
+     *            The object id to expand
+     *
+     * @return The full object id
+     *
+     * @throws IOException
+     *             if no single object matches the abbreviation
+     */
+    private ObjectId resolve(AbbreviatedObjectId id) throws IOException
+    {
+        if (id.isComplete()) {
+            return id.toObjectId();
+        }
+
+        Collection<ObjectId> matches = this.reader.resolve(id);
+        if (matches.isEmpty()) {
+            throw new MissingObjectException(id, Constants.OBJ_BLOB);
+        } else if (matches.size() > 1) {
+            throw new AmbiguousObjectException(id, matches);
+        }
+
+        return matches.iterator().next();
+    }
+}
@@ -0,0 +1,665 @@
+package edu.ncsu.csc.utilities;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Headless entry point generating a single report from the command line.
+ *
+ * Nothing here touches AWT, so reports can be generated on build agents
+ * without a display. The report is written to standard output unless an
+ * output file is given, in which case it is written there instead, in the
+ * text, JSON or CSV format. While the
+ * diff runs, the controller's console logging is sent to standard error so
+ * that it never ends up mixed into a report written to standard output.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public final class CommandLine
+{
+
+    /** Exit status of a successful run */
+    public static final int      EXIT_OK    = 0;
+
+    /** Exit status of a run which failed to produce its report */
+    public static final int      EXIT_ERROR = 1;
+
+    /** Exit status of a run with invalid arguments */
+    public static final int      EXIT_USAGE = 2;
+
+    /** The character set reports are written in */
+    private static final Charset UTF_8      = Charset.forName("UTF-8");
+
+    /**
+     * Not instantiable
+     */
+    private CommandLine()
+    {
+    }
+
+    /**
+     * Runs the command line interface with the given arguments
+     *
+     * @param args
+     *            Commandline arguments
+     *
+     * @return The exit status of the run
+     */
+    public static int run(String[] args)
+    {
+        String outputPath = null;
+        String manifestPath = null;
+        String outputDirectory = null;
+        String archivePath = null;
+        boolean merge = false;
+        int parallelism = 1;
+        int workers = Runtime.getRuntime().availableProcessors();
+        JavaSourceIndexer indexer = null;
+        FileTypeRegistry fileTypes = null;
+        boolean detectRenames = false;
+        int renameLimit = -1;
+        int renameScore = -1;
+        boolean endpointsOnly = false;
+        boolean watch = false;
+        int servePort = -1;
+        String bindAddress = "127.0.0.1";
+        ReportRenderer renderer = new TextReportRenderer();
+        List<String> positional = new ArrayList<String>();
+
+        for (int idx = 0; idx < args.length; idx++) {
+
+            String arg = args[idx];
+
+            if (arg.equals("-h") || arg.equals("--help")) {
+                printUsage(System.out);
+                return EXIT_OK;
+            } else if (arg.equals("-o") || arg.equals("--output")) {
+                if (++idx == args.length) {
+                    return usageError("Missing value for " + arg);
+                }
+                outputPath = args[idx];
+            } else if (arg.equals("-j") || arg.equals("--parallelism")) {
+                if (++idx == args.length) {
+                    return usageError("Missing value for " + arg);
+                }
+                try {
+                    parallelism = Integer.parseInt(args[idx]);
+                } catch (NumberFormatException e) {
+                    return usageError("Invalid parallelism: " + args[idx]);
+                }
+                if (parallelism < 1) {
+                    return usageError("Parallelism must be at least 1");
+                }
+            } else if (arg.equals("--batch")) {
+                if (++idx == args.length) {
+                    return usageError("Missing value for " + arg);
+                }
+                manifestPath = args[idx];
+            } else if (arg.equals("--archive")) {
+                if (++idx == args.length) {
+                    return usageError("Missing value for " + arg);
+                }
+                archivePath = args[idx];
+            } else if (arg.equals("--merge")) {
+                merge = true;
+            } else if (arg.equals("--output-dir")) {
+                if (++idx == args.length) {
+                    return usageError("Missing value for " + arg);
+                }
+                outputDirectory = args[idx];
+            } else if (arg.equals("--workers")) {
+                if (++idx == args.length) {
+                    return usageError("Missing value for " + arg);
+                }
+                try {
+                    workers = Integer.parseInt(args[idx]);
+                } catch (NumberFormatException e) {
+                    return usageError("Invalid number of workers: " + args[idx]);
+                }
+                if (workers < 1) {
+                    return usageError("Workers must be at least 1");
+                }
+            } else if (arg.equals("--indexer")) {
+                if (++idx == args.length) {
+                    return usageError("Missing value for " + arg);
+                }
+                if (args[idx].equals("qdox")) {
+                    indexer = new QDoxSourceIndexer();
+                } else if (args[idx].equals("scan")) {
+                    indexer = new ScanningSourceIndexer();
+                } else {
+                    return usageError("Unknown indexer: " + args[idx]);
+                }
+            } else if (arg.equals("--file-type")) {
+                if (++idx == args.length) {
+                    return usageError("Missing value for " + arg);
+                }
+                int split = args[idx].indexOf('=');
+                if (split == -1 || split == args[idx].length() - 1) {
+                    return usageError("Expected <extension>=<category> or <extension>=members: " + args[idx]);
+                }
+                if (fileTypes == null) {
+                    fileTypes = FileTypeRegistry.createDefault();
+                }
+                String analysis = args[idx].substring(split + 1);
+                try {
+                    fileTypes.register(args[idx].substring(0, split),
+                            analysis.equals("members") ? FileTypeAnalyzer.members() : FileTypeAnalyzer.listed(analysis));
+                } catch (IllegalArgumentException e) {
+                    return usageError(e.getMessage());
+                }
+            } else if (arg.equals("--renames")) {
+                detectRenames = true;
+            } else if (arg.equals("--rename-limit")) {
+                if (++idx == args.length) {
+                    return usageError("Missing value for " + arg);
+                }
+                try {
+                    renameLimit = Integer.parseInt(args[idx]);
+                } catch (NumberFormatException e) {
+                    return usageError("Invalid rename limit: " + args[idx]);
+                }
+                if (renameLimit < 0) {
+                    return usageError("Rename limit must be at least 0");
+                }
+                detectRenames = true;
+            } else if (arg.equals("--rename-score")) {
+                if (++idx == args.length) {
+                    return usageError("Missing value for " + arg);
+                }
+                try {
+                    renameScore = Integer.parseInt(args[idx]);
+                } catch (NumberFormatException e) {
+                    return usageError("Invalid rename score: " + args[idx]);
+                }
+                if (renameScore < 0 || renameScore > 100) {
+                    return usageError("Rename score must be between 0 and 100");
+                }
+                detectRenames = true;
+            } else if (arg.equals("--endpoints")) {
+                endpointsOnly = true;
+            } else if (arg.equals("--watch")) {
+                watch = true;
+            } else if (arg.equals("--serve")) {
+                if (++idx == args.length) {
+                    return usageError("Missing value for " + arg);
+                }
+                try {
+                    servePort = Integer.parseInt(args[idx]);
+                } catch (NumberFormatException e) {
+                    return usageError("Invalid port: " + args[idx]);
+                }
+                if (servePort < 0 || servePort > 65535) {
+                    return usageError("Port must be between 0 and 65535");
+                }
+            } else if (arg.equals("--bind")) {
+                if (++idx == args.length) {
+                    return usageError("Missing value for " + arg);
+                }
+                bindAddress = args[idx];
+            } else if (arg.equals("--format")) {
+                if (++idx == args.length) {
+                    return usageError("Missing value for " + arg);
+                }
+                renderer = rendererForFormat(args[idx]);
+                if (renderer == null) {
+                    return usageError("Unknown format: " + args[idx]);
+                }
+            } else if (arg.startsWith("-") && arg.length() > 1) {
+                return usageError("Unknown option: " + arg);
+            } else {
+                positional.add(arg);
+            }
+        }
+
+        if (servePort >= 0) {
+            if (manifestPath != null || merge || watch || outputPath != null || positional.size() > 1) {
+                return usageError("The server takes only the directory of the repositories it serves");
+            }
+            return runServer(positional.isEmpty() ? "." : positional.get(0), bindAddress, servePort, workers, parallelism, indexer, fileTypes,
+                    detectRenames, renameLimit, renameScore, endpointsOnly);
+        }
+
+        if (manifestPath != null) {
+            if (!positional.isEmpty() || outputPath != null || merge) {
+                return usageError("A batch takes its repositories and output files from the manifest");
+            }
+            if (watch) {
+                return usageError("A batch cannot be watched");
+            }
+            return runBatch(manifestPath, outputDirectory, archivePath, workers, parallelism, indexer, fileTypes, detectRenames, renameLimit,
+                    renameScore, endpointsOnly, renderer);
+        }
+
+        if (merge) {
+            if (positional.isEmpty()) {
+                return usageError("Expected at least one archive to merge");
+            }
+            if (watch) {
+                return usageError("A merge cannot be watched");
+            }
+            return runMerge(positional, outputPath, archivePath, renderer);
+        }
+
+        if (positional.size() != 3) {
+            return usageError("Expected a repository, a base revision and a new revision");
+        }
+
+        // Keep the controller's logging out of a report written to stdout
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+
+        try {
+
+            GitDiffController controller = new GitDiffController();
+            controller.setRepositoryFilePath(positional.get(0));
+
+            if (!controller.isRepositoryLoaded()) {
+                return EXIT_ERROR;
+            }
+
+            controller.setParallelism(parallelism);
+            if (indexer != null) {
+                controller.setSourceIndexer(indexer);
+            }
+            if (fileTypes != null) {
+                controller.setFileTypes(fileTypes);
+            }
+            controller.setDetectRenames(detectRenames);
+            controller.setRenameLimit(renameLimit);
+            controller.setRenameScore(renameScore);
+            controller.setEndpointsOnly(endpointsOnly);
+
+            if (watch) {
+                return runWatch(controller, positional.get(1), positional.get(2), outputPath, archivePath, renderer, stdout);
+            }
+
+            DiffSession diffSession = controller.buildDiffSession(positional.get(1), positional.get(2));
+            if (diffSession == null) {
+                return EXIT_ERROR;
+            }
+
+            return writeOutputs(diffSession, outputPath, archivePath, renderer, stdout);
+
+        } finally {
+            System.setOut(stdout);
+        }
+    }
+
+    /**
+     * Serves reports over HTTP until the process is terminated
+     *
+     * @param rootDirectory
+     *            The directory holding the repositories served
+     * @param bindAddress
+     *            The address to listen on
+     * @param port
+     *            The port to listen on, or 0 for any free port
+     * @param workers
+     *            The number of requests handled concurrently
+     * @param parallelism
+     *            The number of commit pairs diffed concurrently within each report
+     * @param indexer
+     *            The indexer to use, or null for the default
+     * @param fileTypes
+     *            The registry of file types reported upon, or null for the default
+     * @param detectRenames
+     *            Whether renamed and copied files are paired with their sources
+     * @param renameLimit
+     *            The most files considered for inexact rename detection, or -1 for the default
+     * @param renameScore
+     *            The similarity at which a file is considered renamed, or -1 for the default
+     * @param endpointsOnly
+     *            Whether only the base and new commits of each range are diffed
+     *
+     * @return The exit status of the run
+     */
+    private static int runServer(String rootDirectory, String bindAddress, int port, int workers, int parallelism, JavaSourceIndexer indexer,
+            FileTypeRegistry fileTypes, boolean detectRenames, int renameLimit, int renameScore, boolean endpointsOnly)
+    {
+        try {
+
+            ReportServer server = new ReportServer(new File(rootDirectory));
+            server.setParallelism(parallelism);
+            if (indexer != null) {
+                server.setSourceIndexer(indexer);
+            }
+            if (fileTypes != null) {
+                server.setFileTypes(fileTypes);
+            }
+            server.setDetectRenames(detectRenames);
+            server.setRenameLimit(renameLimit);
+            server.setRenameScore(renameScore);
+            server.setEndpointsOnly(endpointsOnly);
+
+            server.start(new InetSocketAddress(bindAddress, port), workers);
+
+            InetSocketAddress address = server.getAddress();
+            System.out.println("Serving reports of " + server.getRootDirectory().getPath() + " at http://" + address.getHostString() + ":"
+                    + address.getPort() + ReportServer.CONTEXT_PATH);
+
+            server.awaitStop();
+
+        } catch (IOException e) {
+            System.err.println("ERROR: Failed to start server: " + e.getMessage());
+            return EXIT_ERROR;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return EXIT_OK;
+    }
+
+    /**
+     * Writes the report for the given range, then rewrites it each time the
+     * range gains commits, until the process is terminated
+     *
+     * @param controller
+     *            The controller of the repository, which must be loaded
+     * @param baseObjId
+     *            The base revision of the range
+     * @param newRevision
+     *            The new revision of the range, resolved again whenever the refs change
+     * @param outputPath
+     *            The file the report is written to, or null for standard output
+     * @param archivePath
+     *            The file the archive is written to, or null to write none
+     * @param renderer
+     *            The renderer the report is written with
+     * @param stdout
+     *            The standard output stream
+     *
+     * @return The exit status of the run
+     */
+    private static int runWatch(GitDiffController controller, String baseObjId, String newRevision, final String outputPath,
+            final String archivePath, final ReportRenderer renderer, final PrintStream stdout)
+    {
+        DiffWatcher watcher = new DiffWatcher(controller, baseObjId, newRevision, new DiffWatcher.Listener() {
+
+            @Override
+            public void sessionUpdated(DiffSession diffSession)
+            {
+                writeOutputs(diffSession, outputPath, archivePath, renderer, stdout);
+            }
+        });
+
+        try {
+            watcher.run();
+        } catch (IOException e) {
+            System.out.println("Failed to watch repository: " + e.getMessage());
+            return EXIT_ERROR;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return (watcher.getDiffSession() != null) ? EXIT_OK : EXIT_ERROR;
+    }
+
+    /**
+     * Merges the given session archives into a single report
+     *
+     * @param archivePaths
+     *            The paths of the archives, in the order they should be merged
+     * @param outputPath
+     *            The file the report is written to, or null for standard output
+     * @param archivePath
+     *            The file the merged archive is written to, or null to write none
+     * @param renderer
+     *            The renderer the report is written with
+     *
+     * @return The exit status of the run
+     */
+    private static int runMerge(List<String> archivePaths, String outputPath, String archivePath, ReportRenderer renderer)
+    {
+        List<File> archives = new ArrayList<File>();
+        for (String path : archivePaths) {
+            archives.add(new File(path));
+        }
+
+        DiffSession diffSession;
+        try {
+            diffSession = SessionArchive.merge(archives);
+        } catch (IOException e) {
+            System.err.println("ERROR: Failed to read archive: " + e.getMessage());
+            return EXIT_ERROR;
+        }
+
+        return writeOutputs(diffSession, outputPath, archivePath, renderer, System.out);
+    }
+
+    /**
+     * Writes the report for the given session and, if requested, its archive
+     *
+     * @param diffSession
+     *            The session holding the results
+     * @param outputPath
+     *            The file the report is written to, or null for standard output
+     * @param archivePath
+     *            The file the archive is written to, or null to write none
+     * @param renderer
+     *            The renderer the report is written with
+     * @param stdout
+     *            The standard output stream
+     *
+     * @return The exit status of the run
+     */
+    private static int writeOutputs(DiffSession diffSession, String outputPath, String archivePath, ReportRenderer renderer, PrintStream stdout)
+    {
+        try {
+
+            if (outputPath == null) {
+                writeReport(diffSession, renderer, stdout);
+                stdout.flush();
+            } else {
+                OutputStream outputStream = new FileOutputStream(outputPath);
+                try {
+                    writeReport(diffSession, renderer, outputStream);
+                } finally {
+                    outputStream.close();
+                }
+            }
+
+            if (archivePath != null) {
+                OutputStream outputStream = new FileOutputStream(archivePath);
+                try {
+                    SessionArchive.write(diffSession, outputStream);
+                } finally {
+                    outputStream.close();
+                }
+            }
+
+        } catch (IOException e) {
+            System.err.println("Failed to write output file: " + e.getMessage());
+            return EXIT_ERROR;
+        }
+
+        return EXIT_OK;
+    }
+
+    /**
+     * Runs every job listed in the given manifest
+     *
+     * @param manifestPath
+     *            The path of the manifest
+     * @param outputDirectory
+     *            The directory reports are written to by default, or null for the working directory
+     * @param archiveDirectory
+     *            The directory session archives are written to, or null to write none
+     * @param workers
+     *            The number of jobs run concurrently
+     * @param parallelism
+     *            The number of commit pairs diffed concurrently within each job
+     * @param indexer
+     *            The indexer to use, or null for the default
+     * @param fileTypes
+     *            The registry of file types reported upon, or null for the default
+     * @param detectRenames
+     *            Whether renamed and copied files are paired with their sources
+     * @param renameLimit
+     *            The most files considered for inexact rename detection, or -1 for the default
+     * @param renameScore
+     *            The similarity at which a file is considered renamed, or -1 for the default
+     * @param endpointsOnly
+     *            Whether only the base and new commits of each job are diffed
+     * @param renderer
+     *            The renderer each report is written with
+     *
+     * @return The exit status of the run
+     */
+    private static int runBatch(String manifestPath, String outputDirectory, String archiveDirectory, int workers, int parallelism,
+            JavaSourceIndexer indexer, FileTypeRegistry fileTypes, boolean detectRenames, int renameLimit, int renameScore, boolean endpointsOnly,
+            ReportRenderer renderer)
+    {
+        BatchRunner runner = new BatchRunner(workers);
+        runner.setParallelism(parallelism);
+        runner.setReportRenderer(renderer);
+
+        if (indexer != null) {
+            runner.setSourceIndexer(indexer);
+        }
+        if (fileTypes != null) {
+            runner.setFileTypes(fileTypes);
+        }
+        runner.setDetectRenames(detectRenames);
+        runner.setRenameLimit(renameLimit);
+        runner.setRenameScore(renameScore);
+        runner.setEndpointsOnly(endpointsOnly);
+        if (outputDirectory != null) {
+            runner.setOutputDirectory(new File(outputDirectory));
+        }
+        if (archiveDirectory != null) {
+            runner.setArchiveDirectory(new File(archiveDirectory));
+        }
+
+        List<BatchRunner.Job> jobs;
+        try {
+            jobs = BatchRunner.readManifest(new File(manifestPath));
+        } catch (IOException e) {
+            System.err.println("ERROR: Failed to read manifest: " + e.getMessage());
+            return EXIT_ERROR;
+        }
+
+        return (runner.run(jobs) == 0) ? EXIT_OK : EXIT_ERROR;
+    }
+
+    /**
+     * Looks up the renderer for the given format name
+     *
+     * @param format
+     *            The name of the format: "text", "json" or "csv"
+     *
+     * @return The renderer, or null if the format is unknown
+     */
+    static ReportRenderer rendererForFormat(String format)
+    {
+        if (format.equals("text")) {
+            return new TextReportRenderer();
+        } else if (format.equals("json")) {
+            return new JsonReportRenderer();
+        } else if (format.equals("csv")) {
+            return new CsvReportRenderer();
+        }
+
+        return null;
+    }
+
+    /**
+     * Streams the report for the given session to the given stream as UTF-8.
+     * The stream is flushed but not closed.
+     *
+     * @param diffSession
+     *            The session holding the results
+     * @param renderer
+     *            The renderer to write the report with
+     * @param outputStream
+     *            The stream to write the report to
+     *
+     * @throws IOException
+     *             if the report could not be written
+     */
+    static void writeReport(DiffSession diffSession, ReportRenderer renderer, OutputStream outputStream) throws IOException
+    {
+        long start = System.nanoTime();
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8));
+        renderer.render(diffSession, writer);
+        writer.flush();
+
+        if (diffSession.getMetrics() != null) {
+            diffSession.getMetrics().recordRender(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Reports invalid arguments along with the usage message
+     *
+     * @param message
+     *            Description of the problem with the arguments
+     *
+     * @return The exit status for invalid arguments
+     */
+    private static int usageError(String message)
+    {
+        System.err.println("ERROR: " + message);
+        printUsage(System.err);
+        return EXIT_USAGE;
+    }
+
+    /**
+     * Prints the usage message to the given stream
+     *
+     * @param stream
+     *            The stream to print to
+     */
+    private static void printUsage(PrintStream stream)
+    {
+        stream.println("Usage: GitDiff [options] <repository> <base> <new>");
+        stream.println("       GitDiff [options] --batch <manifest>");
+        stream.println("       GitDiff [options] --merge <archive>...");
+        stream.println("       GitDiff [options] --serve <port> [directory]");
+        stream.println();
+        stream.println("Reports the methods, JSP and SQL files changed between the base and new");
+        stream.println("revisions of the repository. A batch reports upon every job in its manifest,");
+        stream.println("one \"<repository> <base> <new> [output]\" per line. A merge reports upon");
+        stream.println("the combined results of previously written archives. A server answers");
+        stream.println("GET /report?repo=<path>&base=<base>&new=<new>[&format=<name>] for the");
+        stream.println("repositories beneath the directory. Without arguments, the GUI is launched.");
+        stream.println();
+        stream.println("Options:");
+        stream.println("  -o, --output <file>      Write the report to a file instead of stdout");
+        stream.println("  -j, --parallelism <n>    Diff up to n commit pairs concurrently");
+        stream.println("      --format <name>      Write the report as \"text\" (default), \"json\" or \"csv\"");
+        stream.println("      --indexer <name>     Index Java files with \"qdox\" (default) or \"scan\"");
+        stream.println("      --file-type <ext>=<category>");
+        stream.println("                           Also list changed files with the extension, such as");
+        stream.println("                           \".xml=XML\", or parse them as Java with \"<ext>=members\"");
+        stream.println("      --renames            Diff renamed and copied files against their sources");
+        stream.println("      --rename-limit <n>   Compare at most n files by content to find renames,");
+        stream.println("                           or any number if n is 0");
+        stream.println("      --rename-score <n>   Treat files at least n% similar as renamed (0-100)");
+        stream.println("      --endpoints          Diff only the base and new revisions, reporting the");
+        stream.println("                           net change rather than every change in between");
+        stream.println("      --watch              Keep running, updating the report as commits land on");
+        stream.println("                           the new revision, which should name a branch");
+        stream.println("      --archive <path>     Also write the results as a binary archive; within a");
+        stream.println("                           batch, the directory each job's archive is written to");
+        stream.println("      --merge              Merge the archives given instead of diffing");
+        stream.println("      --batch <manifest>   Run every job listed in the manifest");
+        stream.println("      --workers <n>        Run up to n batch jobs or requests concurrently");
+        stream.println("      --output-dir <dir>   Write batch reports without an output file here");
+        stream.println("      --serve <port>       Serve reports over HTTP on the port");
+        stream.println("      --bind <address>     Listen on the address (default 127.0.0.1)");
+        stream.println("  -h, --help               Show this message");
+    }
+}
@@ -0,0 +1,302 @@
+package edu.ncsu.csc.utilities;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * Index of every commit reachable from the refs of a repository.
+ *
+ * The index is built with a single history walk the first time it is
+ * needed and is only rebuilt once the repository's refs have changed,
+ * so resolving a commit by its SHA-1 no longer requires walking the log.
+ * Full SHA-1s are resolved with a hash lookup, abbreviated SHA-1s with a
+ * sorted lookup, and anything else (HEAD, branch names, etc.) falls back
+ * to the repository's own revision parser.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class CommitIndex
+{
+
+    /** The shortest abbreviated SHA-1 that will be expanded by the index */
+    private static final int                 MIN_ABBREVIATION = 4;
+
+    /** The repository being indexed */
+    private final Repository                 repository;
+
+    /** Walk owning every indexed commit, also used to parse fallback lookups */
+    private RevWalk                          walk             = null;
+
+    /** Indexed commits keyed by their full object id */
+    private HashMap<ObjectId, RevCommit>     commitsById      = null;
+
+    /** Indexed commits keyed by their lowercase SHA-1, used to expand abbreviations */
+    private TreeMap<String, RevCommit>       commitsByName    = null;
+
+    /** Indexed commits in log order (most recent first) */
+    private ArrayList<RevCommit>             commitsInOrder   = null;
+
+    /** The ref name to object id mapping the index was built from */
+    private Map<String, ObjectId>            refSnapshot      = null;
+
+    /**
+     * Constructs a new, not yet built, index over the given repository
+     *
+     * @param repository
+     *            The repository whose commits should be indexed
+     */
+    public CommitIndex(Repository repository)
+    {
+        this.repository = repository;
+    }
+
+    /**
+     * Returns the commit matching the given id. Full and abbreviated SHA-1s
+     * are answered from the index; any other revision string is handed to
+     * {@link Repository#resolve(String)}.
+     *
+     * @param id
+     *            The SHA-1 (full or abbreviated) or revision string
+     *
+     * @return The matching commit, or null if none could be found
+     *
+     * @throws IOException
+     *             if the repository could not be read
+     */
+    public synchronized RevCommit lookup(String id) throws IOException
+    {
+        if (id == null) {
+            return null;
+        }
+
+        ensureCurrent();
+
+        String name = id.trim().toLowerCase(Locale.ROOT);
+
+        if (ObjectId.isId(name)) {
+            RevCommit commit = this.commitsById.get(ObjectId.fromString(name));
+            if (commit != null) {
+                return commit;
+            }
+        } else if (name.length() >= MIN_ABBREVIATION && isHex(name)) {
+            RevCommit commit = expandAbbreviation(name);
+            if (commit != null) {
+                return commit;
+            }
+        }
+
+        return resolveFallback(id);
+    }
+
+    /**
+     * Returns every indexed commit, most recent first, in the same
+     * order produced by a log of all refs.
+     *
+     * @return The list of commits
+     *
+     * @throws IOException
+     *             if the repository could not be read
+     */
+    public synchronized List<RevCommit> getCommits() throws IOException
+    {
+        ensureCurrent();
+        return new ArrayList<RevCommit>(this.commitsInOrder);
+    }
+
+    /**
+     * Discards the index so that it will be rebuilt upon the next lookup
+     */
+    public synchronized void invalidate()
+    {
+        if (this.walk != null) {
+            this.walk.release();
+        }
+
+        this.walk = null;
+        this.commitsById = null;
+        this.commitsByName = null;
+        this.commitsInOrder = null;
+        this.refSnapshot = null;
+    }
+
+    /**
+     * Rebuilds the index if it has never been built or if any ref
+     * has been created, deleted or moved since it was.
+     *
+     * @throws IOException
+     *             if the repository could not be read
+     */
+    private void ensureCurrent() throws IOException
+    {
+        Map<String, ObjectId> snapshot = snapshotRefs();
+
+        if (this.refSnapshot == null || !this.refSnapshot.equals(snapshot)) {
+            invalidate();
+            build(snapshot);
+        }
+    }
+
+    /**
+     * Walks the history of every ref once and records each commit found.
+     *
+     * @param snapshot
+     *            The refs the index is being built from
+     *
+     * @throws IOException
+     *             if the repository could not be read
+     */
+    private void build(Map<String, ObjectId> snapshot) throws IOException
+    {
+        this.walk = new RevWalk(this.repository);
+        this.commitsById = new HashMap<ObjectId, RevCommit>();
+        this.commitsByName = new TreeMap<String, RevCommit>();
+        this.commitsInOrder = new ArrayList<RevCommit>();
+
+        // Mark every ref which peels to a commit as a starting point,
+        // exactly as a log of all refs would
+        for (Ref ref : this.repository.getAllRefs().values()) {
+
+            if (!ref.isPeeled()) {
+                ref = this.repository.peel(ref);
+            }
+
+            ObjectId objectId = ref.getPeeledObjectId();
+            if (objectId == null) {
+                objectId = ref.getObjectId();
+            }
+
+            if (objectId == null) {
+                continue;
+            }
+
+            try {
+                this.walk.markStart(this.walk.parseCommit(objectId));
+            } catch (MissingObjectException e) {
+                continue;
+            } catch (IncorrectObjectTypeException e) {
+                continue;
+            }
+        }
+
+        for (RevCommit commit : this.walk) {
+            this.commitsById.put(commit, commit);
+            this.commitsByName.put(commit.getName(), commit);
+            this.commitsInOrder.add(commit);
+        }
+
+        this.refSnapshot = snapshot;
+    }
+
+    /**
+     * Expands an abbreviated SHA-1 using the sorted index. Ambiguous
+     * abbreviations are not expanded.
+     *
+     * @param prefix
+     *            The lowercase abbreviated SHA-1
+     *
+     * @return The single commit matching the abbreviation, or null
+     */
+    private RevCommit expandAbbreviation(String prefix)
+    {
+        Entry<String, RevCommit> match = this.commitsByName.ceilingEntry(prefix);
+        if (match == null || !match.getKey().startsWith(prefix)) {
+            return null;
+        }
+
+        Entry<String, RevCommit> next = this.commitsByName.higherEntry(match.getKey());
+        if (next != null && next.getKey().startsWith(prefix)) {
+            return null;
+        }
+
+        return match.getValue();
+    }
+
+    /**
+     * Resolves an id the index does not know about through the repository,
+     * remembering the result for subsequent lookups.
+     *
+     * @param id
+     *            The revision string
+     *
+     * @return The resolved commit, or null if the id does not name a commit
+     *
+     * @throws IOException
+     *             if the repository could not be read
+     */
+    private RevCommit resolveFallback(String id) throws IOException
+    {
+        ObjectId objectId = this.repository.resolve(id);
+        if (objectId == null) {
+            return null;
+        }
+
+        RevCommit commit = this.commitsById.get(objectId);
+        if (commit != null) {
+            return commit;
+        }
+
+        try {
+            commit = this.walk.parseCommit(objectId);
+        } catch (MissingObjectException e) {
+            return null;
+        } catch (IncorrectObjectTypeException e) {
+            return null;
+        }
+
+        this.commitsById.put(commit, commit);
+        return commit;
+    }
+
+    /**
+     * Captures the current object id of every ref in the repository
+     *
+     * @return The ref name to object id mapping
+     */
+    private Map<String, ObjectId> snapshotRefs()
+    {
+        HashMap<String, ObjectId> snapshot = new HashMap<String, ObjectId>();
+
+        for (Entry<String, Ref> ref : this.repository.getAllRefs().entrySet()) {
+            ObjectId objectId = ref.getValue().getObjectId();
+            snapshot.put(ref.getKey(), objectId != null ? objectId : ObjectId.zeroId());
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Determines whether the given string is made up solely of hexadecimal digits
+     *
+     * @param str
+     *            The string to check
+     *
+     * @return Whether the string is hexadecimal
+     */
+    private static boolean isHex(String str)
+    {
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+
+        return str.length() <= Constants.OBJECT_ID_STRING_LENGTH;
+    }
+}
@@ -0,0 +1,137 @@
+package edu.ncsu.csc.utilities;
+
+import java.io.IOException;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * Selects the commits which make up the range between a user-selected
+ * "base" commit and a user-selected "new" commit.
+ *
+ * The range consists of every commit reachable from the new commit which
+ * is not an ancestor of the base commit, followed by the parent of the base
+ * commit so that the changes introduced by the base commit itself are also
+ * measured. Commits are produced most recent first, in topological order,
+ * and only the commits inside the range (plus the boundary at which the walk
+ * stops) are ever parsed.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class CommitRangeWalker
+{
+
+    /** The walk producing the commits of the range */
+    private RevWalk   walk           = null;
+
+    /** The parent of the base commit, produced once the walk is exhausted */
+    private RevCommit baseParent     = null;
+
+    /** Whether the base commit's parent has already been produced */
+    private boolean   producedParent = false;
+
+    /**
+     * Constructs a new walker over the range between the given commits
+     *
+     * @param repository
+     *            The repository housing the commits
+     * @param baseId
+     *            The id of the base (oldest) commit in the range
+     * @param newId
+     *            The id of the new (most recent) commit in the range
+     *
+     * @throws IOException
+     *             if the commits could not be parsed
+     */
+    public CommitRangeWalker(Repository repository, AnyObjectId baseId, AnyObjectId newId) throws IOException
+    {
+        this.walk = new RevWalk(repository);
+        this.walk.sort(RevSort.TOPO);
+
+        RevCommit base = this.walk.parseCommit(baseId);
+        RevCommit newest = this.walk.parseCommit(newId);
+
+        this.walk.markStart(newest);
+
+        // The parent preceding the base commit stays in the range, everything
+        // behind it (and behind any other parent of the base) is excluded
+        this.baseParent = mostRecentParent(base);
+
+        if (this.baseParent != null) {
+
+            for (RevCommit parent : base.getParents()) {
+                if (parent != this.baseParent) {
+                    this.walk.markUninteresting(parent);
+                }
+            }
+
+            for (RevCommit parent : this.baseParent.getParents()) {
+                this.walk.markUninteresting(this.walk.parseCommit(parent));
+            }
+        }
+    }
+
+    /**
+     * Returns the next commit in the range, most recent first
+     *
+     * @return The next commit, or null once the range has been exhausted
+     *
+     * @throws IOException
+     *             if a commit could not be parsed
+     */
+    public RevCommit next() throws IOException
+    {
+        RevCommit commit = this.walk.next();
+
+        if (commit == this.baseParent) {
+            this.producedParent = true;
+        }
+
+        if (commit == null && !this.producedParent && this.baseParent != null) {
+            this.producedParent = true;
+            return this.baseParent;
+        }
+
+        return commit;
+    }
+
+    /**
+     * Releases the resources held by the walk
+     */
+    public void release()
+    {
+        this.walk.release();
+    }
+
+    /**
+     * Determines which parent of the given commit directly precedes it, that
+     * being the parent with the most recent commit time.
+     *
+     * @param commit
+     *            The commit whose parents should be inspected
+     *
+     * @return The preceding parent, or null for a root commit
+     *
+     * @throws IOException
+     *             if a parent could not be parsed
+     */
+    private RevCommit mostRecentParent(RevCommit commit) throws IOException
+    {
+        RevCommit retVal = null;
+
+        for (RevCommit parent : commit.getParents()) {
+
+            this.walk.parseHeaders(parent);
+
+            if (retVal == null || parent.getCommitTime() > retVal.getCommitTime()) {
+                retVal = parent;
+            }
+        }
+
+        return retVal;
+    }
+}
@@ -0,0 +1,115 @@
+package edu.ncsu.csc.utilities;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Renders the report as comma-separated values, for use in spreadsheets.
+ *
+ * Each row names one changed item. Rows of listed files, whose type is
+ * their category such as "jsp" or "sql", hold the file's path, and "java"
+ * rows hold the class and the signature of one of its changed methods. A
+ * class changed only outside of any method has a single row with an empty
+ * method. Fields are quoted as described by RFC 4180, and
+ * rows are ended by CRLF.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class CsvReportRenderer implements ReportRenderer
+{
+
+    /** The separator ending each row */
+    private static final String CRLF = "\r\n";
+
+    @Override
+    public void render(DiffSession diffSession, Writer writer) throws IOException
+    {
+        writer.write("type,name,method" + CRLF);
+
+        for (String category : diffSession.getCategories()) {
+
+            String type = category.toLowerCase(Locale.ENGLISH);
+
+            for (String file : diffSession.getListedFiles(category)) {
+                writeRow(type, file, "", writer);
+            }
+        }
+
+        for (SignatureStore.ChangedClass pkg : diffSession.getChangedClasses()) {
+
+            String className = pkg.getName();
+            List<String> methods = pkg.getMethodSignatures();
+
+            if (methods.isEmpty()) {
+                writeRow("java", className, "", writer);
+            }
+
+            for (String aMethod : methods) {
+                writeRow("java", className, aMethod, writer);
+            }
+        }
+    }
+
+    @Override
+    public String getFileExtension()
+    {
+        return ".csv";
+    }
+
+    /**
+     * Writes a single row
+     *
+     * @param type
+     *            The type of the changed item
+     * @param name
+     *            The path of the file, or name of the class
+     * @param method
+     *            The signature of the method, or an empty string
+     * @param writer
+     *            The writer the report is written to
+     *
+     * @throws IOException
+     *             if the report could not be written
+     */
+    private static void writeRow(String type, String name, String method, Writer writer) throws IOException
+    {
+        writeField(type, writer);
+        writer.write(',');
+        writeField(name, writer);
+        writer.write(',');
+        writeField(method, writer);
+        writer.write(CRLF);
+    }
+
+    /**
+     * Writes a single field, quoting it if it contains a separator, quote or line break
+     *
+     * @param field
+     *            The field to write
+     * @param writer
+     *            The writer the report is written to
+     *
+     * @throws IOException
+     *             if the report could not be written
+     */
+    private static void writeField(String field, Writer writer) throws IOException
+    {
+        boolean quote = false;
+        for (int idx = 0; idx < field.length() && !quote; idx++) {
+            char c = field.charAt(idx);
+            quote = (c == ',' || c == '"' || c == '\n' || c == '\r');
+        }
+
+        if (!quote) {
+            writer.write(field);
+            return;
+        }
+
+        writer.write('"');
+        writer.write(field.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
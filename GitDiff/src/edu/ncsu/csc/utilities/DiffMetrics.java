@@ -0,0 +1,309 @@
+package edu.ncsu.csc.utilities;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and per-stage timings of the work done by diffs.
+ *
+ * Each diff records into metrics of its own, which the controller logs as
+ * a summary line once the diff completes. Every recording is also passed
+ * on to the parent metrics, normally the process-wide totals returned by
+ * {@link #getGlobal()}, which are registered with the platform MBean
+ * server as "edu.ncsu.csc.utilities:type=DiffMetrics". Counters are
+ * atomic, so pairs diffed concurrently record into the same metrics.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class DiffMetrics implements DiffMetricsMBean
+{
+
+    /** The name the process-wide totals are registered under */
+    public static final String JMX_NAME      = "edu.ncsu.csc.utilities:type=DiffMetrics";
+
+    /** The process-wide totals, created and registered on first use */
+    private static DiffMetrics global        = null;
+
+    /** The metrics every recording is also passed on to, or null */
+    private final DiffMetrics  parent;
+
+    /** The number of diffs completed */
+    private final AtomicLong   runs          = new AtomicLong();
+
+    /** The number of commit pairs diffed */
+    private final AtomicLong   pairsDiffed   = new AtomicLong();
+
+    /** The number of changed file entries seen */
+    private final AtomicLong   entriesSeen   = new AtomicLong();
+
+    /** The number of blobs read */
+    private final AtomicLong   blobsRead     = new AtomicLong();
+
+    /** The number of bytes of blob content read */
+    private final AtomicLong   bytesRead     = new AtomicLong();
+
+    /** The number of files parsed */
+    private final AtomicLong   filesParsed   = new AtomicLong();
+
+    /** The number of files found in the class cache */
+    private final AtomicLong   cacheHits     = new AtomicLong();
+
+    /** The time spent walking commit ranges */
+    private final AtomicLong   walkNanos     = new AtomicLong();
+
+    /** The time spent diffing trees */
+    private final AtomicLong   treeDiffNanos = new AtomicLong();
+
+    /** The time spent reading blobs */
+    private final AtomicLong   blobReadNanos = new AtomicLong();
+
+    /** The time spent parsing files */
+    private final AtomicLong   parseNanos    = new AtomicLong();
+
+    /** The time spent rendering reports */
+    private final AtomicLong   renderNanos   = new AtomicLong();
+
+    /**
+     * Constructs new metrics passing every recording on to the given parent
+     *
+     * @param parent
+     *            The metrics recordings are also passed on to, or null
+     */
+    public DiffMetrics(DiffMetrics parent)
+    {
+        this.parent = parent;
+    }
+
+    /**
+     * Returns the process-wide totals, registering them with the platform
+     * MBean server when first called
+     *
+     * @return The process-wide metrics
+     */
+    public static synchronized DiffMetrics getGlobal()
+    {
+        if (global == null) {
+
+            global = new DiffMetrics(null);
+
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(global, new ObjectName(JMX_NAME));
+            } catch (JMException e) {
+                System.out.println("Failed to register diff metrics: " + e.getMessage());
+            }
+        }
+
+        return global;
+    }
+
+    /**
+     * Records the completion of a diff
+     */
+    void recordRun()
+    {
+        this.runs.incrementAndGet();
+
+        if (this.parent != null) {
+            this.parent.recordRun();
+        }
+    }
+
+    /**
+     * Records the walk of a commit range
+     *
+     * @param nanos
+     *            The time taken
+     */
+    void recordWalk(long nanos)
+    {
+        this.walkNanos.addAndGet(nanos);
+
+        if (this.parent != null) {
+            this.parent.recordWalk(nanos);
+        }
+    }
+
+    /**
+     * Records the tree diff of a single commit pair
+     *
+     * @param nanos
+     *            The time taken
+     * @param entries
+     *            The number of changed file entries found
+     */
+    void recordTreeDiff(long nanos, int entries)
+    {
+        this.pairsDiffed.incrementAndGet();
+        this.entriesSeen.addAndGet(entries);
+        this.treeDiffNanos.addAndGet(nanos);
+
+        if (this.parent != null) {
+            this.parent.recordTreeDiff(nanos, entries);
+        }
+    }
+
+    /**
+     * Records the read of a single blob
+     *
+     * @param nanos
+     *            The time taken
+     * @param bytes
+     *            The size of the blob's content
+     */
+    void recordBlobRead(long nanos, int bytes)
+    {
+        this.blobsRead.incrementAndGet();
+        this.bytesRead.addAndGet(bytes);
+        this.blobReadNanos.addAndGet(nanos);
+
+        if (this.parent != null) {
+            this.parent.recordBlobRead(nanos, bytes);
+        }
+    }
+
+    /**
+     * Records the parse of a single file
+     *
+     * @param nanos
+     *            The time taken
+     */
+    void recordParse(long nanos)
+    {
+        this.filesParsed.incrementAndGet();
+        this.parseNanos.addAndGet(nanos);
+
+        if (this.parent != null) {
+            this.parent.recordParse(nanos);
+        }
+    }
+
+    /**
+     * Records a file found in the class cache
+     */
+    void recordCacheHit()
+    {
+        this.cacheHits.incrementAndGet();
+
+        if (this.parent != null) {
+            this.parent.recordCacheHit();
+        }
+    }
+
+    /**
+     * Records the rendering of a report
+     *
+     * @param nanos
+     *            The time taken
+     */
+    void recordRender(long nanos)
+    {
+        this.renderNanos.addAndGet(nanos);
+
+        if (this.parent != null) {
+            this.parent.recordRender(nanos);
+        }
+    }
+
+    @Override
+    public long getRuns()
+    {
+        return this.runs.get();
+    }
+
+    @Override
+    public long getPairsDiffed()
+    {
+        return this.pairsDiffed.get();
+    }
+
+    @Override
+    public long getEntriesSeen()
+    {
+        return this.entriesSeen.get();
+    }
+
+    @Override
+    public long getBlobsRead()
+    {
+        return this.blobsRead.get();
+    }
+
+    @Override
+    public long getBytesRead()
+    {
+        return this.bytesRead.get();
+    }
+
+    @Override
+    public long getFilesParsed()
+    {
+        return this.filesParsed.get();
+    }
+
+    @Override
+    public long getCacheHits()
+    {
+        return this.cacheHits.get();
+    }
+
+    @Override
+    public long getWalkMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.walkNanos.get());
+    }
+
+    @Override
+    public long getTreeDiffMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.treeDiffNanos.get());
+    }
+
+    @Override
+    public long getBlobReadMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.blobReadNanos.get());
+    }
+
+    @Override
+    public long getParseMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.parseNanos.get());
+    }
+
+    @Override
+    public long getRenderMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.renderNanos.get());
+    }
+
+    @Override
+    public String getSummary()
+    {
+        return String.format("%d pairs, %d entries; walk %d ms, tree diff %d ms; %d blobs (%d KB) read in %d ms; "
+                + "%d files parsed in %d ms, %d cache hits; render %d ms", getPairsDiffed(), getEntriesSeen(), getWalkMillis(),
+                getTreeDiffMillis(), getBlobsRead(), getBytesRead() / 1024, getBlobReadMillis(), getFilesParsed(), getParseMillis(),
+                getCacheHits(), getRenderMillis());
+    }
+
+    @Override
+    public void reset()
+    {
+        this.runs.set(0);
+        this.pairsDiffed.set(0);
+        this.entriesSeen.set(0);
+        this.blobsRead.set(0);
+        this.bytesRead.set(0);
+        this.filesParsed.set(0);
+        this.cacheHits.set(0);
+        this.walkNanos.set(0);
+        this.treeDiffNanos.set(0);
+        this.blobReadNanos.set(0);
+        this.parseNanos.set(0);
+        this.renderNanos.set(0);
+    }
+}
@@ -0,0 +1,82 @@
+package edu.ncsu.csc.utilities;
+
+/**
+ * Management interface exposing the counters and stage timings of
+ * {@link DiffMetrics} through JMX.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public interface DiffMetricsMBean
+{
+
+    /**
+     * @return The number of diffs completed
+     */
+    long getRuns();
+
+    /**
+     * @return The number of commit pairs diffed
+     */
+    long getPairsDiffed();
+
+    /**
+     * @return The number of changed file entries seen across every pair
+     */
+    long getEntriesSeen();
+
+    /**
+     * @return The number of blobs read from the repository
+     */
+    long getBlobsRead();
+
+    /**
+     * @return The number of bytes of blob content read
+     */
+    long getBytesRead();
+
+    /**
+     * @return The number of files parsed
+     */
+    long getFilesParsed();
+
+    /**
+     * @return The number of files found in the class cache rather than parsed
+     */
+    long getCacheHits();
+
+    /**
+     * @return The time spent walking the commit range, in milliseconds
+     */
+    long getWalkMillis();
+
+    /**
+     * @return The time spent diffing the trees of each pair, in milliseconds
+     */
+    long getTreeDiffMillis();
+
+    /**
+     * @return The time spent reading blobs, in milliseconds
+     */
+    long getBlobReadMillis();
+
+    /**
+     * @return The time spent parsing files, in milliseconds
+     */
+    long getParseMillis();
+
+    /**
+     * @return The time spent rendering reports, in milliseconds
+     */
+    long getRenderMillis();
+
+    /**
+     * @return A single line summarizing every counter and timing
+     */
+    String getSummary();
+
+    /**
+     * Resets every counter and timing to zero
+     */
+    void reset();
+}
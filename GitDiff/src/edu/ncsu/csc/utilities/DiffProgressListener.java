@@ -0,0 +1,50 @@
+package edu.ncsu.csc.utilities;
+
+/**
+ * Receives the progress of a diff as it runs, and may ask for it to be
+ * cancelled.
+ *
+ * Cancellation is cooperative: the controller checks
+ * {@link #isCancelled()} between commit pairs and between the files of
+ * each pair, abandoning the diff at the first check after it returns
+ * true. When pairs are diffed concurrently, {@link #fileParsed()} and
+ * {@link #isCancelled()} are called from the pool's worker threads, so
+ * implementations must be thread-safe.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public interface DiffProgressListener
+{
+
+    /**
+     * Called once the range has been walked, before any pair is diffed
+     *
+     * @param pairCount
+     *            The number of commit pairs which will be diffed
+     */
+    void diffStarted(int pairCount);
+
+    /**
+     * Called as each commit pair is completed, in range order
+     *
+     * @param pairsDone
+     *            The number of pairs completed so far
+     * @param pairCount
+     *            The number of pairs in total
+     */
+    void pairDiffed(int pairsDone, int pairCount);
+
+    /**
+     * Called each time a Java file is parsed. Files found in the class
+     * cache are not parsed again, and are not reported.
+     */
+    void fileParsed();
+
+    /**
+     * Determines whether the diff should be abandoned
+     *
+     * @return Whether the diff has been cancelled
+     */
+    boolean isCancelled();
+}
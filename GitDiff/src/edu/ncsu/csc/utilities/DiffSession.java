@@ -1,20 +1,28 @@
 package edu.ncsu.csc.utilities;
 
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.Iterator;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Responsible for maintaining the session data while
  * the application is processing commit data. This class
  * holds any parsed data until the session is over, at
- * which time it formats said data for output.
+ * which time a {@link ReportRenderer} formats said data
+ * for output.
+ * 
+ * Files and methods may be added from any number of threads
+ * at once, either directly or by merging partial sessions
+ * accumulated by each worker. Files are kept in concurrent
+ * sorted sets and methods in a {@link SignatureStore}, so no
+ * lock is shared by the whole session and the output is
+ * ordered identically however the additions interleave.
  * 
  * @author Chris Storud (clstroud@ncsu.edu)
  * @version 1.0.0
@@ -22,49 +30,115 @@ import java.util.TreeSet;
 public class DiffSession
 {
 
-    /**
-     * A sorted Map in format <Classname, Method Names> where Classname is a String amd Method Names
-     * is a Sorted Set of Strings
-     */
-    TreeMap<String, TreeSet<String>> signatures     = new TreeMap<String, TreeSet<String>>();
+    /** The category JSP files are listed under */
+    public static final String                           JSP_CATEGORY   = "JSP";
+
+    /** The category SQL files are listed under */
+    public static final String                           SQL_CATEGORY   = "SQL";
+
+    /** The mode of a session built by diffing every commit of the range against its predecessor */
+    public static final String                           MODE_HISTORY   = "History";
 
-    /** A sorted set of SQL filenames that have been altered */
-    private Set<String>              sqlFiles       = new TreeSet<String>();
+    /** The mode of a session built by diffing only the base and new commits */
+    public static final String                           MODE_ENDPOINTS = "Endpoints";
 
-    /** A sorted set of JSP filenames that have been altered */
-    private Set<String>              jspFiles       = new TreeSet<String>();
+    /** The altered classes and the signatures of their altered methods */
+    private final SignatureStore                         signatures     = new SignatureStore();
+
+    /** The sorted set of altered filenames listed under each category, such as "JSP" */
+    private final ConcurrentHashMap<String, Set<String>> listedFiles    = new ConcurrentHashMap<String, Set<String>>();
+
+    /** The categories of listed files, in the order they are presented */
+    private final List<String>                           categories     = new CopyOnWriteArrayList<String>();
 
     /** The display name of the repository being diff'd */
-    private String                   repositoryName = "";
+    private volatile String                              repositoryName = "";
 
     /** The username of the local repository owner */
-    private String                   userName       = "";
+    private volatile String                              userName       = "";
 
     /** The contact email for the local repository owner */
-    private String                   userEmail      = "";
+    private volatile String                              userEmail      = "";
 
     /** A String representation of the number of changes made between the user-selected commits */
-    private String                   deltaCount     = "";
+    private volatile String                              deltaCount     = "";
+
+    /** The way in which the session was built, such as {@link #MODE_HISTORY} */
+    private volatile String                              mode           = MODE_HISTORY;
 
     /** Model representation of the user-selected "base" commit */
-    private CommitModel              baseCommit     = null;
+    private volatile CommitModel                         baseCommit     = null;
 
     /** Model representation of the user-selected "new" commit */
-    private CommitModel              newCommit      = null;
+    private volatile CommitModel                         newCommit      = null;
+
+    /** The counters and timings of the work producing the session, or null if not measured */
+    private volatile DiffMetrics                         metrics        = null;
 
     /**
-     * Adds a new JSP file to the session store
+     * Constructs a new session listing JSP and SQL files
+     */
+    public DiffSession()
+    {
+        this(Arrays.asList(JSP_CATEGORY, SQL_CATEGORY));
+    }
+
+    /**
+     * Constructs a new session listing files under the given categories
      * 
+     * @param categories
+     *            The categories of listed files, in the order they are presented
+     */
+    public DiffSession(List<String> categories)
+    {
+        for (String category : categories) {
+            addCategory(category);
+        }
+    }
+
+    /**
+     * Adds a category of listed files, presented after those already added.
+     * Categories added from several threads at once may be presented in any
+     * order, so they are best added before the session is shared.
+     * 
+     * @param category
+     *            The category, such as "XML"
+     */
+    public void addCategory(String category)
+    {
+        if (this.listedFiles.putIfAbsent(category, new ConcurrentSkipListSet<String>()) == null) {
+            this.categories.add(category);
+        }
+    }
+
+    /**
+     * Adds a new file to the session store under the given category, adding
+     * the category if necessary
+     * 
+     * @param category
+     *            The category the file is listed under
      * @param filename
      *            The filename which should be added
      */
-    public void addJspFile(String filename)
+    public void addListedFile(String category, String filename)
     {
         if (filename == null || filename.equals("null")) {
             return;
         }
 
-        this.jspFiles.add(filename);
+        addCategory(category);
+        this.listedFiles.get(category).add(filename);
+    }
+
+    /**
+     * Adds a new JSP file to the session store
+     * 
+     * @param filename
+     *            The filename which should be added
+     */
+    public void addJspFile(String filename)
+    {
+        addListedFile(JSP_CATEGORY, filename);
     }
 
     /**
@@ -75,10 +149,7 @@ public class DiffSession
      */
     public void addSqlFile(String filename)
     {
-        if (filename == null || filename.equals("null")) {
-            return;
-        }
-        this.sqlFiles.add(filename);
+        addListedFile(SQL_CATEGORY, filename);
     }
 
     /**
@@ -145,6 +216,27 @@ public class DiffSession
         this.deltaCount = deltaCount;
     }
 
+    /**
+     * Retrieves the way in which the session was built
+     * 
+     * @return The mode, such as {@link #MODE_HISTORY} or {@link #MODE_ENDPOINTS}
+     */
+    public String getMode()
+    {
+        return this.mode;
+    }
+
+    /**
+     * Stores the way in which the session was built
+     * 
+     * @param mode
+     *            The mode, such as {@link #MODE_HISTORY} or {@link #MODE_ENDPOINTS}
+     */
+    public void setMode(String mode)
+    {
+        this.mode = mode;
+    }
+
     /**
      * Stores the username of the local repository owner
      * 
@@ -182,166 +274,171 @@ public class DiffSession
             return;
         }
 
-        TreeSet<String> methods = this.signatures.get(pkg);
-        if (methods == null) {
-            methods = new TreeSet<String>();
+        this.signatures.addMethod(pkg, method);
+    }
+
+    /**
+     * Records the given class as changed, even if none of its changes lie within a method
+     * 
+     * @param pkg
+     *            The fully qualified pakage path of the class
+     */
+    void addChangedClass(String pkg)
+    {
+        this.signatures.addClass(pkg);
+    }
+
+    /**
+     * Adds every file and method recorded in the given session to this session.
+     * Sessions may be merged into one another from any number of threads at once,
+     * in any order, and the result is the same.
+     * 
+     * @param other
+     *            The session whose results should be merged into this one
+     */
+    public void merge(DiffSession other)
+    {
+        for (String category : other.categories) {
+            addCategory(category);
+            this.listedFiles.get(category).addAll(other.listedFiles.get(category));
         }
-        methods.add(method);
-        this.signatures.put(pkg, methods);
+
+        this.signatures.addAll(other.signatures);
     }
 
     /**
      * Takes the current stored session data and converts it into a
      * formatted string that can be placed directly in a text file
-     * for human consumption.
+     * for human consumption. Large reports are better streamed to
+     * their destination with a {@link ReportRenderer}.
      * 
      * @return The constructed output string
      */
     public String getOutputString()
     {
-        int msgSplitLen = 35; // The length at which a wrap is desired for commit messages
+        StringWriter output = new StringWriter();
+        long start = System.nanoTime();
 
-        StringBuilder output = new StringBuilder();
-
-        output.append(String.format("Repository:  %s%n", this.repositoryName));
-        output.append(String.format("Date:        %s%n", new SimpleDateFormat("dd/MM/yyyy").format(new Date())));
-        output.append(String.format("User:        %s<%s>%n", this.userName, this.userEmail));
-        output.append(String.format("Delta Count: %s%n%n", Integer.valueOf(this.deltaCount)));
-        output.append(String.format("Base Commit:%n    SHA-1: %s%n    Date: %s%n    Message: ", this.baseCommit.getSha1(), this.baseCommit.getDateStr()));
-
-        List<String> wrappedBaseMessage = wrapWordsInString(this.baseCommit.getMessage(), msgSplitLen);
-        Iterator<String> baseMsgIterator = wrappedBaseMessage.listIterator();
-        
-        if (baseMsgIterator.hasNext()) {
-            output.append(baseMsgIterator.next());
+        try {
+            new TextReportRenderer().render(this, output);
+        } catch (IOException e) {
+            // A StringWriter never throws
         }
-        
-        while (baseMsgIterator.hasNext()) {
-            output.append(String.format("%n             %s", baseMsgIterator.next()));
-        }
-
-        output.append(String.format("%n%n New Commit:%n    SHA-1: %s%n    Date: %s%n    Message: ", this.newCommit.getSha1(), this.newCommit.getDateStr()));
 
-        List<String> wrappedNewMessage = wrapWordsInString(this.newCommit.getMessage(), msgSplitLen);
-        Iterator<String> newMsgIterator = wrappedNewMessage.listIterator();
-        
-        if (newMsgIterator.hasNext()) {
-            output.append(newMsgIterator.next());
-        }
-        
-        while (newMsgIterator.hasNext()) {
-            output.append(String.format("%n             %s", newMsgIterator.next()));
-        }
-
-        output.append(String.format("%n%n"));
-        output.append(String.format("JSP Files (%d):%n", Integer.valueOf(this.jspFiles.size())));
-        output.append(String.format("====================%n%n"));
-
-        for (String jspFile : this.jspFiles) {
-            output.append(String.format("    %s%n", jspFile));
-        }
-
-        output.append("\n");
-        output.append(String.format("SQL Files (%s):%n", Integer.valueOf(this.sqlFiles.size())));
-        output.append(String.format("====================%n%n"));
-
-        for (String sqlFile : this.sqlFiles) {
-            output.append(String.format("    %s%n", sqlFile));
-        }
-
-        output.append(String.format("%nJava Files (%s):%n", Integer.valueOf(this.signatures.size())));
-        output.append(String.format("====================%n%n"));
-
-        for (Entry<String, TreeSet<String>> pkg : this.signatures.entrySet()) {
-
-            output.append(String.format("%s%n", pkg.getKey()));
-
-            if (pkg.getValue().size() > 0) {
-
-                for (String aMethod : pkg.getValue()) {
-                    output.append(String.format("    %s%n", aMethod));
-                }
-
-            } else {
-
-                output.append(String.format("    No Changes Within Method Contexts%n"));
-
-            }
-
-            output.append("\n");
+        if (this.metrics != null) {
+            this.metrics.recordRender(System.nanoTime() - start);
         }
 
         return output.toString();
     }
 
     /**
-     * Wraps words from a given string conforming to the
-     * given length of characters for a particular line
-     * 
-     * @param str
-     *            The string to wrap
-     * @param length
-     *            The number of characters permitted on a line
+     * Returns the counters and timings of the work producing the session.
+     * Rendering a report records its time here as well.
      * 
-     * @return List of the wrapped strings
+     * @return The metrics, or null if the work was not measured
      */
-    private static List<String> wrapWordsInString(String str, int length)
+    public DiffMetrics getMetrics()
     {
-        ArrayList<String> retVal = new ArrayList<String>();   // Return value
-
-        String[] splitResult = str.split("\\s"); // Split based on whitespace characters
-
-        StringBuilder lineContents = new StringBuilder();	// Buffer for the line
-
-        // Loop through all words
-        for (String atom : splitResult) {
-
-            // If the lineContents are longer than the length of the
-            // character limit, it's necessary to flush the buffer
-            // into the return structure before working on this
-            // atom since it needs to be on a new line
-
-            if (lineContents.length() + atom.length() > length) {
+        return this.metrics;
+    }
 
-                retVal.add(lineContents.toString());                   // Flush the line
-                lineContents.delete(0, lineContents.length());     // Reset the contents of the buffer
+    /**
+     * Sets the counters and timings of the work producing the session
+     * 
+     * @param metrics
+     *            The metrics to record into, or null
+     */
+    public void setMetrics(DiffMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
 
-                // Is the word we're dealing with longer than the limit?
-                if (atom.length() > length) {
+    /**
+     * @return The display name of the repository being diff'd
+     */
+    public String getRepositoryName()
+    {
+        return this.repositoryName;
+    }
 
-                    // Make a temp copy that can be widdled-away at
-                    // Then hyphenate as neccessary.
-                    String tempAtom = atom;
-                    while (tempAtom.length() > 0) {
+    /**
+     * @return The username of the local repository owner
+     */
+    public String getUserName()
+    {
+        return this.userName;
+    }
 
-                        // Is the tempAtom longer than the line max?
-                        int idx = Math.min(length, tempAtom.length());
+    /**
+     * @return The contact email for the local repository owner
+     */
+    public String getUserEmail()
+    {
+        return this.userEmail;
+    }
 
-                        // If the string fits, write it and we're done
-                        if (idx == tempAtom.length()) {
+    /**
+     * @return The user-selected "base" commit
+     */
+    CommitModel getBaseCommit()
+    {
+        return this.baseCommit;
+    }
 
-                            retVal.add(tempAtom.substring(0, idx));
-                            break;
+    /**
+     * @return The user-selected "new" commit
+     */
+    CommitModel getNewCommit()
+    {
+        return this.newCommit;
+    }
 
-                        }
+    /**
+     * @return The categories of listed files, in the order they are presented
+     */
+    public List<String> getCategories()
+    {
+        return Collections.unmodifiableList(this.categories);
+    }
 
-                        idx--;
-                        retVal.add(tempAtom.substring(0, idx).concat("-"));  // Append the hyphenated
-                                                                            // word
-                        tempAtom = tempAtom.substring(idx + 1);              // Widdle away and keep going
-                    }
-                }
-            }
+    /**
+     * Returns the files listed under the given category
+     * 
+     * @param category
+     *            The category
+     * 
+     * @return The sorted, unmodifiable set of filenames that have been altered
+     */
+    public Set<String> getListedFiles(String category)
+    {
+        Set<String> files = this.listedFiles.get(category);
+        return (files != null) ? Collections.unmodifiableSet(files) : Collections.<String> emptySet();
+    }
 
-            lineContents.append(" " + atom);
-        }
+    /**
+     * @return The sorted, unmodifiable set of JSP filenames that have been altered
+     */
+    public Set<String> getJspFiles()
+    {
+        return getListedFiles(JSP_CATEGORY);
+    }
 
-        // If anything is left in the buffer (likely is), then add to return structure
-        if (lineContents.length() > 0) {
-            retVal.add(lineContents.toString());
-        }
+    /**
+     * @return The sorted, unmodifiable set of SQL filenames that have been altered
+     */
+    public Set<String> getSqlFiles()
+    {
+        return getListedFiles(SQL_CATEGORY);
+    }
 
-        return retVal;
+    /**
+     * @return The altered classes, sorted by name, each with the sorted
+     *         signatures of its altered methods
+     */
+    public List<SignatureStore.ChangedClass> getChangedClasses()
+    {
+        return this.signatures.getChangedClasses();
     }
 
     /**
@@ -351,7 +448,7 @@ public class DiffSession
      * @author Chris Stroud (clstroud@ncsu.edu)
      * @version 1.0.0
      */
-    private static class CommitModel
+    static class CommitModel
     {
         /** The SHA-1 hash of the commit */
         private String sha1    = "";
@@ -0,0 +1,314 @@
+package edu.ncsu.csc.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a session up to date as new commits land in its repository.
+ *
+ * The watcher builds the session once, then watches the repository's refs
+ * directories and its packed-refs file for changes. Once the refs settle
+ * after a change, the new revision is resolved again and, if it has moved
+ * forward, only the commit pairs the range has gained are diffed and folded
+ * into the existing session, so an update costs as much as the commits it
+ * adds. Whenever the session cannot be extended, such as when the branch is
+ * rewound, it is rebuilt from scratch instead. The new revision should
+ * therefore name a branch or HEAD rather than a fixed commit.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class DiffWatcher
+{
+
+    /** How long the refs must go unchanged before the session is updated, in milliseconds */
+    private static final long              QUIET_MILLIS = 250;
+
+    /** The controller of the repository being watched */
+    private final GitDiffController        controller;
+
+    /** The base revision of the range */
+    private final String                   baseObjId;
+
+    /** The new revision of the range, resolved again upon every change */
+    private final String                   newRevision;
+
+    /** Notified whenever the session is built or updated */
+    private final Listener                 listener;
+
+    /** The directory watched for each registered key */
+    private final HashMap<WatchKey, Path>  directories  = new HashMap<WatchKey, Path>();
+
+    /** The watched session, or null if it has not been built successfully */
+    private volatile DiffSession           diffSession  = null;
+
+    /** The git directory of the repository being watched, or null while not running */
+    private volatile Path                  gitDirectory = null;
+
+    /** The service delivering changes to the refs, or null while not running */
+    private volatile WatchService          watchService = null;
+
+    /**
+     * Constructs a new watcher of the given range
+     *
+     * @param controller
+     *            The controller of the repository being watched, which must be loaded
+     * @param baseObjId
+     *            The base revision of the range
+     * @param newRevision
+     *            The new revision of the range, such as a branch name or HEAD
+     * @param listener
+     *            Notified whenever the session is built or updated
+     */
+    public DiffWatcher(GitDiffController controller, String baseObjId, String newRevision, Listener listener)
+    {
+        this.controller = controller;
+        this.baseObjId = baseObjId;
+        this.newRevision = newRevision;
+        this.listener = listener;
+    }
+
+    /**
+     * Builds the session, then updates it as the refs change until the
+     * watcher is stopped or the calling thread is interrupted
+     *
+     * @throws IOException
+     *             if the repository's refs could not be watched
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting for changes
+     */
+    public void run() throws IOException, InterruptedException
+    {
+        // Watch the git directory the repository was opened from, which the
+        // repository path may only lead to through a link
+        File gitDir = this.controller.getRepositoryDirectory();
+        if (gitDir == null) {
+            throw new IOException("No repository loaded");
+        }
+        this.gitDirectory = gitDir.toPath();
+
+        WatchService service = FileSystems.getDefault().newWatchService();
+        this.watchService = service;
+
+        try {
+
+            // The git directory itself is watched for packed-refs, and the
+            // refs beneath it, in which loose refs are kept, in full
+            register(gitDir.toPath());
+            registerAll(new File(gitDir, "refs").toPath());
+
+            update();
+
+            while (true) {
+
+                boolean changed = processEvents(service.take());
+
+                // Refs are often rewritten in several steps, so wait for them to settle
+                WatchKey key;
+                while ((key = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= processEvents(key);
+                }
+
+                if (changed) {
+                    update();
+                }
+            }
+
+        } catch (ClosedWatchServiceException e) {
+            // Stopped
+        } finally {
+            this.watchService = null;
+            this.gitDirectory = null;
+            this.directories.clear();
+            service.close();
+        }
+    }
+
+    /**
+     * Stops the watcher, returning from {@link #run()} once any update in
+     * progress completes
+     */
+    public void stop()
+    {
+        WatchService service = this.watchService;
+        if (service == null) {
+            return;
+        }
+
+        try {
+            service.close();
+        } catch (IOException e) {
+            System.out.println("Failed to stop watching: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the watched session
+     *
+     * @return The session, or null if it has not been built successfully
+     */
+    public DiffSession getDiffSession()
+    {
+        return this.diffSession;
+    }
+
+    /**
+     * Extends the session to the current new revision, or rebuilds it if it
+     * cannot be extended, and notifies the listener if it changed
+     */
+    private void update()
+    {
+        DiffSession current = this.diffSession;
+
+        if (current != null) {
+
+            int pairs = this.controller.extendDiffSession(current, this.newRevision, null);
+            if (pairs == 0) {
+                return;
+            }
+
+            if (pairs > 0) {
+                this.listener.sessionUpdated(current);
+                return;
+            }
+        }
+
+        DiffSession rebuilt = this.controller.buildDiffSession(this.baseObjId, this.newRevision);
+        if (rebuilt != null) {
+            this.diffSession = rebuilt;
+            this.listener.sessionUpdated(rebuilt);
+        }
+    }
+
+    /**
+     * Handles the events of the given key, watching any directory created
+     * beneath the refs
+     *
+     * @param key
+     *            The key whose events are pending
+     *
+     * @return Whether any of the events may have changed a ref
+     *
+     * @throws IOException
+     *             if a new directory could not be watched
+     */
+    private boolean processEvents(WatchKey key) throws IOException
+    {
+        Path directory = this.directories.get(key);
+        boolean retVal = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                retVal = true;
+                continue;
+            }
+
+            Path name = (Path) event.context();
+            String fileName = name.toString();
+
+            // Lock files are renamed over the refs they update, which is seen in turn
+            if (directory == null || fileName.endsWith(".lock")) {
+                continue;
+            }
+
+            Path child = directory.resolve(name);
+
+            if (directory.equals(this.gitDirectory)) {
+                if (fileName.equals("packed-refs") || fileName.equals("HEAD")) {
+                    retVal = true;
+                } else if (fileName.equals("refs") && event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    registerAll(child);
+                    retVal = true;
+                }
+                continue;
+            }
+
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                registerAll(child);
+            }
+            retVal = true;
+        }
+
+        if (!key.reset()) {
+            this.directories.remove(key);
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Watches the given directory and every directory beneath it
+     *
+     * @param directory
+     *            The directory
+     *
+     * @throws IOException
+     *             if a directory could not be watched
+     */
+    private void registerAll(Path directory) throws IOException
+    {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        register(directory);
+
+        DirectoryStream<Path> children = Files.newDirectoryStream(directory);
+        try {
+            for (Path child : children) {
+                if (Files.isDirectory(child)) {
+                    registerAll(child);
+                }
+            }
+        } finally {
+            children.close();
+        }
+    }
+
+    /**
+     * Watches the given directory for files being created, modified and deleted
+     *
+     * @param directory
+     *            The directory
+     *
+     * @throws IOException
+     *             if the directory could not be watched
+     */
+    private void register(Path directory) throws IOException
+    {
+        WatchKey key = directory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        this.directories.put(key, directory);
+    }
+
+    /**
+     * Receives the watched session whenever it is built or updated
+     *
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    public interface Listener
+    {
+
+        /**
+         * Called on the watching thread once the session has been built or
+         * updated, before any further change is handled
+         *
+         * @param diffSession
+         *            The session, which is replaced whenever it is rebuilt
+         */
+        void sessionUpdated(DiffSession diffSession);
+    }
+}
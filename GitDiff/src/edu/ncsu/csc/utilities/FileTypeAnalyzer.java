@@ -0,0 +1,108 @@
+package edu.ncsu.csc.utilities;
+
+/**
+ * Describes how changed files of a single type are analyzed.
+ *
+ * A listed type, such as JSP or SQL, is reported as a list of the changed
+ * files under its category. A member-level type, such as Java, is parsed
+ * so that the changed lines of each file are attributed to the methods
+ * containing them.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public final class FileTypeAnalyzer
+{
+
+    /** The category changed files are listed under, or null for a member-level type */
+    private final String            category;
+
+    /** Locates the members of each file, or null for the controller's indexer */
+    private final JavaSourceIndexer sourceIndexer;
+
+    /**
+     * Constructs a new analyzer
+     *
+     * @param category
+     *            The category changed files are listed under, or null for a member-level type
+     * @param sourceIndexer
+     *            Locates the members of each file, or null for the controller's indexer
+     */
+    private FileTypeAnalyzer(String category, JavaSourceIndexer sourceIndexer)
+    {
+        this.category = category;
+        this.sourceIndexer = sourceIndexer;
+    }
+
+    /**
+     * Creates an analyzer listing changed files under the given category
+     *
+     * @param category
+     *            The category, such as "JSP", which names the file's section of the report
+     *
+     * @return The analyzer
+     */
+    public static FileTypeAnalyzer listed(String category)
+    {
+        if (category == null) {
+            throw new IllegalArgumentException("A listed type needs a category");
+        }
+
+        return new FileTypeAnalyzer(category, null);
+    }
+
+    /**
+     * Creates an analyzer attributing the changes of each file to its methods,
+     * located by the controller's indexer as for Java files
+     *
+     * @return The analyzer
+     */
+    public static FileTypeAnalyzer members()
+    {
+        return new FileTypeAnalyzer(null, null);
+    }
+
+    /**
+     * Creates an analyzer attributing the changes of each file to its methods,
+     * located by the given indexer
+     *
+     * @param sourceIndexer
+     *            Locates the methods of each file
+     *
+     * @return The analyzer
+     */
+    public static FileTypeAnalyzer members(JavaSourceIndexer sourceIndexer)
+    {
+        return new FileTypeAnalyzer(null, sourceIndexer);
+    }
+
+    /**
+     * Determines whether files of this type are parsed for their members
+     *
+     * @return Whether this is a member-level type
+     */
+    public boolean isMemberLevel()
+    {
+        return this.category == null;
+    }
+
+    /**
+     * Returns the category changed files of this type are listed under
+     *
+     * @return the category, or null for a member-level type
+     */
+    public String getCategory()
+    {
+        return this.category;
+    }
+
+    /**
+     * Returns the indexer locating the members of each file
+     *
+     * @return the source indexer, or null to use the controller's
+     */
+    public JavaSourceIndexer getSourceIndexer()
+    {
+        return this.sourceIndexer;
+    }
+}
@@ -0,0 +1,251 @@
+package edu.ncsu.csc.utilities;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Tree filter limiting a diff to the files the report is interested in.
+ *
+ * Files are selected by path suffix (typically their extension) and by
+ * path prefix (typically a directory), each with an include and an exclude
+ * set. Suffixes are matched case-insensitively and ignore trailing
+ * whitespace. Because the filter is applied while the trees are walked,
+ * excluded directories are never entered and excluded files are never
+ * compared or loaded.
+ *
+ * An empty include set includes everything; the exclude sets always take
+ * precedence over the include sets.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class FileTypeFilter extends TreeFilter
+{
+
+    /** The suffixes of the files which should be included */
+    private final Set<String> includeSuffixes = new LinkedHashSet<String>();
+
+    /** The suffixes of the files which should be excluded */
+    private final Set<String> excludeSuffixes = new LinkedHashSet<String>();
+
+    /** The path prefixes under which files should be included */
+    private final Set<String> includePrefixes = new LinkedHashSet<String>();
+
+    /** The path prefixes under which files should be excluded */
+    private final Set<String> excludePrefixes = new LinkedHashSet<String>();
+
+    /**
+     * Creates the filter used by default, which includes only the JSP, SQL
+     * and Java files reported upon.
+     *
+     * @return The default filter
+     */
+    public static FileTypeFilter createDefault()
+    {
+        return createFor(FileTypeRegistry.createDefault());
+    }
+
+    /**
+     * Creates a filter including only the files whose types are registered
+     * with the given registry.
+     *
+     * @param registry
+     *            The registry of file types
+     *
+     * @return The filter
+     */
+    public static FileTypeFilter createFor(FileTypeRegistry registry)
+    {
+        FileTypeFilter filter = new FileTypeFilter();
+        for (String extension : registry.getExtensions()) {
+            filter.includeSuffix(extension);
+        }
+        return filter;
+    }
+
+    /**
+     * Includes files whose path ends with the given suffix
+     *
+     * @param suffix
+     *            The path suffix, such as ".java"
+     */
+    public void includeSuffix(String suffix)
+    {
+        this.includeSuffixes.add(suffix);
+    }
+
+    /**
+     * Excludes files whose path ends with the given suffix
+     *
+     * @param suffix
+     *            The path suffix, such as "Test.java"
+     */
+    public void excludeSuffix(String suffix)
+    {
+        this.excludeSuffixes.add(suffix);
+    }
+
+    /**
+     * Includes files beneath the given path prefix
+     *
+     * @param prefix
+     *            The path prefix, such as "src/"
+     */
+    public void includePrefix(String prefix)
+    {
+        this.includePrefixes.add(prefix);
+    }
+
+    /**
+     * Excludes files beneath the given path prefix
+     *
+     * @param prefix
+     *            The path prefix, such as "lib/"
+     */
+    public void excludePrefix(String prefix)
+    {
+        this.excludePrefixes.add(prefix);
+    }
+
+    /**
+     * Determines whether the file at the given path is accepted by this filter
+     *
+     * @param path
+     *            The path of the file
+     *
+     * @return Whether the file is included
+     */
+    public boolean includesFile(String path)
+    {
+        if (startsWithAny(path, this.excludePrefixes)) {
+            return false;
+        }
+
+        if (!this.includePrefixes.isEmpty() && !startsWithAny(path, this.includePrefixes)) {
+            return false;
+        }
+
+        if (endsWithAny(path, this.excludeSuffixes)) {
+            return false;
+        }
+
+        return this.includeSuffixes.isEmpty() || endsWithAny(path, this.includeSuffixes);
+    }
+
+    /**
+     * Determines whether the directory at the given path may contain
+     * files accepted by this filter, and so should be entered.
+     *
+     * @param path
+     *            The path of the directory
+     *
+     * @return Whether the directory should be entered
+     */
+    public boolean includesDirectory(String path)
+    {
+        String dir = path.concat("/");
+
+        if (startsWithAny(dir, this.excludePrefixes)) {
+            return false;
+        }
+
+        if (this.includePrefixes.isEmpty()) {
+            return true;
+        }
+
+        // Enter directories within an included prefix, as well as
+        // the parent directories leading down to one
+        for (String prefix : this.includePrefixes) {
+            if (dir.startsWith(prefix) || prefix.startsWith(dir)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean include(TreeWalk walker)
+    {
+        if (walker.isSubtree()) {
+            return includesDirectory(walker.getPathString());
+        }
+
+        return includesFile(walker.getPathString());
+    }
+
+    @Override
+    public boolean shouldBeRecursive()
+    {
+        return true;
+    }
+
+    @Override
+    public TreeFilter clone()
+    {
+        FileTypeFilter retVal = new FileTypeFilter();
+        retVal.includeSuffixes.addAll(this.includeSuffixes);
+        retVal.excludeSuffixes.addAll(this.excludeSuffixes);
+        retVal.includePrefixes.addAll(this.includePrefixes);
+        retVal.excludePrefixes.addAll(this.excludePrefixes);
+        return retVal;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "FILE_TYPE(include " + this.includePrefixes + this.includeSuffixes + ", exclude " + this.excludePrefixes + this.excludeSuffixes + ")";
+    }
+
+    /**
+     * Determines whether the given path starts with any of the given prefixes
+     *
+     * @param path
+     *            The path to check
+     * @param prefixes
+     *            The prefixes to check against
+     *
+     * @return Whether any prefix matches
+     */
+    private static boolean startsWithAny(String path, Set<String> prefixes)
+    {
+        for (String prefix : prefixes) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Determines whether the given path, ignoring any trailing whitespace,
+     * ends with any of the given suffixes regardless of case.
+     *
+     * @param path
+     *            The path to check
+     * @param suffixes
+     *            The suffixes to check against
+     *
+     * @return Whether any suffix matches
+     */
+    private static boolean endsWithAny(String path, Set<String> suffixes)
+    {
+        int end = path.length();
+        while (end > 0 && Character.isWhitespace(path.charAt(end - 1))) {
+            end--;
+        }
+
+        for (String suffix : suffixes) {
+            int start = end - suffix.length();
+            if (start >= 0 && path.regionMatches(true, start, suffix, 0, suffix.length())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,114 @@
+package edu.ncsu.csc.utilities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Maps file extensions to the analyzers of the files which have them.
+ *
+ * A path is classified by its extension alone, the text following its last
+ * '.', compared regardless of case and ignoring trailing whitespace. So
+ * classifying a path costs a single hash lookup. Files whose extension is
+ * not registered are ignored.
+ *
+ * The default registry lists JSP and SQL files and parses Java files. Other
+ * types, such as ".xml" or ".kt", are added with {@link #register(String, FileTypeAnalyzer)}.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class FileTypeRegistry
+{
+
+    /** The analyzer of each registered extension, lower case and including the '.' */
+    private final LinkedHashMap<String, FileTypeAnalyzer> analyzers = new LinkedHashMap<String, FileTypeAnalyzer>();
+
+    /**
+     * Creates the registry used by default, listing JSP and SQL files and
+     * parsing Java files.
+     *
+     * @return The default registry
+     */
+    public static FileTypeRegistry createDefault()
+    {
+        FileTypeRegistry registry = new FileTypeRegistry();
+        registry.register(".jsp", FileTypeAnalyzer.listed("JSP"));
+        registry.register(".sql", FileTypeAnalyzer.listed("SQL"));
+        registry.register(".java", FileTypeAnalyzer.members());
+        return registry;
+    }
+
+    /**
+     * Registers the analyzer for files with the given extension, replacing any
+     * analyzer already registered for it
+     *
+     * @param extension
+     *            The extension, such as ".xml"
+     * @param analyzer
+     *            The analyzer of the files
+     */
+    public void register(String extension, FileTypeAnalyzer analyzer)
+    {
+        if (!extension.startsWith(".") || extension.indexOf('.', 1) != -1) {
+            throw new IllegalArgumentException("Invalid extension: " + extension);
+        }
+
+        this.analyzers.put(extension.toLowerCase(Locale.ENGLISH), analyzer);
+    }
+
+    /**
+     * Returns the analyzer of the file at the given path
+     *
+     * @param path
+     *            The path of the file
+     *
+     * @return The analyzer, or null if the file's type is not registered
+     */
+    public FileTypeAnalyzer analyzerFor(String path)
+    {
+        int end = path.length();
+        while (end > 0 && Character.isWhitespace(path.charAt(end - 1))) {
+            end--;
+        }
+
+        int dot = path.lastIndexOf('.', end - 1);
+        if (dot == -1 || path.indexOf('/', dot) != -1) {
+            return null;
+        }
+
+        return this.analyzers.get(path.substring(dot, end).toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * Returns every registered extension, in the order registered
+     *
+     * @return The extensions, lower case and including the '.'
+     */
+    public Set<String> getExtensions()
+    {
+        return Collections.unmodifiableSet(this.analyzers.keySet());
+    }
+
+    /**
+     * Returns the categories of the listed types, in the order first registered.
+     * Reports present the lists of changed files in this order.
+     *
+     * @return The categories
+     */
+    public List<String> getCategories()
+    {
+        List<String> retVal = new ArrayList<String>();
+
+        for (FileTypeAnalyzer analyzer : this.analyzers.values()) {
+            if (!analyzer.isMemberLevel() && !retVal.contains(analyzer.getCategory())) {
+                retVal.add(analyzer.getCategory());
+            }
+        }
+
+        return retVal;
+    }
+}
@@ -15,13 +15,20 @@ public class GitDiff
     static GitDiffController controller = new GitDiffController();
 
     /**
-     * Commandline entry-point for the application
+     * Commandline entry-point for the application. Given any arguments, a
+     * single report is generated headlessly by {@link CommandLine}; otherwise
+     * the app window is launched.
      * 
      * @param args
      *            Commandline arguments
      */
     public static void main(String[] args)
     {
+        if (args.length > 0) {
+            System.setProperty("java.awt.headless", "true");
+            System.exit(CommandLine.run(args));
+        }
+
         EventQueue.invokeLater(new Runnable()
         {
             @Override
@@ -1,47 +1,46 @@
 package edu.ncsu.csc.utilities;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import javax.swing.JOptionPane;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.api.errors.NoHeadException;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffEntry.ChangeType;
 import org.eclipse.jgit.diff.DiffFormatter;
-import org.eclipse.jgit.errors.AmbiguousObjectException;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RenameDetector;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
 import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.lib.RepositoryBuilder;
-import org.eclipse.jgit.revplot.PlotCommit;
-import org.eclipse.jgit.revplot.PlotCommitList;
-import org.eclipse.jgit.revplot.PlotLane;
-import org.eclipse.jgit.revplot.PlotWalk;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
-import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
 
 /**
  * The controller class designed to encapsulate
@@ -54,30 +53,68 @@ import org.eclipse.jgit.treewalk.TreeWalk;
 public class GitDiffController
 {
 
+    /** Listener used when the caller is not interested in the progress of a diff */
+    private static final DiffProgressListener NO_PROGRESS = new NoProgress();
+
     /** The repository directory path */
-    private String    filePath  = null;
+    private String                filePath         = null;
 
     /** Reference to the application's window instance */
-    private AppWindow appWindow = null;
+    private AppWindow             appWindow        = null;
 
     /** JGit interface to the loaded repository */
-    private Git       gitInstance;
+    private Git                   gitInstance;
+
+    /** Index of the loaded repository's commits, used to resolve SHA-1s */
+    private CommitIndex           commitIndex      = null;
+
+    /** The pool the loaded repository is acquired from */
+    private RepositoryPool        repositoryPool   = RepositoryPool.getDefault();
+
+    /** The lease on the loaded repository, or null if none is loaded */
+    private RepositoryPool.Lease  repositoryLease  = null;
+
+    /** The number of commit pairs diffed concurrently, 1 meaning sequentially */
+    private int                   parallelism      = 1;
+
+    /** Cache of parsed classes keyed by blob id and indexer, shared by all commit pairs */
+    private ParsedClassCache      classCache       = new ParsedClassCache();
+
+    /** The analyzer of each type of file reported upon */
+    private FileTypeRegistry      fileTypes        = FileTypeRegistry.createDefault();
+
+    /** Filter selecting which files are diffed between each pair of commits */
+    private FileTypeFilter        fileFilter       = FileTypeFilter.createFor(this.fileTypes);
+
+    /** Locates the methods within each Java file */
+    private JavaSourceIndexer     sourceIndexer    = new QDoxSourceIndexer();
+
+    /** Whether renamed and copied files are paired with their sources */
+    private boolean               detectRenames    = false;
+
+    /** The most files considered for inexact rename detection, or -1 for the repository's limit */
+    private int                   renameLimit      = -1;
+
+    /** The similarity, as a percentage, at which a file is considered renamed, or -1 for the default */
+    private int                   renameScore      = -1;
+
+    /** Whether only the base and new commits are diffed, rather than every commit between them */
+    private boolean               endpointsOnly    = false;
 
     /**
      * Attempts to load the repository based on the previously-provided filePath
      */
     public void loadRepository()
     {
-        // Attempt to construct the Repository object
-        Repository repo = null;
+        // Hand the previous repository back to the pool before loading another
+        this.closeRepository();
+
         try {
 
-            RepositoryBuilder builder = new RepositoryBuilder();
-            builder.setMustExist(true);
-            builder.setGitDir(new File(this.filePath.concat("/.git")));
-            repo = builder.build();
+            this.repositoryLease = this.repositoryPool.acquire(new File(this.filePath.concat("/.git")));
 
-            this.gitInstance = new Git(repo);
+            this.gitInstance = new Git(this.repositoryLease.getRepository());
+            this.commitIndex = this.repositoryLease.getCommitIndex();
 
         } catch (IOException e) {
             System.out.println("Failed to obtain repo: " + this.filePath + " " + e.getMessage());
@@ -87,6 +124,25 @@ public class GitDiffController
 
     }
 
+    /**
+     * Releases the loaded repository back to its pool, which closes it once
+     * it is no longer in use and has gone cold. This is the only place the
+     * controller's lease is released, and calling it again has no effect.
+     */
+    public void closeRepository()
+    {
+        RepositoryPool.Lease lease = this.repositoryLease;
+        if (lease == null) {
+            return;
+        }
+
+        this.repositoryLease = null;
+        this.gitInstance = null;
+        this.commitIndex = null;
+
+        this.repositoryPool.release(lease);
+    }
+
     /**
      * Constructs a Linked Map of type SHA-1 (key), Message (value). The contained
      * values represent all commits (in order) starting from the "oldest-ancestor"
@@ -102,7 +158,7 @@ public class GitDiffController
 
         try {
 
-            Iterable<RevCommit> commits = this.gitInstance.log().all().call();
+            List<RevCommit> commits = this.commitIndex.getCommits();
 
             boolean foundTree = (sha1 == null);
             for (RevCommit commit : commits) {
@@ -118,15 +174,25 @@ public class GitDiffController
 
         } catch (IOException e) {
             return retVal;
-        } catch (NoHeadException e1) {
-            return retVal;
-        } catch (GitAPIException e1) {
-            return retVal;
         }
 
         return retVal;
     }
 
+    /**
+     * Resolves the given revision to the full SHA-1 of the commit it names
+     *
+     * @param revision
+     *            The SHA-1 (full or abbreviated) or other revision string
+     *
+     * @return The commit's full SHA-1, or null if no commit matches
+     */
+    public String resolveCommit(String revision)
+    {
+        RevCommit commit = getCommitForHash(revision);
+        return (commit != null) ? commit.getName() : null;
+    }
+
     /**
      * Returns a commit matching the given SHA-1 hash
      * 
@@ -138,29 +204,38 @@ public class GitDiffController
     private RevCommit getCommitForHash(String hash)
     {
         try {
-
-            Iterable<RevCommit> commits = this.gitInstance.log().all().call();
-
-            for (RevCommit commit : commits) {
-                if (commit.getName().equalsIgnoreCase(hash)) {
-                    return commit;
-                }
-            }
-
+            return this.commitIndex.lookup(hash);
         } catch (IOException e) {
             return null;
-        } catch (NoHeadException e1) {
-            return null;
-        } catch (GitAPIException e1) {
-            return null;
         }
+    }
 
-        return null;
+    /**
+     * Determines whether a repository has been successfully loaded
+     * 
+     * @return Whether a repository is loaded
+     */
+    public boolean isRepositoryLoaded()
+    {
+        return this.gitInstance != null;
     }
 
     /**
-     * The driver of the diffing processing between the two given commit hashes.
-     * If you were looking for the party, this is where it's at.
+     * Returns the git directory of the loaded repository, which may differ
+     * from the repository path when it is reached through a link
+     * 
+     * @return The git directory, or null if no repository is loaded
+     */
+    public File getRepositoryDirectory()
+    {
+        Git git = this.gitInstance;
+        return (git != null) ? git.getRepository().getDirectory() : null;
+    }
+
+    /**
+     * Performs the diff between the two given commit hashes, then
+     * writes the resulting report to a temporary file and opens it
+     * in the desktop's editor.
      * 
      * @param baseObjId
      *            The base commit hash
@@ -169,201 +244,371 @@ public class GitDiffController
      */
     public void performDiff(String baseObjId, String newObjId)
     {
+        DiffSession diffSession = buildDiffSession(baseObjId, newObjId);
+
+        if (diffSession != null) {
+            openReport(diffSession);
+        }
+    }
+
+    /**
+     * Performs the diff between the two given commit hashes
+     * 
+     * @param baseObjId
+     *            The base commit hash, which may be abbreviated or any other revision string
+     * @param newObjId
+     *            The new commit hash, which may be abbreviated or any other revision string
+     * 
+     * @return The session holding the results, or null if the diff could not be performed
+     */
+    public DiffSession buildDiffSession(String baseObjId, String newObjId)
+    {
+        return buildDiffSession(baseObjId, newObjId, null);
+    }
+
+    /**
+     * The driver of the diffing processing between the two given commit hashes.
+     * If you were looking for the party, this is where it's at.
+     * 
+     * @param baseObjId
+     *            The base commit hash, which may be abbreviated or any other revision string
+     * @param newObjId
+     *            The new commit hash, which may be abbreviated or any other revision string
+     * @param listener
+     *            Receives the progress of the diff and may cancel it, or null
+     * 
+     * @return The session holding the results, or null if the diff could not be
+     *         performed or was cancelled
+     */
+    public DiffSession buildDiffSession(String baseObjId, String newObjId, DiffProgressListener listener)
+    {
+        DiffProgressListener progress = (listener != null) ? listener : NO_PROGRESS;
+
         Repository repo = this.gitInstance.getRepository();
         RevCommit baseRev = getCommitForHash(baseObjId);
         RevCommit newRev = getCommitForHash(newObjId);
 
-        DiffSession diffSession = new DiffSession();
+        if (baseRev == null || newRev == null) {
+            System.out.println("ERROR: Unknown commit " + ((baseRev == null) ? baseObjId : newObjId));
+            return null;
+        }
+
+        DiffSession diffSession = new DiffSession(this.fileTypes.getCategories());
+
+        DiffMetrics metrics = new DiffMetrics(DiffMetrics.getGlobal());
+        diffSession.setMetrics(metrics);
 
         diffSession.setUserName(repo.getConfig().getString(ConfigConstants.CONFIG_USER_SECTION, null, ConfigConstants.CONFIG_KEY_NAME));
         diffSession.setUserEmail(repo.getConfig().getString(ConfigConstants.CONFIG_USER_SECTION, null, ConfigConstants.CONFIG_KEY_EMAIL));
 
         diffSession.setRepositoryName(new File(this.gitInstance.getRepository().getDirectory().getParent()).getName());
 
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-        String baseDate = dateFormat.format(new Date(baseRev.getCommitTime() * 1000L));
-        String newDate = dateFormat.format(new Date(newRev.getCommitTime() * 1000L));
-
-        diffSession.setBaseCommitMetadata(baseObjId, baseDate, baseRev.getShortMessage());
-        diffSession.setNewCommitMetadata(newObjId, newDate, newRev.getShortMessage());
+        diffSession.setBaseCommitMetadata(baseRev.getName(), formatDate(baseRev), baseRev.getShortMessage());
+        diffSession.setNewCommitMetadata(newRev.getName(), formatDate(newRev), newRev.getShortMessage());
 
         List<DiffEntry> diff;
         try {
-            AbstractTreeIterator oldTreeParser = prepareTreeParser(repo, baseObjId);
-            AbstractTreeIterator newTreeParser = prepareTreeParser(repo, newObjId);
-            diff = this.gitInstance.diff().setOldTree(oldTreeParser).setNewTree(newTreeParser).call();
+            diff = diffTrees(baseRev, newRev);
         } catch (MissingObjectException e1) {
             System.out.println("ERROR: " + e1.getMessage());
-            return;
+            return null;
         } catch (IncorrectObjectTypeException e1) {
             System.out.println("ERROR: " + e1.getMessage());
-            return;
+            return null;
         } catch (IOException e1) {
             System.out.println("ERROR: " + e1.getMessage());
-            return;
+            return null;
         } catch (GitAPIException e1) {
             System.out.println("ERROR: " + e1.getMessage());
-            return;
+            return null;
         }
 
         diffSession.setDeltaCount(diff.size() + "");
+        diffSession.setMode(this.endpointsOnly ? DiffSession.MODE_ENDPOINTS : DiffSession.MODE_HISTORY);
 
-        // Get the plots for each commit
-        PlotCommitList<PlotLane> oldPlots = getPlotCommits(baseObjId);
-        PlotCommitList<PlotLane> newPlots = getPlotCommits(newObjId);
+        // Walk the commits in range, most recent first, and diff each one
+        // against the commit preceding it. Every commit except for the first
+        // and last acts as both the "after" side of one pair and the "before"
+        // side of the next, which exhausts all changes through the history.
+        CommitRangeWalker range = null;
+        try {
 
-        // Construct ordered hash sets to isolate our targets in
-        LinkedHashSet<PlotCommit<PlotLane>> rejectGroup = new LinkedHashSet<PlotCommit<PlotLane>>();
-        LinkedHashSet<PlotCommit<PlotLane>> acceptGroup = new LinkedHashSet<PlotCommit<PlotLane>>();
+            // The range is walked up front so that the number of pairs is known
+            long walkStart = System.nanoTime();
+            ArrayList<RevCommit> commits = new ArrayList<RevCommit>();
 
-        // Add all but the actual base commit to the rejection group
-        for (PlotCommit<PlotLane> item : oldPlots) {
-            if (!item.getName().equalsIgnoreCase(baseObjId)) {
-                rejectGroup.add(item);
-            }
-        }
+            if (this.endpointsOnly) {
 
-        // Remove the commit preceeding the base commit from the filter
-        // This is so that we can measure the delta created by the base commit
-        if (oldPlots.size() > 1) {
-            rejectGroup.remove(oldPlots.get(1));
-        }
+                // Only the net change is wanted, so the new commit is diffed
+                // against the base as a single pair, and each changed file is
+                // parsed at most twice however many commits changed it
+                commits.add(newRev);
+                commits.add(baseRev);
+
+            } else {
 
-        // Basically filter out the "new" list to get only the relevant commits
-        for (PlotCommit<PlotLane> item : newPlots) {
-            if (!rejectGroup.contains(item)) {
-                acceptGroup.add(item);
+                range = new CommitRangeWalker(repo, baseRev, newRev);
+                for (RevCommit commit = range.next(); commit != null; commit = range.next()) {
+                    commits.add(commit);
+                }
             }
-        }
+            metrics.recordWalk(System.nanoTime() - walkStart);
 
-        // This is the most concise solution I've conjured yet. Tricky business, this is.
-        // Each commit except for the first and last can effectively act as a "before"
-        // and "after," each role creating entirely different results and thus need to
-        // be handled mutually exclusively.
-        //
-        // I'm now treating this like a fence post problem in that the first time, I'll
-        // make a pass where I diff the first commit against the second, etc. This makes
-        // the first commit the "old" one and the second commit the "new" one. The
-        // iterators happily allow me to advance things along, but a second pass will be
-        // required so that the *second* commit can be the first "old" commit, then so
-        // forth it will iterate until the last commit is the final "new" commit.
-        //
-        // In other words, as far as diffing is concerned, the first pass excludes the
-        // last ("new" user-selected) commit, while the second pass excludes the first
-        // user-selected commit. This exhausts all possible changes through the history
-        // and provides a fully comprehensive diff report. Perhaps there's a more
-        // efficient means to do this... It simply hasn't occurred to me yet.
+            diffCommits(commits, diffSession, progress);
 
-        Iterator<PlotCommit<PlotLane>> iterator;
-        iterator = acceptGroup.iterator();
+        } catch (IOException e) {
+            System.out.println("ERROR: " + e.getMessage());
+            return null;
+        } catch (CancellationException e) {
+            System.out.println("Diff cancelled");
+            return null;
+        } finally {
+            if (range != null) {
+                range.release();
+            }
+        }
 
-        for (int i = 0; i < 2; i++) {
+        metrics.recordRun();
+        System.out.println("Diff complete: " + metrics.getSummary());
 
-            while (iterator.hasNext()) {
+        return diffSession;
+    }
 
-                PlotCommit<PlotLane> current = iterator.next();
-                if (iterator.hasNext()) {
+    /**
+     * Extends a session previously built by {@link #buildDiffSession} to a new
+     * commit which descends from the session's new commit, diffing only the
+     * pairs of commits the range has gained rather than the whole range.
+     * 
+     * The session can only be extended when every commit added to the range
+     * descends from the session's new commit, in which case the result matches
+     * a rebuild of the range whenever its history is linear. Otherwise, such as
+     * when a branch is rewound or merged with commits from outside the range,
+     * or when the session only diffed its endpoints, the session is left
+     * untouched and must be rebuilt.
+     * 
+     * @param diffSession
+     *            The session to extend
+     * @param newObjId
+     *            The new commit, which may be abbreviated or any other revision string
+     * @param listener
+     *            Receives the progress of the diff and may cancel it, or null
+     * 
+     * @return The number of commit pairs diffed, or -1 if the session must be rebuilt
+     */
+    int extendDiffSession(DiffSession diffSession, String newObjId, DiffProgressListener listener)
+    {
+        DiffProgressListener progress = (listener != null) ? listener : NO_PROGRESS;
 
-                    PlotCommit<PlotLane> previous = iterator.next();
+        if (DiffSession.MODE_ENDPOINTS.equals(diffSession.getMode()) || diffSession.getNewCommit() == null) {
+            return -1;
+        }
 
-                    List<DiffEntry> diffs = diffSingleCommits(previous.getName(), current.getName());
+        Repository repo = this.gitInstance.getRepository();
 
-                    ByteArrayOutputStream out = new ByteArrayOutputStream();
-                    DiffFormatter df = new DiffFormatter(out);
-                    df.setContext(0);
-                    df.setRepository(this.gitInstance.getRepository());
-                    df.setDetectRenames(false);
-                    df.setAbbreviationLength(40);
+        // The new commit is resolved directly, as the commit index would be
+        // rebuilt from the whole history now that the refs have changed
+        RevWalk walk = new RevWalk(repo);
+        try {
 
-                    for (DiffEntry aDiff : diffs) {
+            ObjectId newId = repo.resolve(newObjId);
+            if (newId == null) {
+                System.out.println("ERROR: Unknown commit " + newObjId);
+                return -1;
+            }
 
-                        try {
+            RevCommit newRev = walk.parseCommit(newId);
+            RevCommit oldRev = walk.parseCommit(ObjectId.fromString(diffSession.getNewCommit().getSha1()));
+            RevCommit baseRev = walk.parseCommit(ObjectId.fromString(diffSession.getBaseCommit().getSha1()));
 
-                            df.format(aDiff);
-                            String diffText = out.toString("UTF-8");
-                            out.reset();
+            if (newRev.equals(oldRev)) {
+                return 0;
+            }
 
-                            boolean useOld = false;
-                            boolean useNew = false;
+            DiffMetrics metrics = diffSession.getMetrics();
+            if (metrics == null) {
+                metrics = new DiffMetrics(DiffMetrics.getGlobal());
+                diffSession.setMetrics(metrics);
+            }
 
-                            if (aDiff.getChangeType() == ChangeType.ADD) {
+            // Only the commits which are new to the range are walked
+            long walkStart = System.nanoTime();
+            walk.sort(RevSort.TOPO);
+            walk.markStart(newRev);
+            walk.markUninteresting(oldRev);
 
-                                useNew = true;
+            ArrayList<RevCommit> commits = new ArrayList<RevCommit>();
+            for (RevCommit commit = walk.next(); commit != null; commit = walk.next()) {
+                commits.add(commit);
+            }
 
-                            } else if (aDiff.getChangeType() == ChangeType.DELETE) {
+            // Each new commit must descend from the previous new commit alone,
+            // so that the new pairs precede every pair already diffed
+            if (commits.isEmpty() || !descendsFrom(commits, oldRev)) {
+                return -1;
+            }
 
-                                useOld = true;
+            commits.add(oldRev);
+            metrics.recordWalk(System.nanoTime() - walkStart);
 
-                            } else if (aDiff.getChangeType() == ChangeType.MODIFY) {
+            diffCommits(commits, diffSession, progress);
 
-                                useOld = true;
-                                useNew = true;
+            diffSession.setNewCommitMetadata(newRev.getName(), formatDate(newRev), newRev.getShortMessage());
+            diffSession.setDeltaCount(diffTrees(baseRev, newRev).size() + "");
 
-                            }
+            metrics.recordRun();
+            System.out.println("Update complete: " + (commits.size() - 1) + " new pairs; " + metrics.getSummary());
 
-                            // Process the old blob
-                            if (useOld) {
+            return commits.size() - 1;
 
-                                if (processAsJavaFile(aDiff.getOldPath(), diffSession) == false) {
-                                    continue;
-                                }
+        } catch (IOException e) {
+            System.out.println("ERROR: " + e.getMessage());
+            return -1;
+        } catch (GitAPIException e) {
+            System.out.println("ERROR: " + e.getMessage());
+            return -1;
+        } catch (CancellationException e) {
+            System.out.println("Update cancelled");
+            return -1;
+        } finally {
+            walk.release();
+        }
+    }
 
-                                String oldBlob = fetchBlob(previous.getId(), aDiff.getOldPath());
-                                List<Integer> oldLines = oldLinesAffectedByDiff(oldBlob, diffText);
-                                JavaClassModel oldClass = new JavaClassModel(oldBlob);
-                                String packageName = oldClass.getPackageName();
+    /**
+     * Determines whether every parent of the given commits is either one of
+     * the commits or the given ancestor
+     * 
+     * @param commits
+     *            The commits
+     * @param ancestor
+     *            The commit from which the commits should descend
+     * 
+     * @return Whether the commits descend from the ancestor alone
+     */
+    private static boolean descendsFrom(List<RevCommit> commits, RevCommit ancestor)
+    {
+        HashSet<ObjectId> known = new HashSet<ObjectId>(commits);
+        known.add(ancestor);
 
-                                for (int line : oldLines) {
-                                    diffSession.addChangedMethod(packageName, oldClass.methodSignatureForLine(line));
-                                }
-                            }
+        for (RevCommit commit : commits) {
+            for (RevCommit parent : commit.getParents()) {
+                if (!known.contains(parent)) {
+                    return false;
+                }
+            }
+        }
 
-                            // Process the new blob
-                            if (useNew) {
+        return true;
+    }
 
-                                if (processAsJavaFile(aDiff.getNewPath(), diffSession) == false) {
-                                    continue;
-                                }
+    /**
+     * Diffs every pair of adjacent commits in the given list, either
+     * sequentially or on a pool of workers, and records the results in the
+     * given session
+     * 
+     * @param commits
+     *            The commits, most recent first
+     * @param diffSession
+     *            The session in which the results are stored
+     * @param progress
+     *            Receives the progress of the diff
+     * 
+     * @throws CancellationException
+     *             if the diff is cancelled
+     */
+    private void diffCommits(List<RevCommit> commits, DiffSession diffSession, DiffProgressListener progress)
+    {
+        int pairCount = Math.max(commits.size() - 1, 0);
+        progress.diffStarted(pairCount);
 
-                                String newBlob = fetchBlob(current.getId(), aDiff.getNewPath());
+        if (this.parallelism > 1) {
 
-                                List<Integer> newLines = newLinesAffectedByDiff(newBlob, diffText);
+            diffCommitPairsInParallel(commits, diffSession, progress);
 
-                                JavaClassModel newClass = new JavaClassModel(newBlob);
-                                String packageName = newClass.getPackageName();
+        } else {
 
-                                for (int line : newLines) {
-                                    diffSession.addChangedMethod(packageName, newClass.methodSignatureForLine(line));
-                                }
+            // A single formatter and blob reader serve the whole session
+            DiffFormatter df = newDiffFormatter();
+            BlobReader blobs = new BlobReader(this.gitInstance.getRepository());
 
-                            }
+            try {
 
-                        } catch (UnsupportedEncodingException e) {
-                            System.out.println("Unsupported Encoding Exception: " + e.getMessage());
-                        } catch (IOException e) {
-                            System.out.println("IOException: " + e.getMessage());
-                        }
-                    }
+                for (int idx = 0; idx < pairCount; idx++) {
+                    checkCancelled(progress);
+                    diffCommitPair(df, blobs, commits.get(idx + 1), commits.get(idx), diffSession, progress);
+                    progress.pairDiffed(idx + 1, pairCount);
                 }
-            }
-
-            // Reset the iterator
-            iterator = acceptGroup.iterator();
 
-            // Move past the first item, it's irrelevant now
-            if (iterator.hasNext()) {
-                iterator.next();
+            } finally {
+                blobs.release();
+                df.release();
             }
         }
+    }
 
+    /**
+     * Lists every file which differs between the trees of the given commits,
+     * whatever its type
+     * 
+     * @param baseRev
+     *            The base commit
+     * @param newRev
+     *            The new commit
+     * 
+     * @return The differing files
+     * 
+     * @throws IOException
+     *             if the trees could not be read
+     * @throws GitAPIException
+     *             if the trees could not be compared
+     */
+    private List<DiffEntry> diffTrees(RevCommit baseRev, RevCommit newRev) throws IOException, GitAPIException
+    {
+        Repository repo = this.gitInstance.getRepository();
+
+        AbstractTreeIterator oldTreeParser = prepareTreeParser(repo, baseRev.getName());
+        AbstractTreeIterator newTreeParser = prepareTreeParser(repo, newRev.getName());
+
+        return this.gitInstance.diff().setOldTree(oldTreeParser).setNewTree(newTreeParser).call();
+    }
+
+    /**
+     * Formats the date of the given commit as shown in reports
+     * 
+     * @param commit
+     *            The commit
+     * 
+     * @return The commit's date
+     */
+    private static String formatDate(RevCommit commit)
+    {
+        return new SimpleDateFormat("dd/MM/yyyy").format(new Date(commit.getCommitTime() * 1000L));
+    }
+
+    /**
+     * Writes the report for the given session to a temporary file and
+     * opens it in the desktop's editor
+     * 
+     * @param diffSession
+     *            The session holding the results
+     */
+    public void openReport(DiffSession diffSession)
+    {
         // Attempt to write the output file
 
-        FileOutputStream outputStream = null;
+        Writer writer = null;
         try {
 
             File outputFile = File.createTempFile("JGitDiffTemp", ".txt");
-            outputStream = new FileOutputStream(outputFile);
-            outputStream.write(diffSession.getOutputString().getBytes(Charset.forName("UTF-8")));
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), Charset.forName("UTF-8")));
+            long renderStart = System.nanoTime();
+            new TextReportRenderer().render(diffSession, writer);
+            writer.close();
+            writer = null;
+
+            if (diffSession.getMetrics() != null) {
+                diffSession.getMetrics().recordRender(System.nanoTime() - renderStart);
+            }
 
             java.awt.Desktop.getDesktop().edit(outputFile);
             outputFile.deleteOnExit();
@@ -373,9 +618,9 @@ public class GitDiffController
         } finally {
 
             // Make sure the output stream gets closed
-            if (outputStream != null) {
+            if (writer != null) {
                 try {
-                    outputStream.close();
+                    writer.close();
                 } catch (IOException e) {
                 }
             }
@@ -383,237 +628,312 @@ public class GitDiffController
     }
 
     /**
-     * Determines whether the file at the given path should be processed as a Java file or not.
+     * Diffs every pair of adjacent commits in the given range on a pool
+     * of {@link #getParallelism()} workers. Each pair is diffed with a
+     * formatter and blob reader of its own and recorded in a partial
+     * session of its own, which the worker then merges into the given
+     * session. Merging takes no lock and the session keeps its results
+     * sorted, so the result is identical to that of a sequential run.
      * 
-     * @param path
-     *            The path to the file
+     * @param commits
+     *            The commits of the range, most recent first
      * @param diffSession
-     *            The current diff session
+     *            The session in which the results are stored
+     * @param progress
+     *            Receives the progress of the diff
      * 
-     * @return Whether the file should be treated as a Java file
+     * @throws CancellationException
+     *             if the diff is cancelled
      */
-    private static boolean processAsJavaFile(String path, DiffSession diffSession)
+    private void diffCommitPairsInParallel(List<RevCommit> commits, DiffSession diffSession, DiffProgressListener progress)
     {
-        // If the file is JSP or SQL, it should be handed straight to the diff session
-        // Otherwise, if it's not Java, reject it completed.
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+        ArrayList<ForkJoinTask<Void>> tasks = new ArrayList<ForkJoinTask<Void>>();
 
-        if (path.matches("(.*?)\\.[jJ][sS][pP]\\s*")) {
+        try {
 
-            diffSession.addJspFile(path);
+            for (int idx = 0; idx + 1 < commits.size(); idx++) {
+                tasks.add(pool.submit(new CommitPairTask(commits.get(idx + 1), commits.get(idx), diffSession, progress)));
+            }
 
-        } else if (path.matches("(.*?)\\.[sS][qQ][lL]\\s*")) {
+            for (int idx = 0; idx < tasks.size(); idx++) {
+                tasks.get(idx).join();
+                progress.pairDiffed(idx + 1, tasks.size());
+            }
 
-            diffSession.addSqlFile(path);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
 
-        } else if (path.matches("(.*?)\\.[jJ][aA][vV][aA]\\s*")) {
+    /**
+     * Abandons the diff if the given listener has cancelled it
+     * 
+     * @param progress
+     *            The listener to check
+     * 
+     * @throws CancellationException
+     *             if the diff has been cancelled
+     */
+    private static void checkCancelled(DiffProgressListener progress)
+    {
+        if (progress.isCancelled()) {
+            throw new CancellationException();
+        }
+    }
 
-            return true;
+    /**
+     * Creates a formatter configured to compute the edits between two trees.
+     * Only the files accepted by the file filter are compared. When renames
+     * are detected, files with identical ids are paired first, and only then
+     * are the remaining files compared by content, up to the rename limit.
+     * 
+     * @return The diff formatter
+     */
+    private DiffFormatter newDiffFormatter()
+    {
+        DiffFormatter df = new DiffFormatter(DisabledOutputStream.INSTANCE);
+        df.setContext(0);
+        df.setRepository(this.gitInstance.getRepository());
+        df.setDetectRenames(this.detectRenames);
+        df.setPathFilter(this.fileFilter);
+
+        if (this.detectRenames) {
+            RenameDetector renames = df.getRenameDetector();
+            if (this.renameLimit >= 0) {
+                renames.setRenameLimit(this.renameLimit);
+            }
+            if (this.renameScore >= 0) {
+                renames.setRenameScore(this.renameScore);
+            }
         }
 
-        return false;
+        return df;
     }
 
     /**
-     * Parses a commit diff blob and retrieves the lines affected by
-     * changes in the old file (left side).
+     * Diffs a single pair of adjacent commits and records every changed
+     * file and method in the given session.
      * 
-     * @param blob
-     *            The commit blob
-     * @param diffOutput
-     *            The output from the diff operation
+     * @param df
+     *            The formatter used to diff the pair
+     * @param blobs
+     *            The reader used to fetch changed files
+     * @param previous
+     *            The older commit of the pair
+     * @param current
+     *            The newer commit of the pair
+     * @param diffSession
+     *            The session in which the results are stored
+     * @param progress
+     *            Receives the progress of the diff
      * 
-     * @return A list of modified lines
+     * @throws CancellationException
+     *             if the diff is cancelled
      */
-    private static List<Integer> oldLinesAffectedByDiff(String blob, String diffOutput)
+    private void diffCommitPair(DiffFormatter df, BlobReader blobs, RevCommit previous, RevCommit current, DiffSession diffSession,
+            DiffProgressListener progress)
     {
-        ArrayList<Integer> retVal = new ArrayList<Integer>();
+        DiffMetrics metrics = diffSession.getMetrics();
 
-        Matcher generalMatcher = Pattern.compile("(?<=@@\\s[-+])[0-9]*(,?\\s*)[0-9]*(\\s*[-+])[0-9]*(,?\\s*)[0-9]*(?=\\s@@)").matcher(diffOutput);
+        List<DiffEntry> diffs;
+        long scanStart = System.nanoTime();
+        try {
+            diffs = df.scan(previous.getTree(), current.getTree());
+        } catch (IOException e) {
+            System.out.println("Failed to diff SingleCommits: " + e.getMessage());
+            diffs = new ArrayList<DiffEntry>();
+        }
+        metrics.recordTreeDiff(System.nanoTime() - scanStart, diffs.size());
 
-        while (generalMatcher.find()) {
+        for (DiffEntry aDiff : diffs) {
 
-            String token = generalMatcher.group().trim();
-            token = token.replaceAll("[+-]", "");
-            String[] splitSpace = token.split("\\s");
-            String nibblet = splitSpace[0];
+            checkCancelled(progress);
 
-            if (nibblet.length() == 0) {
-                continue;
-            }
+            try {
 
-            if (nibblet.contains(",")) {
+                EditList edits = null;
 
-                String[] firstChunks = nibblet.split(",");
-                int line = Integer.parseInt(firstChunks[0].replaceAll("[^0-9]*", ""));
-                int range = Integer.parseInt(firstChunks[1].replaceAll("[^0-9]*", ""));
+                boolean useOld = false;
+                boolean useNew = false;
 
-                for (int i = 0; i <= range; i++) {
-                    retVal.add(Integer.valueOf(line++));
-                }
+                if (aDiff.getChangeType() == ChangeType.ADD) {
 
-            } else {
-                retVal.add(Integer.valueOf(Integer.parseInt(nibblet.replaceAll("[^0-9]*", ""))));
-            }
-        }
+                    useNew = true;
 
-        return retVal;
-    }
+                } else if (aDiff.getChangeType() == ChangeType.DELETE) {
 
-    /**
-     * Parses a commit diff blob and retrieves the lines affected by
-     * changes in the new file (right side).
-     * 
-     * @param blob
-     *            The commit blob
-     * @param diffOutput
-     *            The output from the diff operation
-     * 
-     * @return A list of modified lines
-     */
-    private static List<Integer> newLinesAffectedByDiff(String blob, String diffOutput)
-    {
-        ArrayList<Integer> retVal = new ArrayList<Integer>();
+                    useOld = true;
 
-        Matcher generalMatcher = Pattern.compile("(?<=@@\\s[-+])[0-9]*(,?\\s*)[0-9]*(\\s*[-+])[0-9]*(,?\\s*)[0-9]*(?=\\s@@)").matcher(diffOutput);
+                } else if (aDiff.getChangeType() == ChangeType.MODIFY) {
 
-        while (generalMatcher.find()) {
+                    useOld = true;
+                    useNew = true;
 
-            String token = generalMatcher.group().trim();
-            String[] splitSpace = token.split("\\s");
-            if (splitSpace.length < 2) {
-                continue;
-            }
-            String nibblet = splitSpace[1];
+                } else if (aDiff.getOldId().equals(aDiff.getNewId())) {
+
+                    // Renamed or copied without changes, so no method has changed
+                    // and neither side needs to be read; only listed files are recorded
+                    memberAnalyzerFor(aDiff.getNewPath(), diffSession);
+
+                } else if (aDiff.getChangeType() == ChangeType.COPY) {
+
+                    // Copied with changes. The source of a copy is left as it was,
+                    // so only the copy is compared against it
+                    useNew = true;
 
-            if (nibblet.contains(",")) {
+                } else {
 
-                String[] firstChunks = nibblet.split(",");
-                int line = Integer.parseInt(firstChunks[0].replaceAll("[^0-9]*", ""));
-                int range = Integer.parseInt(firstChunks[1].replaceAll("[^0-9]*", ""));
+                    // Renamed with changes, so compare against the source
+                    useOld = true;
+                    useNew = true;
 
-                for (int i = 0; i <= range; i++) {
-                    retVal.add(Integer.valueOf(line++));
                 }
 
-            } else {
-                retVal.add(Integer.valueOf(Integer.parseInt(nibblet.replaceAll("[^0-9]*", ""))));
-            }
-        }
+                // Process the old blob. Each side is analyzed by its own type, and
+                // only a deleted file is listed under its old path
+                FileTypeAnalyzer oldAnalyzer = null;
+                if (useOld) {
+                    oldAnalyzer = memberAnalyzerFor(aDiff.getOldPath(), (aDiff.getChangeType() == ChangeType.DELETE) ? diffSession : null);
+                }
 
-        return retVal;
-    }
+                if (oldAnalyzer != null) {
 
-    /**
-     * Receives two commit hashes, then performs a diff on their "descendant" commit trees.
-     * 
-     * @param oldHash
-     *            The base commit SHA-1
-     * @param newHash
-     *            The new commit SHA-1
-     * 
-     * @return All DiffEntries computed between those commits
-     */
-    private List<DiffEntry> diffSingleCommits(String oldHash, String newHash)
-    {
-        try {
+                    if (edits == null) {
+                        edits = df.toFileHeader(aDiff).toEditList();
+                    }
 
-            AbstractTreeIterator oldTreeParser = prepareTreeParser(this.gitInstance.getRepository(), oldHash);
-            AbstractTreeIterator newTreeParser = prepareTreeParser(this.gitInstance.getRepository(), newHash);
-            return this.gitInstance.diff().setOldTree(oldTreeParser).setNewTree(newTreeParser).call();
+                    List<LineRange> oldLines = HunkExtractor.oldLineRanges(edits);
+                    JavaClassModel oldClass = parseClass(blobs, aDiff.getOldId(), oldAnalyzer, metrics, progress);
+                    if (oldClass != null) {
+                        String packageName = oldClass.getPackageName();
 
-        } catch (GitAPIException e) {
-            System.out.println("(1) Failed to diff SingleCommits: " + e.getMessage());
-        } catch (MissingObjectException e) {
-            System.out.println("(2) Failed to diff SingleCommits: " + e.getMessage());
-        } catch (IncorrectObjectTypeException e) {
-            System.out.println("(3) Failed to diff SingleCommits: " + e.getMessage());
-        } catch (IOException e) {
-            System.out.println("(4) Failed to diff SingleCommits: " + e.getMessage());
-        }
+                        for (LineRange range : oldLines) {
+                            for (JavaMethodModel method : oldClass.methodsOverlapping(range)) {
+                                diffSession.addChangedMethod(packageName, method.getMethodSignature());
+                            }
+                        }
+                    }
+                }
+
+                // Process the new blob
+                FileTypeAnalyzer newAnalyzer = null;
+                if (useNew) {
+                    newAnalyzer = memberAnalyzerFor(aDiff.getNewPath(), diffSession);
+                }
+
+                if (newAnalyzer != null) {
+
+                    if (edits == null) {
+                        edits = df.toFileHeader(aDiff).toEditList();
+                    }
+
+                    List<LineRange> newLines = HunkExtractor.newLineRanges(edits);
+
+                    JavaClassModel newClass = parseClass(blobs, aDiff.getNewId(), newAnalyzer, metrics, progress);
+                    if (newClass != null) {
+                        String packageName = newClass.getPackageName();
 
-        return new ArrayList<DiffEntry>();
+                        for (LineRange range : newLines) {
+                            for (JavaMethodModel method : newClass.methodsOverlapping(range)) {
+                                diffSession.addChangedMethod(packageName, method.getMethodSignature());
+                            }
+                        }
+                    }
+
+                }
+
+            } catch (IOException e) {
+                System.out.println("IOException: " + e.getMessage());
+            }
+        }
 
     }
 
     /**
-     * Given a commit SHA-1, this returns the commit list from the given resource path.
+     * Determines whether the file at the given path should be parsed for its members or not.
      * 
      * @param path
-     *            The resource path
+     *            The path to the file
+     * @param diffSession
+     *            The current diff session, in which a file of a listed type is recorded, or null
+     *            to leave it unrecorded
      * 
-     * @return The list of plot commits
+     * @return The analyzer of the file if it should be parsed, otherwise null
      */
-    public PlotCommitList<PlotLane> getPlotCommits(String path)
+    private FileTypeAnalyzer memberAnalyzerFor(String path, DiffSession diffSession)
     {
-        Repository repo = this.gitInstance.getRepository();
-        PlotCommitList<PlotLane> plotCommitList = new PlotCommitList<PlotLane>();
-        PlotWalk revWalk = new PlotWalk(repo);
-        try {
-
-            ObjectId rootId = repo.resolve(path);
-            if (rootId != null) {
-                RevCommit root = revWalk.parseCommit(rootId);
-                revWalk.markStart(root);
-                plotCommitList.source(revWalk);
-                plotCommitList.fillTo(Integer.MAX_VALUE);
-            }
+        // If the file is of a listed type, it should be handed straight to the diff session
+        // Otherwise, if it's not of a member-level type, reject it completely.
 
-        } catch (AmbiguousObjectException ex) {
+        FileTypeAnalyzer analyzer = this.fileTypes.analyzerFor(path);
 
-        } catch (IOException ex) {
+        if (analyzer == null) {
+            return null;
+        }
 
+        if (!analyzer.isMemberLevel()) {
+            if (diffSession != null) {
+                diffSession.addListedFile(analyzer.getCategory(), path);
+            }
+            return null;
         }
-        return plotCommitList;
+
+        return analyzer;
     }
 
     /**
-     * Fetches a blob from the given commit object identifier at the given file path.
-     * Essentially reconstructs the file at the snapshot in time of the commit.
+     * Returns the parsed class for the given blob, parsing it only if it
+     * is not already held by the class cache.
      * 
-     * @param id
-     *            The commit identifier
-     * @param path
-     *            The path of the file for which we need the blob.
+     * @param blobs
+     *            The reader used to fetch the blob
+     * @param blobId
+     *            The object id of the blob
+     * @param analyzer
+     *            The analyzer of the blob's file type
+     * @param metrics
+     *            Records the time spent reading and parsing the blob
+     * @param progress
+     *            Notified if the blob is parsed
      * 
-     * @return A String representation of the file
+     * @return The parsed class, or null if the blob could not be read
      */
-    private String fetchBlob(ObjectId id, String path)
+    private JavaClassModel parseClass(BlobReader blobs, AbbreviatedObjectId blobId, FileTypeAnalyzer analyzer, DiffMetrics metrics,
+            DiffProgressListener progress)
     {
-        Repository repo = this.gitInstance.getRepository();
+        ObjectId key = blobId.isComplete() ? blobId.toObjectId() : null;
 
-        // Makes it simpler to release the allocated resources in one go
-        ObjectReader reader = repo.newObjectReader();
+        JavaSourceIndexer indexer = (analyzer.getSourceIndexer() != null) ? analyzer.getSourceIndexer() : this.sourceIndexer;
+        JavaClassModel retVal = (key != null) ? this.classCache.get(indexer, key) : null;
 
-        try {
-            // Get the commit object for that revision
-            RevWalk walk = new RevWalk(reader);
+        if (retVal == null) {
 
-            RevCommit commit = walk.parseCommit(id);
+            try {
+                long readStart = System.nanoTime();
+                byte[] content = blobs.getBytes(blobId);
+                metrics.recordBlobRead(System.nanoTime() - readStart, content.length);
 
-            // Get the revision's file tree
-            RevTree tree = commit.getTree();
-            // .. and narrow it down to the single file's path
-            TreeWalk treewalk = TreeWalk.forPath(reader, path, tree);
+                long parseStart = System.nanoTime();
+                retVal = indexer.index(BlobReader.decode(content));
+                metrics.recordParse(System.nanoTime() - parseStart);
 
-            if (treewalk != null) {
-                // use the blob id to read the file's data
-                byte[] data = reader.open(treewalk.getObjectId(0)).getBytes();
-                return new String(data, "utf-8");
+                progress.fileParsed();
+            } catch (IOException e) {
+                System.out.println("Failed to read blob " + blobId.name() + ": " + e.getMessage());
+                return null;
             }
 
-            return null;
+            if (key != null) {
+                this.classCache.put(indexer, key, retVal);
+            }
 
-        } catch (MissingObjectException e) {
-            return "ERROR 1: " + e.getMessage();
-        } catch (IncorrectObjectTypeException e) {
-            return "ERROR 2: " + e.getMessage();
-        } catch (IOException e) {
-            return "ERROR 3: " + e.getMessage();
-        } catch (NullPointerException e) {
-            return null;
-        } finally {
-            reader.release();
+        } else {
+
+            metrics.recordCacheHit();
         }
+
+        return retVal;
     }
 
     /**
@@ -650,6 +970,246 @@ public class GitDiffController
         return oldTreeParser;
     }
 
+    /**
+     * Returns the number of commit pairs which are diffed concurrently
+     * 
+     * @return the parallelism, 1 meaning pairs are diffed sequentially
+     */
+    public int getParallelism()
+    {
+        return this.parallelism;
+    }
+
+    /**
+     * Sets the number of commit pairs which are diffed concurrently
+     * 
+     * @param parallelism
+     *            the parallelism to set, 1 meaning pairs are diffed sequentially
+     */
+    public void setParallelism(int parallelism)
+    {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the cache of parsed classes used by the controller
+     * 
+     * @return the class cache
+     */
+    public ParsedClassCache getClassCache()
+    {
+        return this.classCache;
+    }
+
+    /**
+     * Sets the cache of parsed classes used by the controller
+     * 
+     * @param classCache
+     *            the class cache to use
+     */
+    public void setClassCache(ParsedClassCache classCache)
+    {
+        this.classCache = classCache;
+    }
+
+    /**
+     * Returns the pool repositories are acquired from
+     *
+     * @return the repository pool
+     */
+    public RepositoryPool getRepositoryPool()
+    {
+        return this.repositoryPool;
+    }
+
+    /**
+     * Sets the pool repositories are acquired from. A loaded repository is
+     * released to the previous pool and acquired again from the new one.
+     *
+     * @param repositoryPool
+     *            the repository pool to use
+     */
+    public void setRepositoryPool(RepositoryPool repositoryPool)
+    {
+        boolean loaded = this.isRepositoryLoaded();
+
+        this.closeRepository();
+        this.repositoryPool = repositoryPool;
+
+        if (loaded) {
+            this.loadRepository();
+        }
+    }
+
+    /**
+     * Returns the registry of the file types reported upon
+     * 
+     * @return the file type registry
+     */
+    public FileTypeRegistry getFileTypes()
+    {
+        return this.fileTypes;
+    }
+
+    /**
+     * Sets the registry of the file types reported upon. The file filter is
+     * replaced by one including exactly the registered types, so any custom
+     * filter should be set afterwards.
+     * 
+     * @param fileTypes
+     *            the file type registry to use
+     */
+    public void setFileTypes(FileTypeRegistry fileTypes)
+    {
+        this.fileTypes = fileTypes;
+        this.fileFilter = FileTypeFilter.createFor(fileTypes);
+    }
+
+    /**
+     * Determines whether renamed and copied files are paired with their sources
+     * 
+     * @return whether renames are detected
+     */
+    public boolean isDetectRenames()
+    {
+        return this.detectRenames;
+    }
+
+    /**
+     * Sets whether renamed and copied files are paired with their sources.
+     * Otherwise a moved file is diffed as the deletion of its old path and
+     * the addition of its new one, so every one of its methods is reported.
+     * 
+     * @param detectRenames
+     *            whether renames should be detected
+     */
+    public void setDetectRenames(boolean detectRenames)
+    {
+        this.detectRenames = detectRenames;
+    }
+
+    /**
+     * Returns the most files considered for inexact rename detection
+     * 
+     * @return the rename limit, 0 for no limit, or -1 for the repository's limit
+     */
+    public int getRenameLimit()
+    {
+        return this.renameLimit;
+    }
+
+    /**
+     * Sets the most files considered for inexact rename detection. Pairs with
+     * more added or deleted files than this are only checked for exact renames.
+     * 
+     * @param renameLimit
+     *            the rename limit, 0 for no limit, or -1 for the repository's limit
+     */
+    public void setRenameLimit(int renameLimit)
+    {
+        this.renameLimit = renameLimit;
+    }
+
+    /**
+     * Returns the similarity at which a file is considered renamed
+     * 
+     * @return the rename score as a percentage, or -1 for the default
+     */
+    public int getRenameScore()
+    {
+        return this.renameScore;
+    }
+
+    /**
+     * Sets the similarity at which a file is considered renamed
+     * 
+     * @param renameScore
+     *            the rename score as a percentage, or -1 for the default
+     */
+    public void setRenameScore(int renameScore)
+    {
+        if (renameScore > 100) {
+            throw new IllegalArgumentException("Rename score must be at most 100");
+        }
+
+        this.renameScore = renameScore;
+    }
+
+    /**
+     * Gets whether only the base and new commits are diffed
+     * 
+     * @return whether only the endpoints of the range are diffed
+     */
+    public boolean isEndpointsOnly()
+    {
+        return this.endpointsOnly;
+    }
+
+    /**
+     * Sets whether only the base and new commits are diffed. When set, the
+     * net change between the two commits is mapped onto the methods of their
+     * files, and the commits between them are not visited. A method changed
+     * and later restored is then not reported, nor are the changes made by
+     * the base commit itself, which a diff of the whole history includes.
+     * 
+     * @param endpointsOnly
+     *            whether only the endpoints of the range should be diffed
+     */
+    public void setEndpointsOnly(boolean endpointsOnly)
+    {
+        this.endpointsOnly = endpointsOnly;
+    }
+
+    /**
+     * Returns the filter selecting which files are diffed between each pair of commits
+     * 
+     * @return the file filter
+     */
+    public FileTypeFilter getFileFilter()
+    {
+        return this.fileFilter;
+    }
+
+    /**
+     * Sets the filter selecting which files are diffed between each pair of commits
+     * 
+     * @param fileFilter
+     *            the file filter to use
+     */
+    public void setFileFilter(FileTypeFilter fileFilter)
+    {
+        this.fileFilter = fileFilter;
+    }
+
+    /**
+     * Returns the indexer locating the methods within each Java file
+     * 
+     * @return the source indexer
+     */
+    public JavaSourceIndexer getSourceIndexer()
+    {
+        return this.sourceIndexer;
+    }
+
+    /**
+     * Sets the indexer locating the methods within each Java file. The class
+     * cache is cleared, as the classes it holds were indexed by the previous one.
+     * 
+     * @param sourceIndexer
+     *            the source indexer to use
+     */
+    public void setSourceIndexer(JavaSourceIndexer sourceIndexer)
+    {
+        if (sourceIndexer != this.sourceIndexer) {
+            this.sourceIndexer = sourceIndexer;
+            this.classCache.clear();
+        }
+    }
+
     /**
      * @return the appWindow
      */
@@ -693,7 +1253,109 @@ public class GitDiffController
      */
     public void showAlert(String message)
     {
+        // Without a window, as when run from the command line, errors
+        // are only logged to the console
+        if (this.appWindow == null) {
+            return;
+        }
+
         JOptionPane.showMessageDialog(this.appWindow.getFrame(), message, "JGitDiff", JOptionPane.ERROR_MESSAGE);
     }
 
+    /**
+     * Diffs a single pair of adjacent commits into a partial session
+     * of its own, allowing pairs to be diffed concurrently, and merges
+     * it into the shared session once complete.
+     * 
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    private class CommitPairTask implements Callable<Void>
+    {
+        /** The older commit of the pair */
+        private final RevCommit            previous;
+
+        /** The newer commit of the pair */
+        private final RevCommit            current;
+
+        /** The session the pair's results are merged into */
+        private final DiffSession          diffSession;
+
+        /** Receives the progress of the diff */
+        private final DiffProgressListener progress;
+
+        /**
+         * Constructs a new task for the given pair of commits
+         * 
+         * @param previous
+         *            The older commit of the pair
+         * @param current
+         *            The newer commit of the pair
+         * @param diffSession
+         *            The session the pair's results are merged into
+         * @param progress
+         *            Receives the progress of the diff
+         */
+        public CommitPairTask(RevCommit previous, RevCommit current, DiffSession diffSession, DiffProgressListener progress)
+        {
+            this.previous = previous;
+            this.current = current;
+            this.diffSession = diffSession;
+            this.progress = progress;
+        }
+
+        @Override
+        public Void call()
+        {
+            checkCancelled(this.progress);
+
+            DiffSession partial = new DiffSession(GitDiffController.this.fileTypes.getCategories());
+            partial.setMetrics(this.diffSession.getMetrics());
+
+            DiffFormatter df = newDiffFormatter();
+            BlobReader blobs = new BlobReader(GitDiffController.this.gitInstance.getRepository());
+
+            try {
+                diffCommitPair(df, blobs, this.previous, this.current, partial, this.progress);
+            } finally {
+                blobs.release();
+                df.release();
+            }
+
+            this.diffSession.merge(partial);
+            return null;
+        }
+    }
+
+    /**
+     * Progress listener which ignores the progress of a diff and never
+     * cancels it.
+     * 
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    private static class NoProgress implements DiffProgressListener
+    {
+        @Override
+        public void diffStarted(int pairCount)
+        {
+        }
+
+        @Override
+        public void pairDiffed(int pairsDone, int pairCount)
+        {
+        }
+
+        @Override
+        public void fileParsed()
+        {
+        }
+
+        @Override
+        public boolean isCancelled()
+        {
+            return false;
+        }
+    }
+
 }
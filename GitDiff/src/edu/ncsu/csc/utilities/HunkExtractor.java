@@ -0,0 +1,131 @@
+package edu.ncsu.csc.utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+
+/**
+ * Converts the edit list computed for a single file into the ranges of
+ * lines affected on either side of the change.
+ *
+ * Edits are grouped into hunks exactly as a zero-context unified diff
+ * would group them, and each hunk yields a range spanning the same lines
+ * previously read from that diff's "@@ -a,b +c,d @@" hunk header. Every
+ * returned {@link LineRange} covers the lines from its index through
+ * index + length, inclusive, matching the way method ranges are treated.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public final class HunkExtractor
+{
+
+    /**
+     * Not instantiable
+     */
+    private HunkExtractor()
+    {
+    }
+
+    /**
+     * Retrieves the lines affected by the given edits in the old file (left side)
+     *
+     * @param edits
+     *            The edits computed for the file
+     *
+     * @return The ranges of modified lines
+     */
+    public static List<LineRange> oldLineRanges(EditList edits)
+    {
+        ArrayList<LineRange> retVal = new ArrayList<LineRange>();
+
+        for (int idx = 0; idx < edits.size();) {
+
+            int end = findHunkEnd(edits, idx);
+            retVal.add(toLineRange(edits.get(idx).getBeginA(), edits.get(end).getEndA()));
+            idx = end + 1;
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Retrieves the lines affected by the given edits in the new file (right side)
+     *
+     * @param edits
+     *            The edits computed for the file
+     *
+     * @return The ranges of modified lines
+     */
+    public static List<LineRange> newLineRanges(EditList edits)
+    {
+        ArrayList<LineRange> retVal = new ArrayList<LineRange>();
+
+        for (int idx = 0; idx < edits.size();) {
+
+            int end = findHunkEnd(edits, idx);
+            retVal.add(toLineRange(edits.get(idx).getBeginB(), edits.get(end).getEndB()));
+            idx = end + 1;
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Finds the index of the last edit belonging to the hunk which starts at
+     * the given index. Without any context lines, edits only share a hunk when
+     * they touch one another on either side.
+     *
+     * @param edits
+     *            The edits computed for the file
+     * @param start
+     *            The index of the first edit in the hunk
+     *
+     * @return The index of the last edit in the hunk
+     */
+    private static int findHunkEnd(EditList edits, int start)
+    {
+        int end = start;
+
+        while (end + 1 < edits.size()) {
+
+            Edit current = edits.get(end);
+            Edit next = edits.get(end + 1);
+
+            if (next.getBeginA() > current.getEndA() && next.getBeginB() > current.getEndB()) {
+                break;
+            }
+
+            end++;
+        }
+
+        return end;
+    }
+
+    /**
+     * Converts the zero-based, end-exclusive span of a hunk into the line
+     * range denoted by its hunk header. An empty span is reported as the
+     * line just before it and a single line as just that line.
+     *
+     * @param begin
+     *            The zero-based index of the first line in the hunk
+     * @param end
+     *            The zero-based index just past the last line in the hunk
+     *
+     * @return The affected line range
+     */
+    private static LineRange toLineRange(int begin, int end)
+    {
+        int count = end - begin;
+
+        if (count == 0) {
+            return new LineRange(begin, 0);
+        } else if (count == 1) {
+            return new LineRange(begin + 1, 0);
+        }
+
+        return new LineRange(begin + 1, count);
+    }
+}
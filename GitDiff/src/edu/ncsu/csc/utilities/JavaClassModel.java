@@ -2,6 +2,8 @@ package edu.ncsu.csc.utilities;
 
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
 
 import com.thoughtworks.qdox.JavaProjectBuilder;
 import com.thoughtworks.qdox.model.JavaClass;
@@ -16,15 +18,21 @@ import com.thoughtworks.qdox.model.JavaMethod;
 public class JavaClassModel
 {
 
-    /** The QDox representation of the class object */
-    private JavaClass                  classRep      = null;
-
     /** The methods declared in the class' source code */
     private ArrayList<JavaMethodModel> methodList    = new ArrayList<JavaMethodModel>();
 
     /** The class' fully qualified package string */
     private String                     packageString = null;
 
+    /** First line of each disjoint segment of the method index, in ascending order */
+    private int[]                      segmentStarts = new int[0];
+
+    /** Last line of each disjoint segment of the method index */
+    private int[]                      segmentEnds   = new int[0];
+
+    /** Position in the method list of the method owning each segment */
+    private int[]                      segmentOwners = new int[0];
+
     /**
      * Constructs a new JavaClassModel with the given
      * source code blob
@@ -38,7 +46,8 @@ public class JavaClassModel
         // hopefully parse the class into a usable class
         // "JavaClass" structure. Then use the parsed JavaClass
         // to get the parts we want converted for storage in
-        // this model.
+        // this model. The QDox model itself is not retained so
+        // that parsed classes stay small enough to be cached.
 
         JavaProjectBuilder builder = new JavaProjectBuilder();
 
@@ -49,14 +58,34 @@ public class JavaClassModel
             return;
         }
 
-        this.classRep = (JavaClass) builder.getClasses().toArray()[0];
+        JavaClass classRep = (JavaClass) builder.getClasses().toArray()[0];
 
-        this.packageString = this.classRep.getGenericFullyQualifiedName();
+        this.packageString = classRep.getGenericFullyQualifiedName();
 
-        for (JavaMethod aMethod : this.classRep.getMethods()) {
+        for (JavaMethod aMethod : classRep.getMethods()) {
             addMethod(new JavaMethodModel(aMethod));
         }
 
+        this.methodList.trimToSize();
+        buildMethodIndex();
+    }
+
+    /**
+     * Constructs a new JavaClassModel from methods which have
+     * already been located within the class' source code
+     *
+     * @param packageString
+     *            The class' fully qualified package string
+     * @param methods
+     *            The methods declared in the class, in source order
+     */
+    public JavaClassModel(String packageString, List<JavaMethodModel> methods)
+    {
+        this.packageString = packageString;
+        this.methodList.addAll(methods);
+
+        this.methodList.trimToSize();
+        buildMethodIndex();
     }
 
     /**
@@ -90,6 +119,30 @@ public class JavaClassModel
         return this.packageString;
     }
 
+    /**
+     * Estimates the number of bytes of heap retained by this model,
+     * used to keep caches of parsed classes within a memory budget.
+     * 
+     * @return The estimated size in bytes
+     */
+    long estimateSize()
+    {
+        // Object headers and references are approximated at 16 and 8 bytes,
+        // Strings at 40 bytes plus two bytes per character
+        long size = 16 + 4 * 8 + 3 * (16 + 4L * this.segmentStarts.length);
+        size += 16 + 8L * this.methodList.size();
+
+        if (this.packageString != null) {
+            size += 40 + 2L * this.packageString.length();
+        }
+
+        for (JavaMethodModel method : this.methodList) {
+            size += 16 + 2 * 8 + 24 + 40 + 2L * method.getMethodSignature().length();
+        }
+
+        return size;
+    }
+
     /**
      * Takes a line number and returns the method context
      * in which that line resides. If the line is not
@@ -102,16 +155,128 @@ public class JavaClassModel
      */
     public String methodSignatureForLine(int line)
     {
-        for (JavaMethodModel method : this.methodList) {
+        int idx = findSegment(line);
+
+        if (idx < this.segmentStarts.length && this.segmentStarts[idx] <= line) {
+            return this.methodList.get(this.segmentOwners[idx]).getMethodSignature();
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns every method whose lines overlap the given range, in the order in
+     * which they appear in the source. As with {@link #methodSignatureForLine(int)},
+     * a line claimed by more than one method is attributed to the method declared
+     * first, so the result matches looking up each line of the range individually.
+     * 
+     * @param range
+     *            The range of lines, covering index through index + length inclusive
+     * 
+     * @return The overlapping methods
+     */
+    public List<JavaMethodModel> methodsOverlapping(LineRange range)
+    {
+        ArrayList<JavaMethodModel> retVal = new ArrayList<JavaMethodModel>();
+
+        int first = range.getIndex();
+        int last = range.getIndex() + range.getLength();
+
+        boolean[] seen = null;
 
-            int index = method.getLineRange().index;
-            int length = method.getLineRange().length;
+        for (int idx = findSegment(first); idx < this.segmentStarts.length && this.segmentStarts[idx] <= last; idx++) {
 
-            if (index <= line && line <= (index + length)) {
-                return method.getMethodSignature();
+            if (seen == null) {
+                seen = new boolean[this.methodList.size()];
+            }
+
+            int owner = this.segmentOwners[idx];
+            if (!seen[owner]) {
+                seen[owner] = true;
+                retVal.add(this.methodList.get(owner));
             }
         }
 
-        return null;
+        return retVal;
+    }
+
+    /**
+     * Finds the first segment of the method index which ends at or after the given line
+     * 
+     * @param line
+     *            The line number to search for
+     * 
+     * @return The index of the segment, or the number of segments if there is none
+     */
+    private int findSegment(int line)
+    {
+        int low = 0;
+        int high = this.segmentEnds.length;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.segmentEnds[mid] < line) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Builds the sorted interval index used to look up methods by line.
+     * 
+     * Method ranges may overlap, in which case the method declared first
+     * owns the shared lines. The index therefore stores the disjoint
+     * segments left after each method, in declaration order, claims
+     * whichever of its lines remain unclaimed.
+     */
+    private void buildMethodIndex()
+    {
+        TreeMap<Integer, int[]> segments = new TreeMap<Integer, int[]>();
+
+        for (int owner = 0; owner < this.methodList.size(); owner++) {
+
+            LineRange range = this.methodList.get(owner).getLineRange();
+            int next = range.getIndex();
+            int last = range.getIndex() + range.getLength();
+
+            // Begin with any segment starting before the range which may still cover part of it
+            Integer key = segments.floorKey(Integer.valueOf(next));
+            if (key == null) {
+                key = Integer.valueOf(next);
+            }
+
+            for (int[] claimed : new ArrayList<int[]>(segments.subMap(key, true, Integer.valueOf(last), true).values())) {
+
+                if (claimed[1] < next) {
+                    continue;
+                }
+
+                if (claimed[0] > next) {
+                    segments.put(Integer.valueOf(next), new int[] { next, claimed[0] - 1, owner });
+                }
+
+                next = claimed[1] + 1;
+            }
+
+            if (next <= last) {
+                segments.put(Integer.valueOf(next), new int[] { next, last, owner });
+            }
+        }
+
+        this.segmentStarts = new int[segments.size()];
+        this.segmentEnds = new int[segments.size()];
+        this.segmentOwners = new int[segments.size()];
+
+        int idx = 0;
+        for (int[] segment : segments.values()) {
+            this.segmentStarts[idx] = segment[0];
+            this.segmentEnds[idx] = segment[1];
+            this.segmentOwners[idx] = segment[2];
+            idx++;
+        }
     }
 }
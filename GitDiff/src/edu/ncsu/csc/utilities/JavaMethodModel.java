@@ -27,32 +27,46 @@ public class JavaMethodModel
      */
     public JavaMethodModel(final JavaMethod aMethod)
     {
-        // Use a StringBuilder to construct the formatted signature,
-        // starting by removing the existing parameter list (they are
-        // fully qualified, which is too verbose) and appending our
-        // own, more concise version.
+        // Use a StringBuilder to construct the formatted signature
+        // from the method's name and our own concise version of its
+        // parameter list (QDox's are fully qualified, which is too
+        // verbose).
         //
-        // Then get the line count the old fashioned way
-        String noParams = aMethod.getCallSignature().replaceAll("\\(.*\\)", "");
-        StringBuilder sigBuilder = new StringBuilder(noParams);
+        // Then get the line count from the method's code block
+        StringBuilder sigBuilder = new StringBuilder(aMethod.getName());
 
         sigBuilder.append("(");
 
+        boolean first = true;
         for (JavaType param : aMethod.getParameterTypes()) {
-            sigBuilder.append(param.getValue() + ", ");
+            if (!first) {
+                sigBuilder.append(", ");
+            }
+            sigBuilder.append(param.getValue());
+            first = false;
         }
 
-        int idx = sigBuilder.lastIndexOf(",");
-        if (idx != -1) {
-            this.methodSignature = sigBuilder.substring(0, idx).replaceAll("[,]?\\s*$", "").concat(")");
-        } else {
-            this.methodSignature = sigBuilder.toString().replaceAll("[,]?\\s*$", "").concat(")");
-        }
+        this.methodSignature = sigBuilder.append(")").toString();
 
-        int lineCount = aMethod.getCodeBlock().split("(?:\r\n|[\r\n])").length + 1;
+        int lineCount = countLines(aMethod.getCodeBlock()) + 1;
         this.linesRange = new LineRange(aMethod.getLineNumber(), lineCount);
     }
 
+    /**
+     * Constructs a new JavaMethodModel with the given
+     * signature and range of lines.
+     * 
+     * @param methodSignature
+     *            The signature String of the method
+     * @param linesRange
+     *            The range of lines the method encompasses
+     */
+    public JavaMethodModel(String methodSignature, LineRange linesRange)
+    {
+        this.methodSignature = methodSignature;
+        this.linesRange = linesRange;
+    }
+
     /**
      * Returns the fully qualified method signature String for the method
      * 
@@ -73,4 +87,37 @@ public class JavaMethodModel
         return this.linesRange;
     }
 
+    /**
+     * Counts the lines of the given text, where "\r\n", "\r" and "\n" each end a
+     * line and trailing empty lines are not counted. This is the number of
+     * elements String.split would return for those line separators, without
+     * compiling a pattern or allocating the lines.
+     * 
+     * @param text
+     *            The text whose lines are counted
+     * 
+     * @return The number of lines
+     */
+    static int countLines(String text)
+    {
+        int end = text.length();
+        while (end > 0 && (text.charAt(end - 1) == '\n' || text.charAt(end - 1) == '\r')) {
+            end--;
+        }
+
+        if (end == 0) {
+            return text.isEmpty() ? 1 : 0;
+        }
+
+        int retVal = 1;
+        for (int idx = 0; idx < end; idx++) {
+            char c = text.charAt(idx);
+            if (c == '\n' || (c == '\r' && (idx + 1 == text.length() || text.charAt(idx + 1) != '\n'))) {
+                retVal++;
+            }
+        }
+
+        return retVal;
+    }
+
 }
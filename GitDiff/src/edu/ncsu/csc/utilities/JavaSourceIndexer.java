@@ -0,0 +1,27 @@
+package edu.ncsu.csc.utilities;
+
+/**
+ * Locates the methods declared in a Java source file, producing the
+ * signature and line span of each one.
+ *
+ * Only the first type declared in the source is indexed, and only the
+ * methods declared directly within it; constructors and the members of
+ * nested and anonymous classes are not included. Implementations must be
+ * safe to share between threads.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public interface JavaSourceIndexer
+{
+
+    /**
+     * Indexes the first type declared in the given source code
+     *
+     * @param source
+     *            The source code of a Java file
+     *
+     * @return The model of the indexed class
+     */
+    JavaClassModel index(String source);
+}
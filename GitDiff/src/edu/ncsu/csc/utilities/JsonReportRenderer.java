@@ -0,0 +1,188 @@
+package edu.ncsu.csc.utilities;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Renders the report as a single JSON object, for consumption by other tools.
+ *
+ * The object holds the report's metadata, including the "mode" the session
+ * was built in, along with an array of paths for each category of listed
+ * files, such as "jspFiles" and "sqlFiles", and the "javaClasses" array, in
+ * which each class is an object holding its "name" and the "methods" array
+ * of its changed method signatures. Every array is sorted.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class JsonReportRenderer implements ReportRenderer
+{
+
+    @Override
+    public void render(DiffSession diffSession, Writer writer) throws IOException
+    {
+        writer.write("{\n");
+        writer.write("  \"repository\": ");
+        writeString(diffSession.getRepositoryName(), writer);
+        writer.write(",\n  \"date\": ");
+        writeString(new SimpleDateFormat("yyyy-MM-dd").format(new Date()), writer);
+        writer.write(",\n  \"user\": { \"name\": ");
+        writeString(diffSession.getUserName(), writer);
+        writer.write(", \"email\": ");
+        writeString(diffSession.getUserEmail(), writer);
+        writer.write(" },\n  \"mode\": ");
+        writeString(diffSession.getMode().toLowerCase(Locale.ENGLISH), writer);
+        writer.write(",\n  \"deltaCount\": ");
+        if (diffSession.getDeltaCount().matches("\\d+")) {
+            writer.write(diffSession.getDeltaCount());
+        } else {
+            writeString(diffSession.getDeltaCount(), writer);
+        }
+        writer.write(",\n  \"baseCommit\": ");
+        writeCommit(diffSession.getBaseCommit(), writer);
+        writer.write(",\n  \"newCommit\": ");
+        writeCommit(diffSession.getNewCommit(), writer);
+
+        for (String category : diffSession.getCategories()) {
+            writer.write(",\n  ");
+            writeString(category.toLowerCase(Locale.ENGLISH) + "Files", writer);
+            writer.write(": ");
+            writeStrings(diffSession.getListedFiles(category).iterator(), "    ", writer);
+        }
+
+        writer.write(",\n  \"javaClasses\": [");
+
+        boolean first = true;
+        for (SignatureStore.ChangedClass pkg : diffSession.getChangedClasses()) {
+
+            writer.write(first ? "\n    { \"name\": " : ",\n    { \"name\": ");
+            writeString(pkg.getName(), writer);
+            writer.write(", \"methods\": ");
+            writeStrings(pkg.getMethodSignatures().iterator(), "        ", writer);
+            writer.write(" }");
+            first = false;
+        }
+
+        writer.write(first ? "]\n}\n" : "\n  ]\n}\n");
+    }
+
+    @Override
+    public String getFileExtension()
+    {
+        return ".json";
+    }
+
+    /**
+     * Writes the given commit as a JSON object
+     *
+     * @param commit
+     *            The commit to write
+     * @param writer
+     *            The writer the report is written to
+     *
+     * @throws IOException
+     *             if the report could not be written
+     */
+    private static void writeCommit(DiffSession.CommitModel commit, Writer writer) throws IOException
+    {
+        writer.write("{ \"sha1\": ");
+        writeString(commit.getSha1(), writer);
+        writer.write(", \"date\": ");
+        writeString(commit.getDateStr(), writer);
+        writer.write(", \"message\": ");
+        writeString(commit.getMessage(), writer);
+        writer.write(" }");
+    }
+
+    /**
+     * Writes the given strings as a JSON array, one element per line
+     *
+     * @param strings
+     *            The strings to write
+     * @param indent
+     *            The indentation preceding each element
+     * @param writer
+     *            The writer the report is written to
+     *
+     * @throws IOException
+     *             if the report could not be written
+     */
+    private static void writeStrings(Iterator<String> strings, String indent, Writer writer) throws IOException
+    {
+        if (!strings.hasNext()) {
+            writer.write("[]");
+            return;
+        }
+
+        writer.write("[");
+
+        while (strings.hasNext()) {
+            writer.write("\n");
+            writer.write(indent);
+            writeString(strings.next(), writer);
+            if (strings.hasNext()) {
+                writer.write(",");
+            }
+        }
+
+        writer.write("\n");
+        writer.write(indent, 0, indent.length() - 2);
+        writer.write("]");
+    }
+
+    /**
+     * Writes the given string as a JSON string literal, or null
+     *
+     * @param str
+     *            The string to write, which may be null
+     * @param writer
+     *            The writer the report is written to
+     *
+     * @throws IOException
+     *             if the report could not be written
+     */
+    static void writeString(String str, Writer writer) throws IOException
+    {
+        if (str == null) {
+            writer.write("null");
+            return;
+        }
+
+        writer.write('"');
+
+        for (int idx = 0; idx < str.length(); idx++) {
+
+            char c = str.charAt(idx);
+
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", Integer.valueOf(c)));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+
+        writer.write('"');
+    }
+}
@@ -0,0 +1,269 @@
+package edu.ncsu.csc.utilities;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+
+/**
+ * Cache of parsed Java classes keyed by the object id of the blob they
+ * were parsed from and the indexer which parsed it.
+ *
+ * Because a blob id identifies its exact contents, a class only ever needs
+ * to be parsed once no matter how many commit pairs it shows up in (the
+ * new side of one pair is the old side of the next, for instance). The
+ * indexer is part of the key because indexers may locate members
+ * differently, and different file types, or controllers sharing the cache,
+ * may parse the same blob with different indexers. Entries
+ * are evicted in least-recently-used order once the estimated size of all
+ * cached classes exceeds the cache's byte budget.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class ParsedClassCache
+{
+
+    /** The default budget, in bytes, for the estimated size of all cached classes */
+    public static final long                         DEFAULT_BYTE_BUDGET = 32L * 1024 * 1024;
+
+    /** The maximum estimated size, in bytes, of all cached classes */
+    private final long                               byteBudget;
+
+    /** The cached classes in access order, least recently used first */
+    private final LinkedHashMap<CacheKey, CacheItem> items               = new LinkedHashMap<CacheKey, CacheItem>(16, 0.75f, true);
+
+    /** The estimated size, in bytes, of all cached classes */
+    private long                                     estimatedSize       = 0;
+
+    /** The number of lookups answered from the cache */
+    private long                                     hitCount            = 0;
+
+    /** The number of lookups not answered from the cache */
+    private long                                     missCount           = 0;
+
+    /** The number of classes evicted to stay within the budget */
+    private long                                     evictionCount       = 0;
+
+    /**
+     * Constructs a new cache with the default byte budget
+     */
+    public ParsedClassCache()
+    {
+        this(DEFAULT_BYTE_BUDGET);
+    }
+
+    /**
+     * Constructs a new cache with the given byte budget
+     *
+     * @param byteBudget
+     *            The maximum estimated size, in bytes, of all cached classes
+     */
+    public ParsedClassCache(long byteBudget)
+    {
+        this.byteBudget = byteBudget;
+    }
+
+    /**
+     * Returns the class parsed from the blob with the given id by the given indexer
+     *
+     * @param indexer
+     *            The indexer which parsed the class
+     * @param blobId
+     *            The object id of the blob
+     *
+     * @return The cached class, or null if it is not cached
+     */
+    public synchronized JavaClassModel get(JavaSourceIndexer indexer, AnyObjectId blobId)
+    {
+        CacheItem item = this.items.get(new CacheKey(indexer, blobId));
+
+        if (item == null) {
+            this.missCount++;
+            return null;
+        }
+
+        this.hitCount++;
+        return item.model;
+    }
+
+    /**
+     * Caches the class parsed from the blob with the given id by the given
+     * indexer, evicting the least recently used classes as necessary to stay
+     * within the byte budget. Classes larger than the entire budget are not
+     * cached.
+     *
+     * @param indexer
+     *            The indexer which parsed the class
+     * @param blobId
+     *            The object id of the blob
+     * @param model
+     *            The class parsed from the blob
+     */
+    public synchronized void put(JavaSourceIndexer indexer, AnyObjectId blobId, JavaClassModel model)
+    {
+        long size = model.estimateSize();
+        if (size > this.byteBudget) {
+            return;
+        }
+
+        CacheItem previous = this.items.put(new CacheKey(indexer, blobId.copy()), new CacheItem(model, size));
+        if (previous != null) {
+            this.estimatedSize -= previous.size;
+        }
+        this.estimatedSize += size;
+
+        Iterator<Entry<CacheKey, CacheItem>> iterator = this.items.entrySet().iterator();
+        while (this.estimatedSize > this.byteBudget && iterator.hasNext()) {
+            this.estimatedSize -= iterator.next().getValue().size;
+            iterator.remove();
+            this.evictionCount++;
+        }
+    }
+
+    /**
+     * Removes every class from the cache. The hit and miss counters are retained.
+     */
+    public synchronized void clear()
+    {
+        this.items.clear();
+        this.estimatedSize = 0;
+    }
+
+    /**
+     * Returns the number of classes currently cached
+     *
+     * @return the number of cached classes
+     */
+    public synchronized int size()
+    {
+        return this.items.size();
+    }
+
+    /**
+     * Returns the estimated size, in bytes, of all cached classes
+     *
+     * @return the estimated size
+     */
+    public synchronized long getEstimatedSize()
+    {
+        return this.estimatedSize;
+    }
+
+    /**
+     * Returns the maximum estimated size, in bytes, of all cached classes
+     *
+     * @return the byte budget
+     */
+    public long getByteBudget()
+    {
+        return this.byteBudget;
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache
+     *
+     * @return the hit count
+     */
+    public synchronized long getHitCount()
+    {
+        return this.hitCount;
+    }
+
+    /**
+     * Returns the number of lookups not answered from the cache
+     *
+     * @return the miss count
+     */
+    public synchronized long getMissCount()
+    {
+        return this.missCount;
+    }
+
+    /**
+     * Returns the number of classes evicted to stay within the byte budget
+     *
+     * @return the eviction count
+     */
+    public synchronized long getEvictionCount()
+    {
+        return this.evictionCount;
+    }
+
+    /**
+     * The blob a class was parsed from along with the indexer which parsed it.
+     * Indexers are compared by identity.
+     *
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    private static class CacheKey
+    {
+        /** The indexer which parsed the class */
+        final JavaSourceIndexer indexer;
+
+        /** The object id of the blob, copied before the key is stored */
+        final AnyObjectId       blobId;
+
+        /**
+         * Constructs a new cache key
+         *
+         * @param indexer
+         *            The indexer which parsed the class
+         * @param blobId
+         *            The object id of the blob
+         */
+        CacheKey(JavaSourceIndexer indexer, AnyObjectId blobId)
+        {
+            this.indexer = indexer;
+            this.blobId = blobId;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.blobId.hashCode() * 31 + System.identityHashCode(this.indexer);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+
+            CacheKey other = (CacheKey) obj;
+            return this.indexer == other.indexer && AnyObjectId.equals(this.blobId, other.blobId);
+        }
+    }
+
+    /**
+     * A cached class along with its estimated size
+     *
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    private static class CacheItem
+    {
+        /** The cached class */
+        final JavaClassModel model;
+
+        /** The estimated size of the class, in bytes */
+        final long           size;
+
+        /**
+         * Constructs a new cache item
+         *
+         * @param model
+         *            The cached class
+         * @param size
+         *            The estimated size of the class, in bytes
+         */
+        CacheItem(JavaClassModel model, long size)
+        {
+            this.model = model;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package edu.ncsu.csc.utilities;
+
+/**
+ * Indexes Java source by building a complete QDox model of it.
+ *
+ * QDox understands the full grammar of the Java versions it supports,
+ * but builds and then discards a model of every declaration, expression
+ * and comment in the file. Source QDox is unable to parse yields a class
+ * without any methods.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class QDoxSourceIndexer implements JavaSourceIndexer
+{
+
+    @Override
+    public JavaClassModel index(String source)
+    {
+        return new JavaClassModel(source);
+    }
+}
@@ -0,0 +1,40 @@
+package edu.ncsu.csc.utilities;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Formats the results held by a {@link DiffSession} for output.
+ *
+ * Renderers stream the report to their writer piece by piece, straight
+ * from the session's sorted collections, so that the memory needed to
+ * render a report does not grow with its size. Callers should supply a
+ * buffered writer.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public interface ReportRenderer
+{
+
+    /**
+     * Writes the report for the given session to the given writer. The
+     * writer is neither flushed nor closed.
+     *
+     * @param diffSession
+     *            The session holding the results
+     * @param writer
+     *            The writer the report is written to
+     *
+     * @throws IOException
+     *             if the report could not be written
+     */
+    void render(DiffSession diffSession, Writer writer) throws IOException;
+
+    /**
+     * Returns the extension of files holding reports in this renderer's format
+     *
+     * @return The file extension, including its leading '.'
+     */
+    String getFileExtension();
+}
@@ -0,0 +1,842 @@
+package edu.ncsu.csc.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves reports over HTTP, so that many people can fetch them from a
+ * browser without each running the diff themselves.
+ *
+ * A report is requested with GET /report?repo=&lt;path&gt;&amp;base=&lt;revision&gt;&amp;new=&lt;revision&gt;,
+ * optionally with &amp;format=text|json|csv. The repository path is taken
+ * relative to the server's root directory, outside of which nothing is
+ * served. Both revisions are resolved to full SHA-1s first, and the session
+ * is keyed by the repository and the two resolved ids. Concurrent requests
+ * for the same key wait upon a single computation instead of each running
+ * their own, and finished sessions are kept, least recently used first,
+ * so that later requests are answered without diffing at all. Because the
+ * key holds resolved ids, a branch which moves on is diffed afresh.
+ *
+ * Every session shares the server's cache of parsed classes and its pool
+ * of open repositories.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class ReportServer
+{
+
+    /** The path reports are served from */
+    public static final String                                   CONTEXT_PATH       = "/report";
+
+    /** The default number of finished sessions kept */
+    public static final int                                      DEFAULT_CACHE_SIZE = 64;
+
+    /** The character set reports and messages are sent in */
+    private static final Charset                                 UTF_8              = Charset.forName("UTF-8");
+
+    /** The directory repository paths are taken relative to */
+    private final File                                           rootDirectory;
+
+    /** The most finished sessions kept */
+    private final int                                            cacheSize;
+
+    /** Sessions being computed or finished, keyed by repository and resolved ids, least recently used first */
+    private final LinkedHashMap<String, FutureTask<DiffSession>> sessions;
+
+    /** The number of commit pairs diffed concurrently within each session */
+    private int                                                  parallelism        = 1;
+
+    /** Cache of parsed classes shared by every session */
+    private ParsedClassCache                                     classCache         = new ParsedClassCache();
+
+    /** Pool of open repositories shared by every request */
+    private RepositoryPool                                       repositoryPool     = RepositoryPool.getDefault();
+
+    /** Locates the methods within each Java file, shared by every session */
+    private JavaSourceIndexer                                    sourceIndexer      = new QDoxSourceIndexer();
+
+    /** The registry of file types reported upon, shared by every session */
+    private FileTypeRegistry                                     fileTypes          = FileTypeRegistry.createDefault();
+
+    /** Whether renamed and copied files are paired with their sources */
+    private boolean                                              detectRenames      = false;
+
+    /** The most files considered for inexact rename detection, or -1 for the default */
+    private int                                                  renameLimit        = -1;
+
+    /** The similarity at which a file is considered renamed, or -1 for the default */
+    private int                                                  renameScore        = -1;
+
+    /** Whether only the base and new commits of each range are diffed */
+    private boolean                                              endpointsOnly      = false;
+
+    /** The number of sessions computed */
+    private long                                                 computeCount       = 0;
+
+    /** The number of requests answered with a session another request computed */
+    private long                                                 reuseCount         = 0;
+
+    /** The running server, or null while stopped */
+    private HttpServer                                           httpServer         = null;
+
+    /** Handles the running server's requests, or null while stopped */
+    private ExecutorService                                      executor           = null;
+
+    /**
+     * Constructs a new server of the repositories beneath the given
+     * directory, keeping the default number of finished sessions
+     *
+     * @param rootDirectory
+     *            The directory repository paths are taken relative to
+     *
+     * @throws IOException
+     *             if the directory could not be resolved
+     */
+    public ReportServer(File rootDirectory) throws IOException
+    {
+        this(rootDirectory, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructs a new server of the repositories beneath the given directory
+     *
+     * @param rootDirectory
+     *            The directory repository paths are taken relative to
+     * @param cacheSize
+     *            The most finished sessions kept
+     *
+     * @throws IOException
+     *             if the directory could not be resolved
+     */
+    public ReportServer(File rootDirectory, int cacheSize) throws IOException
+    {
+        this.rootDirectory = rootDirectory.getCanonicalFile();
+        this.cacheSize = cacheSize;
+        this.sessions = new LinkedHashMap<String, FutureTask<DiffSession>>(16, 0.75f, true);
+    }
+
+    /**
+     * Starts serving reports on the given address
+     *
+     * @param address
+     *            The address to listen on
+     * @param workers
+     *            The number of requests handled concurrently
+     *
+     * @throws IOException
+     *             if the server could not listen on the address
+     */
+    public synchronized void start(InetSocketAddress address, int workers) throws IOException
+    {
+        if (this.httpServer != null) {
+            throw new IllegalStateException("Server already started");
+        }
+
+        HttpServer server = HttpServer.create(address, 0);
+        server.createContext(CONTEXT_PATH, new ReportHandler());
+
+        this.executor = Executors.newFixedThreadPool(workers);
+        server.setExecutor(this.executor);
+        server.start();
+
+        this.httpServer = server;
+    }
+
+    /**
+     * Stops serving reports, waiting briefly for requests in progress to complete
+     */
+    public synchronized void stop()
+    {
+        if (this.httpServer == null) {
+            return;
+        }
+
+        this.httpServer.stop(1);
+        this.executor.shutdown();
+
+        this.httpServer = null;
+        this.executor = null;
+        notifyAll();
+    }
+
+    /**
+     * Blocks until the server is stopped
+     *
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting
+     */
+    public synchronized void awaitStop() throws InterruptedException
+    {
+        while (this.httpServer != null) {
+            wait();
+        }
+    }
+
+    /**
+     * Returns the address the server is listening on
+     *
+     * @return The address, or null if the server is stopped
+     */
+    public synchronized InetSocketAddress getAddress()
+    {
+        return (this.httpServer != null) ? this.httpServer.getAddress() : null;
+    }
+
+    /**
+     * Returns the session for the given range, computing it unless it is
+     * already cached or being computed by another request
+     *
+     * @param repository
+     *            The canonical directory of the repository
+     * @param baseObjId
+     *            The full SHA-1 of the base commit
+     * @param newObjId
+     *            The full SHA-1 of the new commit
+     *
+     * @return The session, or null if it could not be computed
+     *
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting for another request's computation
+     */
+    DiffSession getSession(final File repository, final String baseObjId, final String newObjId) throws InterruptedException
+    {
+        String key = repository.getPath() + "\n" + baseObjId + "\n" + newObjId;
+
+        FutureTask<DiffSession> task;
+        boolean computing = false;
+
+        synchronized (this.sessions) {
+
+            task = this.sessions.get(key);
+
+            if (task == null) {
+                task = new FutureTask<DiffSession>(new Callable<DiffSession>() {
+
+                    @Override
+                    public DiffSession call()
+                    {
+                        return computeSession(repository, baseObjId, newObjId);
+                    }
+                });
+
+                this.sessions.put(key, task);
+                this.computeCount++;
+                computing = true;
+                evictSessions();
+            } else {
+                this.reuseCount++;
+            }
+        }
+
+        if (computing) {
+            task.run();
+        }
+
+        DiffSession retVal;
+        try {
+            retVal = task.get();
+        } catch (ExecutionException e) {
+            System.out.println("ERROR: Failed to build report: " + e.getCause());
+            retVal = null;
+        }
+
+        // Failures are not kept, so the next request tries again
+        if (retVal == null) {
+            synchronized (this.sessions) {
+                if (this.sessions.get(key) == task) {
+                    this.sessions.remove(key);
+                }
+            }
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Diffs the given range with a controller of its own
+     *
+     * @param repository
+     *            The directory of the repository
+     * @param baseObjId
+     *            The full SHA-1 of the base commit
+     * @param newObjId
+     *            The full SHA-1 of the new commit
+     *
+     * @return The session, or null if the diff could not be performed
+     */
+    private DiffSession computeSession(File repository, String baseObjId, String newObjId)
+    {
+        GitDiffController controller = createController(repository);
+        if (controller == null) {
+            return null;
+        }
+
+        try {
+            return controller.buildDiffSession(baseObjId, newObjId);
+        } finally {
+            controller.closeRepository();
+        }
+    }
+
+    /**
+     * Creates a controller with the server's settings and loads the given repository into it
+     *
+     * @param repository
+     *            The directory of the repository
+     *
+     * @return The controller, or null if the repository could not be loaded
+     */
+    private GitDiffController createController(File repository)
+    {
+        GitDiffController controller = new GitDiffController();
+        controller.setSourceIndexer(this.sourceIndexer);
+        controller.setFileTypes(this.fileTypes);
+        controller.setDetectRenames(this.detectRenames);
+        controller.setRenameLimit(this.renameLimit);
+        controller.setRenameScore(this.renameScore);
+        controller.setEndpointsOnly(this.endpointsOnly);
+        controller.setClassCache(this.classCache);
+        controller.setRepositoryPool(this.repositoryPool);
+        controller.setParallelism(this.parallelism);
+
+        controller.setRepositoryFilePath(repository.getPath());
+        if (!controller.isRepositoryLoaded()) {
+            return null;
+        }
+
+        return controller;
+    }
+
+    /**
+     * Discards finished sessions, least recently used first, until no more
+     * than the cache size remain. Sessions still being computed are kept.
+     */
+    private void evictSessions()
+    {
+        Iterator<FutureTask<DiffSession>> iterator = this.sessions.values().iterator();
+        while (this.sessions.size() > this.cacheSize && iterator.hasNext()) {
+            if (iterator.next().isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Resolves a repository path given by a request against the root directory
+     *
+     * @param path
+     *            The path of the repository, relative to the root directory
+     *
+     * @return The canonical directory of the repository, or null if it lies outside of the root
+     *         directory
+     *
+     * @throws IOException
+     *             if the path could not be resolved
+     */
+    private File resolveRepository(String path) throws IOException
+    {
+        File retVal = new File(this.rootDirectory, path).getCanonicalFile();
+
+        String root = this.rootDirectory.getPath();
+        String resolved = retVal.getPath();
+
+        if (!resolved.equals(root) && !resolved.startsWith(root.endsWith(File.separator) ? root : root + File.separator)) {
+            return null;
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Returns the number of sessions computed
+     *
+     * @return the compute count
+     */
+    public long getComputeCount()
+    {
+        synchronized (this.sessions) {
+            return this.computeCount;
+        }
+    }
+
+    /**
+     * Returns the number of requests answered with a session another request
+     * computed, whether it was cached or still being computed
+     *
+     * @return the reuse count
+     */
+    public long getReuseCount()
+    {
+        synchronized (this.sessions) {
+            return this.reuseCount;
+        }
+    }
+
+    /**
+     * Returns the directory repository paths are taken relative to
+     *
+     * @return the root directory
+     */
+    public File getRootDirectory()
+    {
+        return this.rootDirectory;
+    }
+
+    /**
+     * Returns the most finished sessions kept
+     *
+     * @return the cache size
+     */
+    public int getCacheSize()
+    {
+        return this.cacheSize;
+    }
+
+    /**
+     * Returns the number of commit pairs diffed concurrently within each session
+     *
+     * @return the parallelism
+     */
+    public int getParallelism()
+    {
+        return this.parallelism;
+    }
+
+    /**
+     * Sets the number of commit pairs diffed concurrently within each session
+     *
+     * @param parallelism
+     *            the parallelism to use, at least 1
+     */
+    public void setParallelism(int parallelism)
+    {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the cache of parsed classes shared by every session
+     *
+     * @return the class cache
+     */
+    public ParsedClassCache getClassCache()
+    {
+        return this.classCache;
+    }
+
+    /**
+     * Sets the cache of parsed classes shared by every session
+     *
+     * @param classCache
+     *            the class cache to use
+     */
+    public void setClassCache(ParsedClassCache classCache)
+    {
+        this.classCache = classCache;
+    }
+
+    /**
+     * Returns the pool of open repositories shared by every request
+     *
+     * @return the repository pool
+     */
+    public RepositoryPool getRepositoryPool()
+    {
+        return this.repositoryPool;
+    }
+
+    /**
+     * Sets the pool of open repositories shared by every request
+     *
+     * @param repositoryPool
+     *            the repository pool to use
+     */
+    public void setRepositoryPool(RepositoryPool repositoryPool)
+    {
+        this.repositoryPool = repositoryPool;
+    }
+
+    /**
+     * Returns the indexer locating the methods within each Java file
+     *
+     * @return the source indexer
+     */
+    public JavaSourceIndexer getSourceIndexer()
+    {
+        return this.sourceIndexer;
+    }
+
+    /**
+     * Sets the indexer locating the methods within each Java file. The class
+     * cache is cleared, as the classes it holds were indexed by the previous one.
+     *
+     * @param sourceIndexer
+     *            the source indexer to use
+     */
+    public void setSourceIndexer(JavaSourceIndexer sourceIndexer)
+    {
+        this.sourceIndexer = sourceIndexer;
+        this.classCache.clear();
+    }
+
+    /**
+     * Returns the registry of file types reported upon
+     *
+     * @return the file type registry
+     */
+    public FileTypeRegistry getFileTypes()
+    {
+        return this.fileTypes;
+    }
+
+    /**
+     * Sets the registry of file types reported upon
+     *
+     * @param fileTypes
+     *            the file type registry to use
+     */
+    public void setFileTypes(FileTypeRegistry fileTypes)
+    {
+        this.fileTypes = fileTypes;
+    }
+
+    /**
+     * Determines whether renamed and copied files are paired with their sources
+     *
+     * @return whether renames are detected
+     */
+    public boolean isDetectRenames()
+    {
+        return this.detectRenames;
+    }
+
+    /**
+     * Sets whether renamed and copied files are paired with their sources
+     *
+     * @param detectRenames
+     *            whether renames should be detected
+     */
+    public void setDetectRenames(boolean detectRenames)
+    {
+        this.detectRenames = detectRenames;
+    }
+
+    /**
+     * Returns the most files considered for inexact rename detection
+     *
+     * @return the rename limit, 0 for no limit, or -1 for the repository's limit
+     */
+    public int getRenameLimit()
+    {
+        return this.renameLimit;
+    }
+
+    /**
+     * Sets the most files considered for inexact rename detection
+     *
+     * @param renameLimit
+     *            the rename limit, 0 for no limit, or -1 for the repository's limit
+     */
+    public void setRenameLimit(int renameLimit)
+    {
+        this.renameLimit = renameLimit;
+    }
+
+    /**
+     * Returns the similarity at which a file is considered renamed
+     *
+     * @return the rename score as a percentage, or -1 for the default
+     */
+    public int getRenameScore()
+    {
+        return this.renameScore;
+    }
+
+    /**
+     * Sets the similarity at which a file is considered renamed
+     *
+     * @param renameScore
+     *            the rename score as a percentage, or -1 for the default
+     */
+    public void setRenameScore(int renameScore)
+    {
+        this.renameScore = renameScore;
+    }
+
+    /**
+     * Returns whether only the base and new commits of each range are diffed
+     *
+     * @return whether only the endpoints of each range are diffed
+     */
+    public boolean isEndpointsOnly()
+    {
+        return this.endpointsOnly;
+    }
+
+    /**
+     * Sets whether only the base and new commits of each range are diffed
+     *
+     * @param endpointsOnly
+     *            whether only the endpoints of each range should be diffed
+     */
+    public void setEndpointsOnly(boolean endpointsOnly)
+    {
+        this.endpointsOnly = endpointsOnly;
+    }
+
+    /**
+     * Parses the parameters of a query string
+     *
+     * @param query
+     *            The raw query string, or null
+     *
+     * @return The parameters, the first value of each being kept
+     *
+     * @throws UnsupportedEncodingException
+     *             never, as UTF-8 is always supported
+     */
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException
+    {
+        Map<String, String> retVal = new HashMap<String, String>();
+        if (query == null) {
+            return retVal;
+        }
+
+        for (String pair : query.split("&")) {
+
+            int separator = pair.indexOf('=');
+            String name = URLDecoder.decode((separator < 0) ? pair : pair.substring(0, separator), "UTF-8");
+            String value = URLDecoder.decode((separator < 0) ? "" : pair.substring(separator + 1), "UTF-8");
+
+            if (!retVal.containsKey(name)) {
+                retVal.put(name, value);
+            }
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Returns the content type of reports written with the given renderer
+     *
+     * @param renderer
+     *            The renderer
+     *
+     * @return The content type, including its character set
+     */
+    private static String getContentType(ReportRenderer renderer)
+    {
+        String extension = renderer.getFileExtension();
+
+        if (extension.equals(".json")) {
+            return "application/json; charset=utf-8";
+        } else if (extension.equals(".csv")) {
+            return "text/csv; charset=utf-8";
+        }
+
+        return "text/plain; charset=utf-8";
+    }
+
+    /**
+     * Sends a complete response
+     *
+     * @param exchange
+     *            The exchange being responded to
+     * @param status
+     *            The status code
+     * @param contentType
+     *            The content type of the body
+     * @param body
+     *            The body of the response
+     *
+     * @throws IOException
+     *             if the response could not be sent
+     */
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException
+    {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        exchange.sendResponseHeaders(status, body.length);
+
+        OutputStream outputStream = exchange.getResponseBody();
+        try {
+            outputStream.write(body);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    /**
+     * Sends an error message as plain text
+     *
+     * @param exchange
+     *            The exchange being responded to
+     * @param status
+     *            The status code
+     * @param message
+     *            The message
+     *
+     * @throws IOException
+     *             if the response could not be sent
+     */
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException
+    {
+        send(exchange, status, "text/plain; charset=utf-8", (message + "\n").getBytes(UTF_8));
+    }
+
+    /**
+     * Answers requests for reports
+     *
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    private class ReportHandler implements HttpHandler
+    {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException
+        {
+            try {
+                handleReport(exchange);
+            } finally {
+                exchange.close();
+            }
+        }
+
+        /**
+         * Resolves the requested range, then sends its report
+         *
+         * @param exchange
+         *            The exchange being responded to
+         *
+         * @throws IOException
+         *             if the response could not be sent
+         */
+        private void handleReport(HttpExchange exchange) throws IOException
+        {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            String repo = params.get("repo");
+            String base = params.get("base");
+            String newRevision = params.get("new");
+            String format = params.containsKey("format") ? params.get("format") : "text";
+
+            if (repo == null || base == null || newRevision == null) {
+                sendError(exchange, 400, "Expected repo, base and new parameters");
+                return;
+            }
+
+            ReportRenderer renderer = CommandLine.rendererForFormat(format);
+            if (renderer == null) {
+                sendError(exchange, 400, "Unknown format: " + format);
+                return;
+            }
+
+            File repository;
+            try {
+                repository = resolveRepository(repo);
+            } catch (IOException e) {
+                sendError(exchange, 400, "Invalid repository path: " + repo);
+                return;
+            }
+
+            if (repository == null) {
+                sendError(exchange, 403, "Repository outside of the served directory: " + repo);
+                return;
+            }
+
+            if (!new File(repository, ".git").isDirectory()) {
+                sendError(exchange, 404, "Unknown repository: " + repo);
+                return;
+            }
+
+            // Resolve the revisions first, so that branch names share
+            // sessions with the commits they currently point to
+            String baseObjId;
+            String newObjId;
+
+            GitDiffController controller = createController(repository);
+            if (controller == null) {
+                sendError(exchange, 404, "Unknown repository: " + repo);
+                return;
+            }
+
+            try {
+                baseObjId = controller.resolveCommit(base);
+                newObjId = controller.resolveCommit(newRevision);
+            } finally {
+                controller.closeRepository();
+            }
+
+            if (baseObjId == null || newObjId == null) {
+                sendError(exchange, 404, "Unknown commit: " + ((baseObjId == null) ? base : newRevision));
+                return;
+            }
+
+            DiffSession diffSession;
+            try {
+                diffSession = getSession(repository, baseObjId, newObjId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                sendError(exchange, 503, "Server stopping");
+                return;
+            }
+
+            if (diffSession == null) {
+                sendError(exchange, 500, "Failed to build report");
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", getContentType(renderer));
+
+            if (method.equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            // The report is sent chunked, rendered straight onto the connection
+            // rather than held in memory in full
+            exchange.sendResponseHeaders(200, 0);
+
+            OutputStream outputStream = exchange.getResponseBody();
+            try {
+                CommandLine.writeReport(diffSession, renderer, outputStream);
+            } finally {
+                outputStream.close();
+            }
+        }
+    }
+}
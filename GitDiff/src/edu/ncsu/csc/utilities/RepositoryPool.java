@@ -0,0 +1,439 @@
+package edu.ncsu.csc.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryBuilder;
+
+/**
+ * Pool of open repositories keyed by the canonical path of their git
+ * directory.
+ *
+ * Each open repository holds pack file descriptors and JGit's caches,
+ * along with the index of its commits, so reopening it for every session
+ * wastes both. Controllers instead acquire a lease on it from the pool and
+ * release the lease when done; the repository stays open while any lease is
+ * outstanding and for a while after the last is released, so that a warm
+ * repository is reused by whichever session asks for it next. Unused
+ * repositories are closed once they have been idle for longer than the
+ * pool's idle time, or in least-recently-used order whenever more than the
+ * pool's limit are open. Repositories still in use are never closed, so
+ * the limit may be exceeded while they are.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class RepositoryPool
+{
+
+    /** The default number of repositories kept open */
+    public static final int                   DEFAULT_MAX_OPEN    = 32;
+
+    /** The default time, in milliseconds, an unused repository is kept open */
+    public static final long                  DEFAULT_IDLE_MILLIS = 5 * 60 * 1000L;
+
+    /** The pool shared by every controller not given one of its own */
+    private static final RepositoryPool       DEFAULT_POOL        = new RepositoryPool();
+
+    /** The most repositories kept open while not in use */
+    private final int                         maxOpen;
+
+    /** The time, in milliseconds, an unused repository is kept open */
+    private final long                        idleMillis;
+
+    /** The open repositories in access order, least recently used first */
+    private final LinkedHashMap<File, Handle> handles             = new LinkedHashMap<File, Handle>(16, 0.75f, true);
+
+    /** Closes idle repositories, or null until a repository is first released */
+    private Timer                             idleTimer           = null;
+
+    /** The number of acquisitions answered with an open repository */
+    private long                              hitCount            = 0;
+
+    /** The number of acquisitions which had to open the repository */
+    private long                              missCount           = 0;
+
+    /** The number of repositories closed to stay within the limit or because they were idle */
+    private long                              evictionCount       = 0;
+
+    /**
+     * Constructs a new pool with the default limit and idle time
+     */
+    public RepositoryPool()
+    {
+        this(DEFAULT_MAX_OPEN, DEFAULT_IDLE_MILLIS);
+    }
+
+    /**
+     * Constructs a new pool with the given limit and idle time
+     *
+     * @param maxOpen
+     *            The most repositories kept open while not in use
+     * @param idleMillis
+     *            The time, in milliseconds, an unused repository is kept open, or 0 to keep it
+     *            open until the limit is reached
+     */
+    public RepositoryPool(int maxOpen, long idleMillis)
+    {
+        this.maxOpen = maxOpen;
+        this.idleMillis = idleMillis;
+    }
+
+    /**
+     * Returns the pool shared by every controller not given one of its own
+     *
+     * @return The default pool
+     */
+    public static RepositoryPool getDefault()
+    {
+        return DEFAULT_POOL;
+    }
+
+    /**
+     * Acquires a lease on the repository with the given git directory,
+     * opening it if it is not already open. Every acquisition is given a
+     * lease of its own, which must be released once the caller is done
+     * with it.
+     *
+     * @param gitDir
+     *            The git directory of the repository
+     *
+     * @return The lease on the repository
+     *
+     * @throws IOException
+     *             if the repository does not exist or could not be opened
+     */
+    public synchronized Lease acquire(File gitDir) throws IOException
+    {
+        File key = gitDir.getCanonicalFile();
+
+        Handle handle = this.handles.get(key);
+        if (handle != null) {
+            handle.useCount++;
+            this.hitCount++;
+            return new Lease(handle);
+        }
+
+        RepositoryBuilder builder = new RepositoryBuilder();
+        builder.setMustExist(true);
+        builder.setGitDir(key);
+        Repository repository = builder.build();
+
+        handle = new Handle(key, repository);
+        handle.useCount = 1;
+        this.handles.put(key, handle);
+        this.missCount++;
+
+        evict(this.maxOpen);
+        return new Lease(handle);
+    }
+
+    /**
+     * Releases a lease previously acquired from the pool. The repository
+     * stays open until it is evicted. Releasing a lease again has no effect,
+     * so a caller can never give up a use of the repository held by another.
+     *
+     * @param lease
+     *            The lease to release
+     */
+    public synchronized void release(Lease lease)
+    {
+        if (lease.released) {
+            return;
+        }
+        lease.released = true;
+
+        Handle handle = lease.handle;
+        if (handle.useCount == 0) {
+            return;
+        }
+
+        handle.lastUsed = System.currentTimeMillis();
+        handle.useCount--;
+
+        if (handle.useCount == 0) {
+            evict(this.maxOpen);
+            scheduleIdleTimer();
+        }
+    }
+
+    /**
+     * Closes every unused repository which has been idle for longer than the
+     * pool's idle time
+     */
+    public synchronized void evictIdle()
+    {
+        if (this.idleMillis <= 0) {
+            return;
+        }
+
+        long cutoff = System.currentTimeMillis() - this.idleMillis;
+
+        Iterator<Handle> iterator = this.handles.values().iterator();
+        while (iterator.hasNext()) {
+            Handle handle = iterator.next();
+            if (handle.useCount == 0 && handle.lastUsed <= cutoff) {
+                iterator.remove();
+                close(handle);
+            }
+        }
+    }
+
+    /**
+     * Closes every unused repository. Repositories still in use are closed
+     * by the pool once released and evicted.
+     */
+    public synchronized void clear()
+    {
+        evict(0);
+    }
+
+    /**
+     * Returns the number of repositories currently open
+     *
+     * @return the number of open repositories
+     */
+    public synchronized int size()
+    {
+        return this.handles.size();
+    }
+
+    /**
+     * Returns the most repositories kept open while not in use
+     *
+     * @return the limit
+     */
+    public int getMaxOpen()
+    {
+        return this.maxOpen;
+    }
+
+    /**
+     * Returns the time, in milliseconds, an unused repository is kept open
+     *
+     * @return the idle time
+     */
+    public long getIdleMillis()
+    {
+        return this.idleMillis;
+    }
+
+    /**
+     * Returns the number of acquisitions answered with an open repository
+     *
+     * @return the hit count
+     */
+    public synchronized long getHitCount()
+    {
+        return this.hitCount;
+    }
+
+    /**
+     * Returns the number of acquisitions which had to open the repository
+     *
+     * @return the miss count
+     */
+    public synchronized long getMissCount()
+    {
+        return this.missCount;
+    }
+
+    /**
+     * Returns the number of repositories closed to stay within the limit or
+     * because they were idle
+     *
+     * @return the eviction count
+     */
+    public synchronized long getEvictionCount()
+    {
+        return this.evictionCount;
+    }
+
+    /**
+     * Closes unused repositories in least-recently-used order until no more
+     * than the given number remain open
+     *
+     * @param limit
+     *            The most repositories to leave open
+     */
+    private void evict(int limit)
+    {
+        Iterator<Entry<File, Handle>> iterator = this.handles.entrySet().iterator();
+        while (this.handles.size() > limit && iterator.hasNext()) {
+            Handle handle = iterator.next().getValue();
+            if (handle.useCount == 0) {
+                iterator.remove();
+                close(handle);
+            }
+        }
+    }
+
+    /**
+     * Closes the repository of an evicted handle
+     *
+     * @param handle
+     *            The evicted handle
+     */
+    private void close(Handle handle)
+    {
+        handle.commitIndex.invalidate();
+        handle.repository.close();
+        this.evictionCount++;
+    }
+
+    /**
+     * Starts the timer closing idle repositories, if it is not already running
+     */
+    private void scheduleIdleTimer()
+    {
+        if (this.idleTimer != null || this.idleMillis <= 0) {
+            return;
+        }
+
+        long period = Math.max(this.idleMillis / 2, 1000L);
+
+        this.idleTimer = new Timer("RepositoryPool-idle", true);
+        this.idleTimer.schedule(new TimerTask() {
+
+            @Override
+            public void run()
+            {
+                evictIdle();
+            }
+        }, period, period);
+    }
+
+    /**
+     * A single acquisition of an open repository, released at most once
+     *
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    public static class Lease
+    {
+
+        /** The open repository the lease is on */
+        private final Handle handle;
+
+        /** Whether the lease has been released, guarded by the pool */
+        private boolean      released = false;
+
+        /**
+         * Constructs a new lease on the given open repository
+         *
+         * @param handle
+         *            The open repository
+         */
+        Lease(Handle handle)
+        {
+            this.handle = handle;
+        }
+
+        /**
+         * Returns the canonical git directory of the repository
+         *
+         * @return the git directory
+         */
+        public File getGitDir()
+        {
+            return this.handle.getGitDir();
+        }
+
+        /**
+         * Returns the open repository
+         *
+         * @return the repository
+         */
+        public Repository getRepository()
+        {
+            return this.handle.getRepository();
+        }
+
+        /**
+         * Returns the index of the repository's commits
+         *
+         * @return the commit index
+         */
+        public CommitIndex getCommitIndex()
+        {
+            return this.handle.getCommitIndex();
+        }
+    }
+
+    /**
+     * An open repository along with the index of its commits, shared by
+     * every lease acquired on it
+     *
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    private static class Handle
+    {
+
+        /** The canonical git directory of the repository */
+        private final File        gitDir;
+
+        /** The open repository */
+        private final Repository  repository;
+
+        /** Index of the repository's commits */
+        private final CommitIndex commitIndex;
+
+        /** The number of leases on the repository not yet released */
+        private int               useCount = 0;
+
+        /** The time the handle was last released, in milliseconds since the epoch */
+        private long              lastUsed = 0;
+
+        /**
+         * Constructs a new handle on the given repository
+         *
+         * @param gitDir
+         *            The canonical git directory of the repository
+         * @param repository
+         *            The open repository
+         */
+        Handle(File gitDir, Repository repository)
+        {
+            this.gitDir = gitDir;
+            this.repository = repository;
+            this.commitIndex = new CommitIndex(repository);
+        }
+
+        /**
+         * Returns the canonical git directory of the repository
+         *
+         * @return the git directory
+         */
+        public File getGitDir()
+        {
+            return this.gitDir;
+        }
+
+        /**
+         * Returns the open repository
+         *
+         * @return the repository
+         */
+        public Repository getRepository()
+        {
+            return this.repository;
+        }
+
+        /**
+         * Returns the index of the repository's commits
+         *
+         * @return the commit index
+         */
+        public CommitIndex getCommitIndex()
+        {
+            return this.commitIndex;
+        }
+    }
+}
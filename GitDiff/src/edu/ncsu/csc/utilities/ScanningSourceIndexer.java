@@ -0,0 +1,891 @@
+package edu.ncsu.csc.utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Indexes Java source with a single lexical pass, without building a
+ * model of the file.
+ *
+ * The scanner only recognizes as much of the language as is needed to find
+ * where each member of the first declared type begins and ends: comments,
+ * string and character literals, annotations, nested and anonymous classes,
+ * field initializers and enum constants are all skipped over. Method bodies
+ * are never tokenized beyond matching their braces.
+ *
+ * Signatures and line spans are reported exactly as the QDox indexer reports
+ * them. In particular, the span of a method is the number of lines QDox would
+ * regenerate for its declaration (Javadoc, annotations, signature and body)
+ * rather than the number of lines it occupies in the source, so that changed
+ * lines are attributed to the same methods whichever indexer is used.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class ScanningSourceIndexer implements JavaSourceIndexer
+{
+
+    /** The modifiers which may precede a member's type or name */
+    private static final Set<String> MODIFIERS = new HashSet<String>(Arrays.asList("public", "protected", "private", "static",
+                                                       "final", "abstract", "native", "synchronized", "transient", "volatile",
+                                                       "strictfp", "default"));
+
+    @Override
+    public JavaClassModel index(String source)
+    {
+        return new Scan(source).scanFile();
+    }
+
+    /**
+     * The state of a single pass over one source file. The current token is
+     * described by its kind and its bounds within the source.
+     *
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    private static class Scan
+    {
+
+        /** The end of the source has been reached */
+        static final int     EOF      = 0;
+
+        /** An identifier or keyword */
+        static final int     IDENT    = 1;
+
+        /** A single punctuation or operator character */
+        static final int     SYMBOL   = 2;
+
+        /** A numeric, string or character literal */
+        static final int     LITERAL  = 3;
+
+        /** The "..." of a variable arity parameter */
+        static final int     ELLIPSIS = 4;
+
+        /** The source being scanned */
+        final String         src;
+
+        /** Reusable buffer for the type of the parameter being scanned */
+        final StringBuilder  typeBuf  = new StringBuilder();
+
+        /** The position just past the current token */
+        int                  pos      = 0;
+
+        /** The kind of the current token */
+        int                  kind     = EOF;
+
+        /** The position of the first character of the current token */
+        int                  start    = 0;
+
+        /** Whether the current token should be returned again by the next call to next() */
+        boolean              reread   = false;
+
+        /** Whether a field initializer has been passed since the last method body or initializer block */
+        boolean              assigned = false;
+
+        /** The start of the last Javadoc comment not yet claimed by a declaration, or -1 */
+        int                  docStart = -1;
+
+        /** The end of the last Javadoc comment not yet claimed by a declaration */
+        int                  docEnd   = -1;
+
+        /** The lines of the block tags of unclaimed Javadoc comments before the last one */
+        int                  docTags  = 0;
+
+        /** The lines of the description of the Javadoc comment last measured */
+        int                  docText  = 0;
+
+        /** The position up to which lines have been counted */
+        int                  linePos  = 0;
+
+        /** The line number at linePos */
+        int                  line     = 1;
+
+        /**
+         * Constructs a new scan of the given source
+         *
+         * @param src
+         *            The source code of a Java file
+         */
+        Scan(String src)
+        {
+            this.src = src;
+        }
+
+        /**
+         * Scans the file up to its first type declaration, then indexes that type
+         *
+         * @return The model of the indexed class
+         */
+        JavaClassModel scanFile()
+        {
+            String packageName = null;
+
+            while (next() != EOF) {
+
+                if (isIdent("package")) {
+                    packageName = scanQualifiedName();
+                } else if (isIdent("import")) {
+                    skipStatement();
+                } else if (isSymbol('@')) {
+                    if (next() == IDENT && isIdent("interface")) {
+                        return scanType(packageName, false);
+                    }
+                    this.reread = true;
+                    skipAnnotation();
+                } else if (isIdent("class") || isIdent("interface")) {
+                    return scanType(packageName, false);
+                } else if (isIdent("enum")) {
+                    return scanType(packageName, true);
+                }
+            }
+
+            return new JavaClassModel(packageName, new ArrayList<JavaMethodModel>());
+        }
+
+        /**
+         * Indexes the methods of the type whose declaring keyword is the current token
+         *
+         * @param packageName
+         *            The package the type is declared in, or null for the default package
+         * @param isEnum
+         *            Whether the type is an enum, whose body begins with its constants
+         *
+         * @return The model of the indexed class
+         */
+        JavaClassModel scanType(String packageName, boolean isEnum)
+        {
+            ArrayList<JavaMethodModel> methods = new ArrayList<JavaMethodModel>();
+
+            if (next() != IDENT) {
+                return new JavaClassModel(packageName, methods);
+            }
+
+            String typeName = this.src.substring(this.start, this.pos);
+            String qualifiedName = (packageName != null) ? packageName + "." + typeName : typeName;
+
+            if (!skipTo('{') || (isEnum && !skipEnumConstants())) {
+                return new JavaClassModel(qualifiedName, methods);
+            }
+
+            this.docStart = -1;
+            this.docTags = 0;
+
+            while (scanMember(typeName, methods)) {
+                this.docStart = -1;
+                this.docTags = 0;
+            }
+
+            return new JavaClassModel(qualifiedName, methods);
+        }
+
+        /**
+         * Scans a single member declaration of the indexed type, along with any
+         * initializer blocks before it, adding it to the given list if it is a
+         * method.
+         *
+         * @param typeName
+         *            The simple name of the indexed type, used to recognize constructors
+         * @param methods
+         *            The methods found so far
+         *
+         * @return Whether the end of the type's body has yet to be reached
+         */
+        boolean scanMember(String typeName, List<JavaMethodModel> methods)
+        {
+            int annotations = 0;
+            boolean typeParameters = false;
+            boolean sawType = false;
+
+            // The previous token, and whether it and the one before it name a type
+            int prevKind = EOF;
+            int prevStart = 0;
+            int prevEnd = 0;
+            boolean prevIsType = false;
+            boolean beforePrevIsType = false;
+
+            while (true) {
+
+                int tok = next();
+
+                if (tok == EOF || isSymbol('}')) {
+                    return false;
+                } else if (isSymbol(';')) {
+                    return true;
+                } else if (isSymbol('{')) {
+                    // An initializer block, which QDox does not parse, so any
+                    // Javadoc before it is left for the member which follows
+                    int initDocStart = this.docStart;
+                    int initDocEnd = this.docEnd;
+                    int initDocTags = this.docTags;
+                    skipBlock();
+                    this.assigned = false;
+                    this.docStart = initDocStart;
+                    this.docEnd = initDocEnd;
+                    this.docTags = initDocTags;
+                    typeParameters = false;
+                    sawType = false;
+                    prevKind = EOF;
+                    prevIsType = false;
+                    beforePrevIsType = false;
+                } else if (isSymbol('@')) {
+                    if (next() == IDENT && isIdent("interface")) {
+                        return skipNestedType();
+                    }
+                    this.reread = true;
+                    annotations += skipAnnotation();
+                    prevKind = EOF;
+                    prevIsType = false;
+                } else if (isIdent("class") || isIdent("interface") || isIdent("enum")) {
+                    return skipNestedType();
+                } else if (isSymbol('=')) {
+                    this.assigned = true;
+                    return skipInitializer();
+                } else if (isSymbol('(') && prevKind == IDENT) {
+                    String name = this.src.substring(prevStart, prevEnd);
+                    boolean isConstructor = name.equals(typeName) && !beforePrevIsType;
+                    // QDox reports generic methods on the line of their name,
+                    // and all others on the line of their parameter list
+                    int line = lineAt(typeParameters ? prevStart : this.start);
+                    return scanMethod(name, line, annotations, isConstructor, methods);
+                } else if (isSymbol('(')) {
+                    skipParentheses();
+                } else {
+                    typeParameters |= !sawType && isSymbol('<');
+                    sawType |= tok == IDENT && !MODIFIERS.contains(this.src.substring(this.start, this.pos));
+                    beforePrevIsType = prevIsType;
+                    prevIsType = (tok == IDENT && !MODIFIERS.contains(this.src.substring(this.start, this.pos))) || isSymbol(']');
+                    prevKind = tok;
+                    prevStart = this.start;
+                    prevEnd = this.pos;
+                }
+            }
+        }
+
+        /**
+         * Scans the remainder of a method or constructor declaration, from just
+         * past the opening parenthesis of its parameter list.
+         *
+         * @param name
+         *            The name of the method
+         * @param line
+         *            The line on which the method is declared
+         * @param annotations
+         *            The number of lines QDox regenerates for the annotations preceding the method
+         * @param isConstructor
+         *            Whether the declaration is a constructor, which is not indexed
+         * @param methods
+         *            The methods found so far
+         *
+         * @return Whether the end of the type's body has yet to be reached
+         */
+        boolean scanMethod(String name, int line, int annotations, boolean isConstructor, List<JavaMethodModel> methods)
+        {
+            StringBuilder signature = new StringBuilder(name).append('(');
+            int docLines = javadocLines();
+            int lines = docLines + annotations + scanParameters(signature) + 1;
+            signature.append(')');
+
+            boolean more = true;
+
+            while (true) {
+
+                int tok = next();
+
+                if (tok == EOF) {
+                    more = false;
+                    break;
+                } else if (isSymbol('}')) {
+                    this.reread = true;
+                    break;
+                } else if (isSymbol(';')) {
+                    break;
+                } else if (isIdent("default")) {
+                    // The default value of an annotation type element
+                    more = skipInitializer();
+                    break;
+                } else if (isSymbol('{')) {
+                    int bodyStart = this.pos;
+                    this.assigned = false;
+                    if (!skipBlock()) {
+                        more = false;
+                    }
+                    if (this.start > bodyStart) {
+                        lines += countSeparators(bodyStart, this.start) + 1;
+                    }
+                    break;
+                }
+            }
+
+            if (!isConstructor) {
+                // QDox counts one line past the end of the regenerated declaration
+                methods.add(new JavaMethodModel(signature.toString(), new LineRange(line, lines + 1)));
+            }
+
+            return more;
+        }
+
+        /**
+         * Scans a parameter list up to and including its closing parenthesis,
+         * appending the type of each parameter to the given signature. Types are
+         * appended as written, without their type arguments or array dimensions.
+         *
+         * @param signature
+         *            The signature being built
+         *
+         * @return The number of lines QDox regenerates for the annotations on the parameters
+         */
+        int scanParameters(StringBuilder signature)
+        {
+            int annotations = 0;
+            int parens = 0;
+            int angles = 0;
+            int words = 0;
+            int params = 0;
+            boolean afterDot = false;
+
+            this.typeBuf.setLength(0);
+
+            while (true) {
+
+                int tok = next();
+                boolean endOfParam = false;
+                boolean endOfList = false;
+
+                if (tok == EOF) {
+                    endOfList = true;
+                } else if (isSymbol(')')) {
+                    endOfList = (parens == 0);
+                    parens--;
+                } else if (isSymbol('(')) {
+                    parens++;
+                } else if (isSymbol('@') && angles == 0) {
+                    annotations += skipAnnotation();
+                } else if (isSymbol('<')) {
+                    angles++;
+                } else if (isSymbol('>')) {
+                    angles--;
+                } else if (isSymbol(',') && angles == 0 && parens == 0) {
+                    endOfParam = true;
+                } else if (tok == IDENT && angles == 0) {
+                    if (words == 0 && isIdent("final")) {
+                        continue;
+                    }
+                    if (afterDot && words == 1) {
+                        this.typeBuf.append('.').append(this.src, this.start, this.pos);
+                    } else if (++words == 1) {
+                        this.typeBuf.append(this.src, this.start, this.pos);
+                    }
+                }
+
+                afterDot = isSymbol('.') && angles == 0;
+
+                if (endOfParam || endOfList) {
+                    if (words > 0) {
+                        if (params++ > 0) {
+                            signature.append(", ");
+                        }
+                        signature.append(this.typeBuf);
+                    }
+                    this.typeBuf.setLength(0);
+                    words = 0;
+                    afterDot = false;
+                }
+
+                if (endOfList) {
+                    return annotations;
+                }
+            }
+        }
+
+        /**
+         * Counts the lines QDox regenerates for the Javadoc comment preceding the
+         * current declaration: the opening and closing lines, the lines of the
+         * description with leading and trailing blank lines removed, the lines of
+         * the block tags and, when there are both, a blank line between the two.
+         * QDox keeps the description of the last Javadoc comment before the
+         * declaration, but the block tags of every one left unclaimed since the
+         * previous declaration.
+         *
+         * @return The number of lines, or zero if the declaration has no Javadoc
+         */
+        int javadocLines()
+        {
+            if (this.docStart < 0) {
+                return 0;
+            }
+
+            int tagLines = this.docTags + measureJavadoc(this.docStart, this.docEnd);
+            int textLines = this.docText;
+
+            // An empty comment on a single line is not regenerated at all
+            if (textLines == 0 && tagLines == 0 && countSeparators(this.docStart, this.docEnd) == 0) {
+                return 0;
+            }
+
+            return 2 + textLines + tagLines + ((textLines > 0 && tagLines > 0) ? 1 : 0);
+        }
+
+        /**
+         * Measures the Javadoc comment within the given span of the source,
+         * leaving the number of lines of its description, with leading and
+         * trailing blank lines removed, in docText.
+         *
+         * @param from
+         *            The start of the comment
+         * @param to
+         *            The end of the comment, exclusive
+         *
+         * @return The number of lines of its block tags
+         */
+        int measureJavadoc(int from, int to)
+        {
+            int firstText = -1;
+            int lastText = -1;
+            int tagLines = 0;
+            boolean inTag = false;
+            int tagValueStart = -1;
+            int tagEnd = -1;
+            int lineNo = 0;
+
+            int idx = from + 3;
+            int end = to - 2;
+
+            while (idx <= end) {
+
+                // Skip the leading whitespace and asterisks of the line
+                while (idx < end && (this.src.charAt(idx) == ' ' || this.src.charAt(idx) == '\t' || this.src.charAt(idx) == '\f')) {
+                    idx++;
+                }
+                while (idx < end && this.src.charAt(idx) == '*') {
+                    idx++;
+                }
+
+                boolean blank = true;
+                boolean tag = false;
+                boolean inTagName = false;
+                boolean tagValue = false;
+
+                while (idx < end && this.src.charAt(idx) != '\n' && this.src.charAt(idx) != '\r') {
+                    char c = this.src.charAt(idx);
+                    if (blank && !Character.isWhitespace(c)) {
+                        blank = false;
+                        tag = (c == '@');
+                        inTagName = tag;
+                    } else if (inTagName && Character.isWhitespace(c)) {
+                        inTagName = false;
+                    } else if (tag && !inTagName && !Character.isWhitespace(c)) {
+                        tagValue = true;
+                    }
+                    idx++;
+                }
+
+                if (tag) {
+                    // Each tag's value is trimmed, so it keeps the lines from the
+                    // first to the last non-blank one, starting on the tag's line
+                    if (inTag) {
+                        tagLines += (tagValueStart < 0) ? 1 : tagEnd - tagValueStart + 1;
+                    }
+                    inTag = true;
+                    tagValueStart = tagValue ? lineNo : -1;
+                    tagEnd = lineNo;
+                } else if (!blank && inTag) {
+                    if (tagValueStart < 0) {
+                        tagValueStart = lineNo;
+                    }
+                    tagEnd = lineNo;
+                } else if (!blank) {
+                    if (firstText < 0) {
+                        firstText = lineNo;
+                    }
+                    lastText = lineNo;
+                }
+
+                if (idx < end && this.src.charAt(idx) == '\r' && idx + 1 < end && this.src.charAt(idx + 1) == '\n') {
+                    idx++;
+                }
+                idx++;
+                lineNo++;
+            }
+
+            if (inTag) {
+                tagLines += (tagValueStart < 0) ? 1 : tagEnd - tagValueStart + 1;
+            }
+
+            this.docText = (firstText < 0) ? 0 : lastText - firstText + 1;
+
+            return tagLines;
+        }
+
+        /**
+         * Reads a dotted name, such as that of a package, up to the semicolon ending it
+         *
+         * @return The name
+         */
+        String scanQualifiedName()
+        {
+            StringBuilder retVal = new StringBuilder();
+
+            while (next() != EOF && !isSymbol(';')) {
+                if (this.kind == IDENT || isSymbol('.')) {
+                    retVal.append(this.src, this.start, this.pos);
+                }
+            }
+
+            return retVal.toString();
+        }
+
+        /**
+         * Skips an annotation, starting from the token following its '@'. QDox
+         * regenerates an annotation with each of its elements on a line of its
+         * own, while nested annotations and arrays are kept on the line of the
+         * element holding them.
+         *
+         * @return The number of lines QDox regenerates for the annotation
+         */
+        int skipAnnotation()
+        {
+            int from = this.start;
+
+            while (next() == IDENT) {
+                if (next() != SYMBOL || !isSymbol('.')) {
+                    break;
+                }
+            }
+
+            if (!isSymbol('(')) {
+                this.reread = true;
+                return 1;
+            }
+
+            int depth = 0;
+            int elements = 1;
+
+            while (next() != EOF) {
+                if (this.kind == LITERAL && this.assigned && (this.src.charAt(this.start) == '"' || this.src.charAt(this.start) == '\'')) {
+                    // QDox keeps the text before the first string or character
+                    // literal it reads after a field initializer, which adds a
+                    // line if the annotation has been broken across lines
+                    this.assigned = false;
+                    if (countSeparators(from, this.start) > 0) {
+                        elements++;
+                    }
+                } else if (isSymbol('(') || isSymbol('{') || isSymbol('[')) {
+                    depth++;
+                } else if (isSymbol(')') && depth == 0) {
+                    break;
+                } else if (isSymbol(')') || isSymbol('}') || isSymbol(']')) {
+                    depth--;
+                } else if (isSymbol(',') && depth == 0) {
+                    elements++;
+                }
+            }
+
+            return elements;
+        }
+
+        /**
+         * Skips the declaration of a nested type, starting just past the
+         * keyword declaring it
+         *
+         * @return Whether the end of the enclosing type's body has yet to be reached
+         */
+        boolean skipNestedType()
+        {
+            return skipTo('{') && skipBlock();
+        }
+
+        /**
+         * Skips the enum constants at the start of an enum's body
+         *
+         * @return Whether the enum's body continues past its constants
+         */
+        boolean skipEnumConstants()
+        {
+            while (next() != EOF) {
+                if (isSymbol(';')) {
+                    return true;
+                } else if (isSymbol('}')) {
+                    return false;
+                } else if (isSymbol('(')) {
+                    skipParentheses();
+                } else if (isSymbol('{')) {
+                    skipBlock();
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Skips the initial value of a field, or the default value of an annotation
+         * type element, up to and including the semicolon which ends it
+         *
+         * @return Whether the end of the type's body has yet to be reached
+         */
+        boolean skipInitializer()
+        {
+            int depth = 0;
+
+            while (next() != EOF) {
+                if (isSymbol('(') || isSymbol('[') || isSymbol('{')) {
+                    depth++;
+                } else if (isSymbol(')') || isSymbol(']')) {
+                    depth--;
+                } else if (isSymbol('}')) {
+                    if (depth-- == 0) {
+                        return false;
+                    }
+                } else if (isSymbol(';') && depth <= 0) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Skips an import or similar statement, up to and including its semicolon
+         */
+        void skipStatement()
+        {
+            while (next() != EOF && !isSymbol(';')) {
+                continue;
+            }
+        }
+
+        /**
+         * Skips tokens up to and including the given symbol
+         *
+         * @param symbol
+         *            The symbol to skip to
+         *
+         * @return Whether the symbol was found
+         */
+        boolean skipTo(char symbol)
+        {
+            while (next() != EOF) {
+                if (isSymbol(symbol)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Skips a parenthesized list, starting just past its opening parenthesis
+         * and ending on its closing parenthesis
+         */
+        void skipParentheses()
+        {
+            int depth = 0;
+
+            while (next() != EOF) {
+                if (isSymbol('(')) {
+                    depth++;
+                } else if (isSymbol(')') && depth-- == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Skips a block, starting just past its opening brace and ending on its
+         * closing brace
+         *
+         * @return Whether the closing brace was found
+         */
+        boolean skipBlock()
+        {
+            int depth = 0;
+
+            while (next() != EOF) {
+                if (isSymbol('{')) {
+                    depth++;
+                } else if (isSymbol('}') && depth-- == 0) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Determines whether the current token is the given identifier or keyword
+         *
+         * @param word
+         *            The identifier to compare against
+         *
+         * @return Whether the token matches
+         */
+        boolean isIdent(String word)
+        {
+            return this.kind == IDENT && this.pos - this.start == word.length() && this.src.startsWith(word, this.start);
+        }
+
+        /**
+         * Determines whether the current token is the given symbol
+         *
+         * @param symbol
+         *            The symbol to compare against
+         *
+         * @return Whether the token matches
+         */
+        boolean isSymbol(char symbol)
+        {
+            return this.kind == SYMBOL && this.src.charAt(this.start) == symbol;
+        }
+
+        /**
+         * Returns the line number of the given position in the source. Positions
+         * must be requested in ascending order.
+         *
+         * @param position
+         *            The position within the source
+         *
+         * @return The line number, starting from 1
+         */
+        int lineAt(int position)
+        {
+            this.line += countSeparators(this.linePos, position);
+            this.linePos = position;
+            return this.line;
+        }
+
+        /**
+         * Counts the line separators within the given span of the source, where
+         * "\r\n" counts as a single separator.
+         *
+         * @param from
+         *            The start of the span
+         * @param to
+         *            The end of the span, exclusive
+         *
+         * @return The number of separators
+         */
+        int countSeparators(int from, int to)
+        {
+            int retVal = 0;
+
+            for (int idx = from; idx < to; idx++) {
+                char c = this.src.charAt(idx);
+                if (c == '\n' || (c == '\r' && (idx + 1 >= this.src.length() || this.src.charAt(idx + 1) != '\n'))) {
+                    retVal++;
+                }
+            }
+
+            return retVal;
+        }
+
+        /**
+         * Advances to the next token, skipping whitespace and comments and
+         * recording the position of any Javadoc comment passed over.
+         *
+         * @return The kind of the new current token
+         */
+        int next()
+        {
+            if (this.reread) {
+                this.reread = false;
+                return this.kind;
+            }
+
+            skipWhitespaceAndComments();
+
+            int length = this.src.length();
+            this.start = this.pos;
+
+            if (this.pos >= length) {
+                this.kind = EOF;
+                return this.kind;
+            }
+
+            char c = this.src.charAt(this.pos);
+
+            if (Character.isJavaIdentifierStart(c)) {
+                this.pos++;
+                while (this.pos < length && Character.isJavaIdentifierPart(this.src.charAt(this.pos))) {
+                    this.pos++;
+                }
+                this.kind = IDENT;
+            } else if (Character.isDigit(c)) {
+                this.pos++;
+                while (this.pos < length && (Character.isLetterOrDigit(this.src.charAt(this.pos)) || this.src.charAt(this.pos) == '.' || this.src.charAt(this.pos) == '_')) {
+                    this.pos++;
+                }
+                this.kind = LITERAL;
+            } else if (c == '"' && this.src.startsWith("\"\"\"", this.pos)) {
+                int close = this.src.indexOf("\"\"\"", this.pos + 3);
+                while (close > 0 && this.src.charAt(close - 1) == '\\') {
+                    close = this.src.indexOf("\"\"\"", close + 1);
+                }
+                this.pos = (close < 0) ? length : close + 3;
+                this.kind = LITERAL;
+            } else if (c == '"' || c == '\'') {
+                this.pos++;
+                while (this.pos < length) {
+                    char d = this.src.charAt(this.pos);
+                    if (d == '\\') {
+                        this.pos += 2;
+                        continue;
+                    } else if (d == c) {
+                        this.pos++;
+                        break;
+                    } else if (d == '\n' || d == '\r') {
+                        break;
+                    }
+                    this.pos++;
+                }
+                this.pos = Math.min(this.pos, length);
+                this.kind = LITERAL;
+            } else if (c == '.' && this.src.startsWith("...", this.pos)) {
+                this.pos += 3;
+                this.kind = ELLIPSIS;
+            } else {
+                this.pos++;
+                this.kind = SYMBOL;
+            }
+
+            return this.kind;
+        }
+
+        /**
+         * Advances past any whitespace and comments
+         */
+        void skipWhitespaceAndComments()
+        {
+            int length = this.src.length();
+
+            while (this.pos < length) {
+
+                char c = this.src.charAt(this.pos);
+
+                if (Character.isWhitespace(c)) {
+                    this.pos++;
+                } else if (c == '/' && this.src.startsWith("//", this.pos)) {
+                    while (this.pos < length && this.src.charAt(this.pos) != '\n' && this.src.charAt(this.pos) != '\r') {
+                        this.pos++;
+                    }
+                } else if (c == '/' && this.src.startsWith("/*", this.pos)) {
+                    int close = this.src.indexOf("*/", this.pos + 2);
+                    int end = (close < 0) ? length : close + 2;
+
+                    if (this.src.startsWith("/**", this.pos) && end - this.pos > 4) {
+                        // QDox carries the block tags of an unclaimed comment over to the next
+                        if (this.docStart >= 0) {
+                            this.docTags += measureJavadoc(this.docStart, this.docEnd);
+                        }
+                        this.docStart = this.pos;
+                        this.docEnd = end;
+                    }
+                    this.pos = end;
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+}
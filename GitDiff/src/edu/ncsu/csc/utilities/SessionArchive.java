@@ -0,0 +1,468 @@
+package edu.ncsu.csc.utilities;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Compact binary form of a session's results, for aggregating many reports
+ * without parsing their text back.
+ *
+ * An archive begins with the magic bytes "JGDS" and a version byte, followed
+ * by a dictionary holding every distinct string the session uses, each
+ * stored once. The rest of the archive refers to strings by their position
+ * in the dictionary: the repository and owner, the delta count, the base and
+ * new commits, the mode the session was built in, each category of listed
+ * files followed by its files, and each changed class followed by its
+ * changed methods. Counts and positions are written as variable length
+ * integers, so most take a single byte. Archives of version 1, which could
+ * only list JSP and SQL files, hold the two lists of files in place of the
+ * categories. Archives before version 3 hold no mode, and were always
+ * built from the history of their range.
+ *
+ * Merging reads each archive straight into the target session, so no
+ * intermediate session or text is built per archive.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public final class SessionArchive
+{
+
+    /** The conventional extension of archive files */
+    public static final String   FILE_EXTENSION = ".jgds";
+
+    /** The bytes every archive starts with */
+    private static final byte[]  MAGIC          = { 'J', 'G', 'D', 'S' };
+
+    /** The version of the format written */
+    private static final int     VERSION        = 3;
+
+    /** The character set strings are encoded in */
+    private static final Charset UTF_8          = Charset.forName("UTF-8");
+
+    /**
+     * Not instantiable
+     */
+    private SessionArchive()
+    {
+    }
+
+    /**
+     * Writes the given session to the given stream as an archive. The stream is
+     * flushed but not closed.
+     *
+     * @param diffSession
+     *            The session holding the results
+     * @param outputStream
+     *            The stream to write the archive to
+     *
+     * @throws IOException
+     *             if the archive could not be written
+     */
+    public static void write(DiffSession diffSession, OutputStream outputStream) throws IOException
+    {
+        Dictionary dictionary = new Dictionary();
+
+        DiffSession.CommitModel baseCommit = diffSession.getBaseCommit();
+        DiffSession.CommitModel newCommit = diffSession.getNewCommit();
+
+        // Assign every string its id up front, so the dictionary can precede the body
+        int[] header = new int[] {
+                dictionary.idFor(diffSession.getRepositoryName()),
+                dictionary.idFor(diffSession.getUserName()),
+                dictionary.idFor(diffSession.getUserEmail()),
+                dictionary.idFor(diffSession.getDeltaCount()),
+                dictionary.idFor((baseCommit != null) ? baseCommit.getSha1() : null),
+                dictionary.idFor((baseCommit != null) ? baseCommit.getDateStr() : null),
+                dictionary.idFor((baseCommit != null) ? baseCommit.getMessage() : null),
+                dictionary.idFor((newCommit != null) ? newCommit.getSha1() : null),
+                dictionary.idFor((newCommit != null) ? newCommit.getDateStr() : null),
+                dictionary.idFor((newCommit != null) ? newCommit.getMessage() : null),
+                dictionary.idFor(diffSession.getMode()) };
+
+        for (String category : diffSession.getCategories()) {
+            dictionary.idFor(category);
+            for (String file : diffSession.getListedFiles(category)) {
+                dictionary.idFor(file);
+            }
+        }
+
+        // Each class' name and methods are rebuilt on request, so gather them once
+        List<SignatureStore.ChangedClass> changedClasses = diffSession.getChangedClasses();
+        String[] classNames = new String[changedClasses.size()];
+        List<List<String>> classMethods = new ArrayList<List<String>>(changedClasses.size());
+
+        for (int idx = 0; idx < classNames.length; idx++) {
+            classNames[idx] = changedClasses.get(idx).getName();
+            classMethods.add(changedClasses.get(idx).getMethodSignatures());
+
+            dictionary.idFor(classNames[idx]);
+            for (String aMethod : classMethods.get(idx)) {
+                dictionary.idFor(aMethod);
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+
+        writeVarInt(out, dictionary.strings.size());
+        for (String str : dictionary.strings.keySet()) {
+            byte[] bytes = str.getBytes(UTF_8);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+
+        for (int id : header) {
+            writeVarInt(out, id);
+        }
+
+        writeVarInt(out, diffSession.getCategories().size());
+        for (String category : diffSession.getCategories()) {
+            writeVarInt(out, dictionary.idFor(category));
+            writeStrings(out, diffSession.getListedFiles(category), dictionary);
+        }
+
+        writeVarInt(out, classNames.length);
+        for (int idx = 0; idx < classNames.length; idx++) {
+            writeVarInt(out, dictionary.idFor(classNames[idx]));
+            writeStrings(out, classMethods.get(idx), dictionary);
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Reads a session from the given archive stream. The stream is not closed.
+     *
+     * @param inputStream
+     *            The stream to read the archive from
+     *
+     * @return The session held by the archive
+     *
+     * @throws IOException
+     *             if the archive could not be read or is malformed
+     */
+    public static DiffSession read(InputStream inputStream) throws IOException
+    {
+        DiffSession diffSession = new DiffSession();
+        readInto(inputStream, diffSession, true);
+        return diffSession;
+    }
+
+    /**
+     * Reads every given archive and merges their results into a single session.
+     * The metadata of the first archive is kept, except that the new commit is
+     * taken from the last archive and the delta counts are summed. Every
+     * archive must have been built in the same mode.
+     *
+     * @param archives
+     *            The archive files, in the order they should be merged
+     *
+     * @return The merged session
+     *
+     * @throws IOException
+     *             if any archive could not be read, is malformed, or was built in
+     *             a different mode than the first
+     */
+    public static DiffSession merge(List<File> archives) throws IOException
+    {
+        DiffSession diffSession = new DiffSession();
+
+        for (int idx = 0; idx < archives.size(); idx++) {
+
+            InputStream inputStream = new FileInputStream(archives.get(idx));
+            try {
+                readInto(inputStream, diffSession, idx == 0);
+            } catch (IOException e) {
+                throw new IOException(archives.get(idx).getPath() + ": " + e.getMessage(), e);
+            } finally {
+                inputStream.close();
+            }
+        }
+
+        return diffSession;
+    }
+
+    /**
+     * Reads an archive, adding its results to the given session
+     *
+     * @param inputStream
+     *            The stream to read the archive from
+     * @param diffSession
+     *            The session the results are added to
+     * @param first
+     *            Whether this is the first archive read into the session
+     *
+     * @throws IOException
+     *             if the archive could not be read or is malformed, or was built in a
+     *             different mode than the session's other archives
+     */
+    private static void readInto(InputStream inputStream, DiffSession diffSession, boolean first) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        for (int idx = 0; idx < MAGIC.length; idx++) {
+            if (magic[idx] != MAGIC[idx]) {
+                throw new IOException("Not a session archive");
+            }
+        }
+
+        int version = in.readUnsignedByte();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported archive version " + version);
+        }
+
+        String[] strings = new String[readVarInt(in) + 1];
+        for (int idx = 1; idx < strings.length; idx++) {
+            byte[] bytes = new byte[readVarInt(in)];
+            in.readFully(bytes);
+            strings[idx] = new String(bytes, UTF_8);
+        }
+
+        String[] header = new String[11];
+        for (int idx = 0; idx < header.length; idx++) {
+            header[idx] = (idx < 10 || version >= 3) ? readString(in, strings) : DiffSession.MODE_HISTORY;
+        }
+
+        if (header[10] == null) {
+            throw new IOException("Missing mode in archive");
+        }
+
+        if (first) {
+            diffSession.setMode(header[10]);
+            diffSession.setRepositoryName(header[0]);
+            diffSession.setUserName(header[1]);
+            diffSession.setUserEmail(header[2]);
+            diffSession.setDeltaCount(header[3]);
+            if (header[4] != null) {
+                diffSession.setBaseCommitMetadata(header[4], header[5], header[6]);
+            }
+        } else if (!header[10].equals(diffSession.getMode())) {
+            throw new IOException("Archive was built in " + header[10] + " mode, not " + diffSession.getMode() + " mode");
+        } else {
+            diffSession.setDeltaCount(sumDeltaCounts(diffSession.getDeltaCount(), header[3]));
+        }
+
+        if (header[7] != null) {
+            diffSession.setNewCommitMetadata(header[7], header[8], header[9]);
+        }
+
+        if (version == 1) {
+            readListedFiles(in, strings, DiffSession.JSP_CATEGORY, diffSession);
+            readListedFiles(in, strings, DiffSession.SQL_CATEGORY, diffSession);
+        } else {
+            for (int count = readVarInt(in); count > 0; count--) {
+                readListedFiles(in, strings, readString(in, strings), diffSession);
+            }
+        }
+
+        for (int classCount = readVarInt(in); classCount > 0; classCount--) {
+
+            String pkg = readString(in, strings);
+            diffSession.addChangedClass(pkg);
+
+            for (int count = readVarInt(in); count > 0; count--) {
+                diffSession.addChangedMethod(pkg, readString(in, strings));
+            }
+        }
+    }
+
+    /**
+     * Reads the files listed under a single category
+     *
+     * @param in
+     *            The stream to read from
+     * @param strings
+     *            The dictionary, where index 0 stands for null
+     * @param category
+     *            The category the files are listed under
+     * @param diffSession
+     *            The session the files are added to
+     *
+     * @throws IOException
+     *             if the files could not be read or are malformed
+     */
+    private static void readListedFiles(DataInputStream in, String[] strings, String category, DiffSession diffSession) throws IOException
+    {
+        if (category == null) {
+            throw new IOException("Missing category in archive");
+        }
+
+        diffSession.addCategory(category);
+
+        for (int count = readVarInt(in); count > 0; count--) {
+            diffSession.addListedFile(category, readString(in, strings));
+        }
+    }
+
+    /**
+     * Adds two delta counts, which are normally numeric
+     *
+     * @param total
+     *            The running total
+     * @param count
+     *            The count to add
+     *
+     * @return The sum, or the running total if either count is not a number
+     */
+    private static String sumDeltaCounts(String total, String count)
+    {
+        try {
+            return Long.toString(Long.parseLong(total) + Long.parseLong(count));
+        } catch (NumberFormatException e) {
+            return total;
+        }
+    }
+
+    /**
+     * Writes the dictionary ids of the given strings, preceded by their number
+     *
+     * @param out
+     *            The stream to write to
+     * @param strings
+     *            The strings to write
+     * @param dictionary
+     *            The dictionary holding every string
+     *
+     * @throws IOException
+     *             if the strings could not be written
+     */
+    private static void writeStrings(DataOutputStream out, Collection<String> strings, Dictionary dictionary) throws IOException
+    {
+        writeVarInt(out, strings.size());
+        for (String str : strings) {
+            writeVarInt(out, dictionary.idFor(str));
+        }
+    }
+
+    /**
+     * Reads a dictionary id and looks up its string
+     *
+     * @param in
+     *            The stream to read from
+     * @param strings
+     *            The dictionary, where index 0 stands for null
+     *
+     * @return The string, which may be null
+     *
+     * @throws IOException
+     *             if the id could not be read or is outside the dictionary
+     */
+    private static String readString(DataInputStream in, String[] strings) throws IOException
+    {
+        int id = readVarInt(in);
+        if (id >= strings.length) {
+            throw new IOException("String id " + id + " is outside the dictionary");
+        }
+
+        return strings[id];
+    }
+
+    /**
+     * Writes a non-negative integer seven bits at a time, lowest bits first
+     *
+     * @param out
+     *            The stream to write to
+     * @param value
+     *            The value to write
+     *
+     * @throws IOException
+     *             if the value could not be written
+     */
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException
+    {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte(remaining);
+    }
+
+    /**
+     * Reads a non-negative integer written by {@link #writeVarInt(DataOutputStream, int)}
+     *
+     * @param in
+     *            The stream to read from
+     *
+     * @return The value read
+     *
+     * @throws IOException
+     *             if the value could not be read or is malformed
+     */
+    private static int readVarInt(DataInputStream in) throws IOException
+    {
+        int value = 0;
+
+        for (int shift = 0; shift < 32; shift += 7) {
+
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Archive is truncated");
+            }
+
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IOException("Malformed integer in archive");
+                }
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed integer in archive");
+    }
+
+    /**
+     * Assigns each distinct string an id, in the order the strings are first seen.
+     * Id 0 stands for null, so the first string is given id 1.
+     *
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    private static class Dictionary
+    {
+        /** Each distinct string mapped to its id, in insertion order */
+        private final LinkedHashMap<String, Integer> strings = new LinkedHashMap<String, Integer>();
+
+        /**
+         * Returns the id of the given string, assigning it one if it has none
+         *
+         * @param str
+         *            The string, which may be null
+         *
+         * @return The string's id
+         */
+        int idFor(String str)
+        {
+            if (str == null) {
+                return 0;
+            }
+
+            Integer id = this.strings.get(str);
+            if (id == null) {
+                id = Integer.valueOf(this.strings.size() + 1);
+                this.strings.put(str, id);
+            }
+
+            return id.intValue();
+        }
+    }
+}
@@ -0,0 +1,501 @@
+package edu.ncsu.csc.utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact store of the changed classes of a session and the signatures of
+ * their changed methods.
+ *
+ * Fully qualified class names are held as paths through a trie of their
+ * dot-separated segments, so classes of the same package share a single
+ * copy of its name. Each distinct method signature is held once and
+ * assigned a small integer id, and each class records only the ids of its
+ * methods. The full names and sorted signatures are only rebuilt when the
+ * store is read, one class at a time.
+ *
+ * Classes and methods may be added from any number of threads at once.
+ * Each trie node is guarded by its own monitor, so threads only contend
+ * when they touch the same node, and only the assignment of a new
+ * signature id touches state shared by the whole store.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class SignatureStore
+{
+
+    /** Orders classes as the Strings of their fully qualified names would be */
+    private static final Comparator<Node>            NAME_ORDER = new NameOrder();
+
+    /** The root of the trie of class name segments, with an empty segment */
+    private final Node                               root       = new Node(null, "");
+
+    /** The id of each distinct method signature */
+    private final ConcurrentHashMap<String, Integer> methodIds  = new ConcurrentHashMap<String, Integer>();
+
+    /** Each distinct method signature, indexed by id */
+    private final ArrayList<String>                  signatures = new ArrayList<String>();
+
+    /**
+     * Records the given class as changed, even if none of its changes lie within a method
+     *
+     * @param className
+     *            The fully qualified name of the class
+     */
+    public void addClass(String className)
+    {
+        Node node = nodeFor(className);
+
+        synchronized (node) {
+            node.markChanged();
+        }
+    }
+
+    /**
+     * Records a changed method of the given class
+     *
+     * @param className
+     *            The fully qualified name of the class
+     * @param methodSignature
+     *            The signature of the method
+     */
+    public void addMethod(String className, String methodSignature)
+    {
+        Node node = nodeFor(className);
+        int id = idFor(methodSignature);
+
+        synchronized (node) {
+            node.addMethodId(id);
+        }
+    }
+
+    /**
+     * Adds every class and method recorded in the given store to this store
+     *
+     * @param other
+     *            The store whose contents should be added
+     */
+    public void addAll(SignatureStore other)
+    {
+        for (ChangedClass changedClass : other.getChangedClasses()) {
+
+            String className = changedClass.getName();
+            addClass(className);
+
+            for (String methodSignature : changedClass.getMethodSignatures()) {
+                addMethod(className, methodSignature);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of changed classes
+     *
+     * @return the class count
+     */
+    public int getClassCount()
+    {
+        return collectClasses(this.root, new ArrayList<Node>()).size();
+    }
+
+    /**
+     * Returns every changed class, ordered by name. The name and methods of
+     * each class are rebuilt as they are asked for, so the list itself is small.
+     *
+     * @return The changed classes
+     */
+    public List<ChangedClass> getChangedClasses()
+    {
+        List<Node> nodes = collectClasses(this.root, new ArrayList<Node>());
+        Collections.sort(nodes, NAME_ORDER);
+
+        List<ChangedClass> retVal = new ArrayList<ChangedClass>(nodes.size());
+        for (Node node : nodes) {
+            retVal.add(new ChangedClass(node));
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Finds the trie node of the given class name, adding any missing segments
+     *
+     * @param className
+     *            The fully qualified name of the class
+     *
+     * @return The class' node
+     */
+    private Node nodeFor(String className)
+    {
+        Node node = this.root;
+
+        int start = 0;
+        while (true) {
+
+            int end = className.indexOf('.', start);
+            String segment = (end == -1) ? className.substring(start) : className.substring(start, end);
+
+            synchronized (node) {
+                node = node.childFor(segment);
+            }
+
+            if (end == -1) {
+                return node;
+            }
+
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Returns the id of the given method signature, assigning it one if it has none
+     *
+     * @param methodSignature
+     *            The method signature
+     *
+     * @return The signature's id
+     */
+    private int idFor(String methodSignature)
+    {
+        Integer id = this.methodIds.get(methodSignature);
+
+        if (id == null) {
+            synchronized (this.signatures) {
+                id = this.methodIds.get(methodSignature);
+                if (id == null) {
+                    id = Integer.valueOf(this.signatures.size());
+                    this.signatures.add(methodSignature);
+                    this.methodIds.put(methodSignature, id);
+                }
+            }
+        }
+
+        return id.intValue();
+    }
+
+    /**
+     * Looks up the method signature with the given id
+     *
+     * @param id
+     *            The signature's id
+     *
+     * @return The method signature
+     */
+    private String signatureFor(int id)
+    {
+        synchronized (this.signatures) {
+            return this.signatures.get(id);
+        }
+    }
+
+    /**
+     * Collects every changed class at or beneath the given node
+     *
+     * @param node
+     *            The node to start from
+     * @param classes
+     *            The list the classes are added to
+     *
+     * @return The given list
+     */
+    private static List<Node> collectClasses(Node node, List<Node> classes)
+    {
+        Node[] children;
+
+        synchronized (node) {
+            if (node.changed) {
+                classes.add(node);
+            }
+            children = Arrays.copyOf(node.children, node.childCount);
+        }
+
+        for (Node child : children) {
+            collectClasses(child, classes);
+        }
+
+        return classes;
+    }
+
+    /**
+     * A changed class, as read from the store
+     *
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    public class ChangedClass
+    {
+        /** The class' node within the trie */
+        private final Node node;
+
+        /**
+         * Constructs a new view of the given class' node
+         *
+         * @param node
+         *            The class' node within the trie
+         */
+        ChangedClass(Node node)
+        {
+            this.node = node;
+        }
+
+        /**
+         * Rebuilds the class' fully qualified name from its segments
+         *
+         * @return The name of the class
+         */
+        public String getName()
+        {
+            Node[] path = this.node.getPath();
+            StringBuilder name = new StringBuilder(path[0].segment);
+
+            for (int idx = 1; idx < path.length; idx++) {
+                name.append('.').append(path[idx].segment);
+            }
+
+            return name.toString();
+        }
+
+        /**
+         * Returns the signatures of the class' changed methods
+         *
+         * @return The signatures, sorted
+         */
+        public List<String> getMethodSignatures()
+        {
+            int[] ids;
+
+            synchronized (this.node) {
+                ids = Arrays.copyOf(this.node.methodIds, this.node.methodCount);
+            }
+
+            String[] retVal = new String[ids.length];
+            for (int idx = 0; idx < ids.length; idx++) {
+                retVal[idx] = signatureFor(ids[idx]);
+            }
+
+            Arrays.sort(retVal);
+            return Arrays.asList(retVal);
+        }
+    }
+
+    /**
+     * A single segment of a class name within the trie. Every field but the
+     * parent and segment is guarded by the node's monitor.
+     *
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    private static class Node
+    {
+        /** No children or methods */
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        /** No method ids */
+        private static final int[]  NO_IDS      = new int[0];
+
+        /** The node of the preceding segment, or null for the root */
+        private final Node          parent;
+
+        /** The segment of the name */
+        private final String        segment;
+
+        /** The nodes of the following segments, sorted by segment */
+        private Node[]              children    = NO_CHILDREN;
+
+        /** The number of children */
+        private int                 childCount  = 0;
+
+        /** The ids of the class' changed methods, sorted by id */
+        private int[]               methodIds   = NO_IDS;
+
+        /** The number of method ids */
+        private int                 methodCount = 0;
+
+        /** Whether the name ending at this node is a changed class */
+        private boolean             changed     = false;
+
+        /**
+         * Constructs a new node
+         *
+         * @param parent
+         *            The node of the preceding segment, or null for the root
+         * @param segment
+         *            The segment of the name
+         */
+        Node(Node parent, String segment)
+        {
+            this.parent = parent;
+            this.segment = segment;
+        }
+
+        /**
+         * Finds the child for the given segment, adding it if missing
+         *
+         * @param childSegment
+         *            The segment
+         *
+         * @return The child node
+         */
+        Node childFor(String childSegment)
+        {
+            int low = 0;
+            int high = this.childCount;
+
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int cmp = this.children[mid].segment.compareTo(childSegment);
+                if (cmp == 0) {
+                    return this.children[mid];
+                } else if (cmp < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            if (this.childCount == this.children.length) {
+                this.children = Arrays.copyOf(this.children, Math.max(2, this.childCount * 2));
+            }
+
+            System.arraycopy(this.children, low, this.children, low + 1, this.childCount - low);
+            this.children[low] = new Node(this, childSegment);
+            this.childCount++;
+
+            return this.children[low];
+        }
+
+        /**
+         * Marks the name ending at this node as a changed class
+         */
+        void markChanged()
+        {
+            this.changed = true;
+        }
+
+        /**
+         * Records a changed method of the class, if not already recorded
+         *
+         * @param id
+         *            The id of the method's signature
+         */
+        void addMethodId(int id)
+        {
+            this.changed = true;
+
+            int idx = Arrays.binarySearch(this.methodIds, 0, this.methodCount, id);
+            if (idx >= 0) {
+                return;
+            }
+
+            idx = -(idx + 1);
+
+            if (this.methodCount == this.methodIds.length) {
+                this.methodIds = Arrays.copyOf(this.methodIds, Math.max(2, this.methodCount * 2));
+            }
+
+            System.arraycopy(this.methodIds, idx, this.methodIds, idx + 1, this.methodCount - idx);
+            this.methodIds[idx] = id;
+            this.methodCount++;
+        }
+
+        /**
+         * Returns the nodes from the first segment of the name to this one,
+         * excluding the root
+         *
+         * @return The path of nodes
+         */
+        Node[] getPath()
+        {
+            int depth = 0;
+            for (Node node = this; node.parent != null; node = node.parent) {
+                depth++;
+            }
+
+            Node[] path = new Node[depth];
+            for (Node node = this; node.parent != null; node = node.parent) {
+                path[--depth] = node;
+            }
+
+            return path;
+        }
+    }
+
+    /**
+     * Orders nodes as the Strings of their fully qualified names would be,
+     * without building the names.
+     *
+     * @author Chris Stroud (clstroud@ncsu.edu)
+     * @version 1.0.0
+     */
+    private static class NameOrder implements Comparator<Node>
+    {
+
+        @Override
+        public int compare(Node a, Node b)
+        {
+            Node[] pathA = a.getPath();
+            Node[] pathB = b.getPath();
+
+            int segA = 0;
+            int segB = 0;
+            int posA = 0;
+            int posB = 0;
+
+            while (true) {
+
+                boolean endA = (segA == pathA.length - 1 && posA == pathA[segA].segment.length());
+                boolean endB = (segB == pathB.length - 1 && posB == pathB[segB].segment.length());
+
+                // A name which is a prefix of the other comes first
+                if (endA || endB) {
+                    return (endA ? 0 : 1) - (endB ? 0 : 1);
+                }
+
+                char charA = charAt(pathA, segA, posA);
+                char charB = charAt(pathB, segB, posB);
+
+                if (charA != charB) {
+                    return charA - charB;
+                }
+
+                // Step past the character, or past the separator onto the next segment
+                if (posA == pathA[segA].segment.length()) {
+                    segA++;
+                    posA = 0;
+                } else {
+                    posA++;
+                }
+
+                if (posB == pathB[segB].segment.length()) {
+                    segB++;
+                    posB = 0;
+                } else {
+                    posB++;
+                }
+            }
+        }
+
+        /**
+         * Returns the character at the given position of a name's segment,
+         * where the position just past the end of the segment is its separator
+         *
+         * @param path
+         *            The name's path of nodes
+         * @param seg
+         *            The index of the segment
+         * @param pos
+         *            The position within the segment
+         *
+         * @return The character, or '.' for a separator
+         */
+        private static char charAt(Node[] path, int seg, int pos)
+        {
+            return (pos < path[seg].segment.length()) ? path[seg].segment.charAt(pos) : '.';
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package edu.ncsu.csc.utilities;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Renders the plain text report meant for human consumption.
+ *
+ * @author Chris Stroud (clstroud@ncsu.edu)
+ * @version 1.0.0
+ */
+public class TextReportRenderer implements ReportRenderer
+{
+
+    /** The length at which a wrap is desired for commit messages */
+    private static final int    MESSAGE_WRAP_LENGTH = 35;
+
+    /** The platform's line separator */
+    private static final String NEWLINE             = System.getProperty("line.separator");
+
+    @Override
+    public void render(DiffSession diffSession, Writer writer) throws IOException
+    {
+        writer.write("Repository:  " + diffSession.getRepositoryName() + NEWLINE);
+        writer.write("Date:        " + new SimpleDateFormat("dd/MM/yyyy").format(new Date()) + NEWLINE);
+        writer.write("User:        " + diffSession.getUserName() + "<" + diffSession.getUserEmail() + ">" + NEWLINE);
+        writer.write("Mode:        " + diffSession.getMode() + NEWLINE);
+        writer.write("Delta Count: " + diffSession.getDeltaCount() + NEWLINE + NEWLINE);
+
+        writer.write("Base Commit:" + NEWLINE);
+        writeCommit(diffSession.getBaseCommit(), writer);
+
+        writer.write(NEWLINE + NEWLINE + " New Commit:" + NEWLINE);
+        writeCommit(diffSession.getNewCommit(), writer);
+
+        writer.write(NEWLINE + NEWLINE);
+
+        boolean first = true;
+        for (String category : diffSession.getCategories()) {
+
+            Set<String> files = diffSession.getListedFiles(category);
+
+            if (!first) {
+                writer.write("\n");
+            }
+
+            writer.write(category + " Files (" + files.size() + "):" + NEWLINE);
+            writer.write("====================" + NEWLINE + NEWLINE);
+
+            for (String file : files) {
+                writer.write("    " + file + NEWLINE);
+            }
+
+            first = false;
+        }
+
+        List<SignatureStore.ChangedClass> changedClasses = diffSession.getChangedClasses();
+
+        writer.write(NEWLINE + "Java Files (" + changedClasses.size() + "):" + NEWLINE);
+        writer.write("====================" + NEWLINE + NEWLINE);
+
+        for (SignatureStore.ChangedClass pkg : changedClasses) {
+
+            writer.write(pkg.getName() + NEWLINE);
+
+            List<String> methods = pkg.getMethodSignatures();
+
+            if (methods.size() > 0) {
+
+                for (String aMethod : methods) {
+                    writer.write("    " + aMethod + NEWLINE);
+                }
+
+            } else {
+
+                writer.write("    No Changes Within Method Contexts" + NEWLINE);
+
+            }
+
+            writer.write("\n");
+        }
+    }
+
+    @Override
+    public String getFileExtension()
+    {
+        return ".txt";
+    }
+
+    /**
+     * Writes the hash, date and wrapped message of the given commit
+     *
+     * @param commit
+     *            The commit to write
+     * @param writer
+     *            The writer the report is written to
+     *
+     * @throws IOException
+     *             if the report could not be written
+     */
+    private static void writeCommit(DiffSession.CommitModel commit, Writer writer) throws IOException
+    {
+        writer.write("    SHA-1: " + commit.getSha1() + NEWLINE);
+        writer.write("    Date: " + commit.getDateStr() + NEWLINE);
+        writer.write("    Message: ");
+
+        Iterator<String> msgIterator = wrapWordsInString(commit.getMessage(), MESSAGE_WRAP_LENGTH).iterator();
+
+        if (msgIterator.hasNext()) {
+            writer.write(msgIterator.next());
+        }
+
+        while (msgIterator.hasNext()) {
+            writer.write(NEWLINE + "             " + msgIterator.next());
+        }
+    }
+
+    /**
+     * Wraps words from a given string conforming to the
+     * given length of characters for a particular line
+     * 
+     * @param str
+     *            The string to wrap
+     * @param length
+     *            The number of characters permitted on a line
+     * 
+     * @return List of the wrapped strings
+     */
+    static List<String> wrapWordsInString(String str, int length)
+    {
+        ArrayList<String> retVal = new ArrayList<String>();   // Return value
+
+        String[] splitResult = str.split("\\s"); // Split based on whitespace characters
+
+        StringBuilder lineContents = new StringBuilder();	// Buffer for the line
+
+        // Loop through all words
+        for (String atom : splitResult) {
+
+            // If the lineContents are longer than the length of the
+            // character limit, it's necessary to flush the buffer
+            // into the return structure before working on this
+            // atom since it needs to be on a new line
+
+            if (lineContents.length() + atom.length() > length) {
+
+                retVal.add(lineContents.toString());                   // Flush the line
+                lineContents.delete(0, lineContents.length());     // Reset the contents of the buffer
+
+                // Is the word we're dealing with longer than the limit?
+                if (atom.length() > length) {
+
+                    // Make a temp copy that can be widdled-away at
+                    // Then hyphenate as neccessary.
+                    String tempAtom = atom;
+                    while (tempAtom.length() > 0) {
+
+                        // Is the tempAtom longer than the line max?
+                        int idx = Math.min(length, tempAtom.length());
+
+                        // If the string fits, write it and we're done
+                        if (idx == tempAtom.length()) {
+
+                            retVal.add(tempAtom.substring(0, idx));
+                            break;
+
+                        }
+
+                        idx--;
+                        retVal.add(tempAtom.substring(0, idx).concat("-"));  // Append the hyphenated
+                                                                            // word
+                        tempAtom = tempAtom.substring(idx + 1);              // Widdle away and keep going
+                    }
+                }
+            }
+
+            lineContents.append(" " + atom);
+        }
+
+        // If anything is left in the buffer (likely is), then add to return structure
+        if (lineContents.length() > 0) {
+            retVal.add(lineContents.toString());
+        }
+
+        return retVal;
+    }
+}